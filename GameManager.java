@@ -0,0 +1,962 @@
+import hlt.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import hlt.Move;
+
+class Util{
+    public static int getRandom (int min, int max){
+        double r = Math.random ();
+        return min + (int)(r * (double)(max - min));
+    }
+}
+
+class ShipInfo {
+        public int shipId;
+        public int playerId;
+
+        public ShipInfo() {
+            shipId = -1;
+            playerId = -1;
+        }
+    };
+
+class GameManager implements Bot {
+    public Map<Integer, Pilot> pilotsMap = new HashMap <>();
+    public int turn;
+    public int goals;
+    public int numPilotsDocked;
+    public int firstPlanetId = -1;
+    public Navigation.Mode navigationMode = Navigation.Mode.Linear;
+    public MoveResolver moveResolver = new MoveResolver ();
+    // planets our pilots are mining or on their way to mine
+    public PlanetReservations reservations = new PlanetReservations ();
+    // static map facts, from the pre-game window in main () or else the first update
+    public MapAnalysis mapAnalysis;
+    // goal thresholds, tuned with tools/Tournament
+    public int attackMinDocked = 3;
+    public int attackEveryGoals = 3;
+    // after the first turn, hand out goals to all the pilots needing one at once (assignGoals)
+    // instead of one by one as they ask (getGoal)
+    public boolean batchAssignment = true;
+    // extra cost of an attack or a defence over mining, in map units
+    public double attackCost = 30.0;
+    public double defendCost = 10.0;
+    // defenders head for the planet's approach point nearest them rather than its center
+    public boolean approachPoints = true;
+    public MinCostAssignment assignment = new MinCostAssignment ();
+    // Pilots decide serially but only record where they want to go (navigate ()); the paths are then
+    // found on planningThreads threads against the unchanged map and put back in pilot order, so
+    // the moves are the same as with serial planning.
+    public boolean parallelPlanning = false;
+    public int planningThreads = Runtime.getRuntime ().availableProcessors ();
+    private ForkJoinPool planningPool;
+    private List<NavigationRequest> navigationRequests = new ArrayList<>();
+
+    // enemies this close to the surface of one of our planets are worth defending it against
+    public static final double DEFEND_RADIUS = 40.0;
+    public static final int MAX_DEFENDERS = 2;
+    public static final long ASSIGNMENT_BUDGET_NANOS = 5_000_000L;
+    public static final int PLANNING_SHARDS_PER_THREAD = 4;
+
+    private static final NearestQueries.Filter ENEMY_SHIPS = NearestQueries.Filter.SHIPS.owner (NearestQueries.Owner.Enemy);
+    private static final NearestQueries.Filter DOCKED_ENEMY_SHIPS = ENEMY_SHIPS.docking (NearestQueries.Docking.Docked);
+    private static final NearestQueries.Filter UNDOCKED_ENEMY_SHIPS = ENEMY_SHIPS.docking (NearestQueries.Docking.Undocked);
+    private static final NearestQueries.Filter FREE_PLANETS = NearestQueries.Filter.PLANETS.owner (NearestQueries.Owner.Unowned).notFull ();
+    private static final NearestQueries.Filter MY_OPEN_PLANETS = NearestQueries.Filter.PLANETS.owner (NearestQueries.Owner.Mine).notFull ();
+
+    public ShipInfo closestShip(GameMap gameMap, Pilot pilot, boolean onlyDocked)
+    {
+         ShipInfo ob = new ShipInfo();
+         Entity ship = gameMap.getNearestQueries ().nearest (pilot.getShip(gameMap), onlyDocked ? DOCKED_ENEMY_SHIPS : ENEMY_SHIPS);
+         if (ship != null) {
+             ob.shipId = ship.getId();
+             ob.playerId = ship.getOwner();
+         }
+         return ob;
+    }
+
+
+    public int secondClosestPlanet(GameMap gameMap, Pilot pilot)
+    {
+        // closest free planet, else the closest of ours with room left
+        Ship ship = pilot.getShip(gameMap);
+        Entity planet = gameMap.getNearestQueries ().nearest (ship, FREE_PLANETS);
+        if (planet == null)
+            planet = gameMap.getNearestQueries ().nearest (ship, MY_OPEN_PLANETS);
+        return planet == null ? -1 : planet.getId();
+    }
+
+    public void update (GameMap gameMap, List<Move> outMoves){
+        turn ++;
+        outMoves.clear ();
+        TurnMetrics metrics = gameMap.getMetrics ();
+        long phaseStart = TurnMetrics.start ();
+        if (mapAnalysis == null)
+            mapAnalysis = MapAnalysis.analyze (gameMap);
+        Player myPlayer = gameMap.getMyPlayer ();
+        //==================
+        // Update the pilots
+        //==================
+        int myPlayerId = gameMap.getMyPlayerId ();
+        Set<Integer> shipIds = myPlayer.getShips ().keySet ();
+        if (turn > 1){
+            // drive from what changed since last turn
+            MapDiff diff = gameMap.getLastDiff ();
+            for (Ship ship : diff.getSpawnedShips ()){
+                if (ship.getOwner () == myPlayerId && !pilotsMap.containsKey (ship.getId ())){
+                    addPilot (gameMap, ship.getId ());
+                }
+            }
+            for (Ship ship : diff.getDestroyedShips ()){
+                if (ship.getOwner () != myPlayerId)
+                    continue;
+                Pilot pilot = pilotsMap.remove (ship.getId ());
+                if (pilot != null)
+                    pilot.die(this, gameMap);
+            }
+        }
+        if (pilotsMap.size () != shipIds.size ()){
+            // first turn, or a turn was missed: rebuild from the full ship list
+            Set<Integer> pilotShipIds = pilotsMap.keySet ();
+            // construct new pilotsMap
+            for (int shipId : shipIds){
+                if(!pilotShipIds.contains (shipId)){
+                    addPilot (gameMap, shipId);
+                }
+            }
+            // kill dead pilotsMap (Blue skies)
+            List <Integer> deadPilots = new ArrayList<>();
+            for (int shipId : pilotShipIds){
+                if (!shipIds.contains (shipId)){
+                    Pilot pilot = pilotsMap.get (shipId);
+                    pilot.die(this, gameMap);
+                    deadPilots.add (shipId);
+                }
+            }
+            for (int pilotId : deadPilots){
+                pilotsMap.remove (pilotId);
+            }
+        }
+
+        // ========================================
+        // update the pilots and generate the moves
+        // ========================================
+        Collection<Pilot> pilots = pilotsMap.values ();
+        numPilotsDocked = 0;
+        for (Pilot pilot : pilots) {
+            Ship ship = gameMap.getShip (myPlayerId, pilot.shipId);
+            if (ship.getDockingStatus () == Ship.DockingStatus.Docked)
+                numPilotsDocked ++;
+        }
+        metrics.stop (TurnMetrics.Phase.Pilots, phaseStart);
+        phaseStart = TurnMetrics.start ();
+        TurnBudget budget = gameMap.getTurnBudget ();
+        if (batchAssignment && turn > 1 && budget.getLevel () != TurnBudget.Level.Exhausted){
+            List<Pilot> idlePilots = new ArrayList<>();
+            for (Pilot pilot : pilots){
+                if (pilot.needsGoal (gameMap))
+                    idlePilots.add (pilot);
+            }
+            if (!idlePilots.isEmpty ()){
+                idlePilots.sort ((a, b) -> Integer.compare (a.shipId, b.shipId));
+                assignGoals (gameMap, idlePilots);
+            }
+        }
+        metrics.stop (TurnMetrics.Phase.Assign, phaseStart);
+        // inline navigation is timed by navigate (), the rest of the loop is planning
+        long navigateBefore = metrics.getNanos (TurnMetrics.Phase.Navigate);
+        phaseStart = TurnMetrics.start ();
+        try {
+            for (Pilot pilot : pilots){
+                Move move;
+                if (budget.getLevel () == TurnBudget.Level.Exhausted){
+                    // out of time: repeat last turn's move instead of planning
+                    move = pilot.repeatLastMove (gameMap);
+                } else {
+                    move = pilot.update(this, gameMap);
+                }
+                pilot.lastMove = move;
+                if (move != null){
+                    outMoves.add (move);
+                }
+            }
+        } finally {
+            long loopNanos = metrics.stop (TurnMetrics.Phase.Plan, phaseStart);
+            long inlineNanos = metrics.getNanos (TurnMetrics.Phase.Navigate) - navigateBefore;
+            metrics.add (TurnMetrics.Phase.Plan, -Math.min (inlineNanos, loopNanos));
+            // placeholders must not reach the engine, even when a pilot throws
+            if (!navigationRequests.isEmpty ()){
+                phaseStart = TurnMetrics.start ();
+                solveNavigation (gameMap, pilots, outMoves);
+                metrics.stop (TurnMetrics.Phase.Navigate, phaseStart);
+            }
+        }
+
+        // Resolve even when out of time: repeated moves were planned against last turn's positions
+        // and may now run into each other, and it only takes a few ms of the headroom past the budget.
+        phaseStart = TurnMetrics.start ();
+        moveResolver.resolve (gameMap, outMoves);
+        metrics.stop (TurnMetrics.Phase.Resolve, phaseStart);
+        metrics.count (TurnMetrics.Counter.MovesRepaired, moveResolver.getRepairedCount ());
+        metrics.count (TurnMetrics.Counter.MovesStopped, moveResolver.getStoppedCount ());
+    }
+
+    // Navigation.navigateShipTowardsTarget (), or with parallelPlanning a placeholder move solved later
+    public Move navigate (GameMap gameMap, Ship ship, Position target, int speed, int maxCorrections, double angularStepRad){
+        if (!parallelPlanning){
+            long start = TurnMetrics.start ();
+            Move move = Navigation.navigateShipTowardsTarget (gameMap, ship, target, speed, true, maxCorrections, angularStepRad, navigationMode);
+            gameMap.getMetrics ().stop (TurnMetrics.Phase.Navigate, start);
+            return move;
+        }
+        // ask the budget now, as serial planning would; the workers never read it
+        int corrections = gameMap.getTurnBudget ().limitCorrections (maxCorrections);
+        navigationRequests.add (new NavigationRequest (ship, target, speed, corrections, angularStepRad));
+        return new PendingThrustMove (ship, navigationRequests.size () - 1);
+    }
+
+    // solve the recorded navigation in shards, then swap the results in for the placeholders
+    private void solveNavigation (GameMap gameMap, Collection<Pilot> pilots, List<Move> outMoves){
+        List<NavigationRequest> requests = navigationRequests;
+        int shards = Math.min (requests.size (), planningThreads * PLANNING_SHARDS_PER_THREAD);
+        if (planningThreads <= 1 || shards <= 1){
+            for (NavigationRequest request : requests)
+                request.solve (gameMap, navigationMode);
+        } else {
+            if (planningPool == null || planningPool.getParallelism () != planningThreads){
+                if (planningPool != null)
+                    planningPool.shutdown ();
+                planningPool = new ForkJoinPool (planningThreads);
+            }
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(shards);
+            for (int shard = 0; shard < shards; ++shard){
+                int from = (int)((long)requests.size () * shard / shards);
+                int to = (int)((long)requests.size () * (shard + 1) / shards);
+                tasks.add (ForkJoinTask.adapt (() -> {
+                    for (int i = from; i < to; ++i)
+                        requests.get (i).solve (gameMap, navigationMode);
+                }));
+            }
+            planningPool.submit (() -> ForkJoinTask.invokeAll (tasks)).join ();
+        }
+
+        int kept = 0;
+        for (Move move : outMoves){
+            if (move instanceof PendingThrustMove)
+                move = requests.get (((PendingThrustMove)move).index).move;
+            if (move != null)
+                outMoves.set (kept ++, move);
+        }
+        outMoves.subList (kept, outMoves.size ()).clear ();
+        for (Pilot pilot : pilots){
+            if (pilot.lastMove instanceof PendingThrustMove)
+                pilot.lastMove = requests.get (((PendingThrustMove)pilot.lastMove).index).move;
+        }
+        requests.clear ();
+    }
+
+    private void addPilot (GameMap gameMap, int shipId){
+        Pilot pilot = new Pilot (shipId);
+        pilotsMap.put (shipId, pilot);
+        // in batch mode assignGoals () picks it up later this turn
+        if (!batchAssignment || turn == 1)
+            pilot.setGoal (this, getGoal (gameMap, pilot));
+    }
+
+    // Give goals to all the pilots at once, at the lowest total distance: free docking spots,
+    // docked enemy ships once we have enough miners, and our planets with enemies close by.
+    // Pilots left over, when there are fewer spots than pilots or time runs out, go to getGoal ().
+    public void assignGoals (GameMap gameMap, List<Pilot> pilots)
+    {
+        int myPlayerId = gameMap.getMyPlayerId ();
+        Player myPlayer = gameMap.getMyPlayer ();
+        for (Pilot pilot : pilots)
+            reservations.release (pilot.shipId);
+
+        List<Planet> minePlanets = new ArrayList<>();
+        List<Planet> defendPlanets = new ArrayList<>();
+        List<Integer> defenders = new ArrayList<>();
+        for (Planet planet : gameMap.getAllPlanets ().values ()){
+            boolean enemyOwned = planet.getDockedShipCount () > 0 && !myPlayer.hasShip (planet.getDockedShipId (0));
+            if (enemyOwned)
+                continue;
+            if (!planet.isFull () && reservations.getFreeSpots (planet) > 0)
+                minePlanets.add (planet);
+            if (planet.getDockedShipCount () > 0){
+                int threats = 0;
+                for (Entity enemy : gameMap.getNearestQueries ().nearest (planet, UNDOCKED_ENEMY_SHIPS, MAX_DEFENDERS)){
+                    if (enemy.getDistanceTo (planet) - planet.getRadius () < DEFEND_RADIUS)
+                        threats ++;
+                }
+                if (threats > 0){
+                    defendPlanets.add (planet);
+                    defenders.add (threats);
+                }
+            }
+        }
+        List<Ship> attackShips = new ArrayList<>();
+        if (numPilotsDocked > attackMinDocked){
+            for (Ship ship : gameMap.getAllShips ()){
+                if (ship.getOwner () != myPlayerId && ship.getDockingStatus () != Ship.DockingStatus.Undocked)
+                    attackShips.add (ship);
+            }
+        }
+
+        int attackStart = minePlanets.size ();
+        int defendStart = attackStart + attackShips.size ();
+        int targets = defendStart + defendPlanets.size ();
+        // more than any target can cost, so pilots are only left over when targets run out
+        double unassignedCost = gameMap.getWidth () + gameMap.getHeight () + attackCost + defendCost;
+        assignment.reset (pilots.size (), targets, unassignedCost);
+        for (int t = 0; t < minePlanets.size (); ++t)
+            assignment.setCapacity (t, reservations.getFreeSpots (minePlanets.get (t)));
+        for (int t = 0; t < defendPlanets.size (); ++t)
+            assignment.setCapacity (defendStart + t, defenders.get (t));
+        for (int i = 0; i < pilots.size (); ++i){
+            Ship ship = pilots.get (i).getShip (gameMap);
+            for (int t = 0; t < minePlanets.size (); ++t){
+                Planet planet = minePlanets.get (t);
+                assignment.setCost (i, t, ship.getDistanceTo (planet) - planet.getRadius ());
+            }
+            for (int t = 0; t < attackShips.size (); ++t)
+                assignment.setCost (i, attackStart + t, ship.getDistanceTo (attackShips.get (t)) + attackCost);
+            for (int t = 0; t < defendPlanets.size (); ++t){
+                Planet planet = defendPlanets.get (t);
+                assignment.setCost (i, defendStart + t, ship.getDistanceTo (planet) - planet.getRadius () + defendCost);
+            }
+        }
+        // only a running turn has a deadline, so offline runs (Replay, SelfPlay) are reproducible
+        TurnBudget budget = gameMap.getTurnBudget ();
+        long deadline = budget.isStarted ()
+                ? System.nanoTime () + Math.min (ASSIGNMENT_BUDGET_NANOS, budget.remainingNanos () / 4)
+                : Long.MAX_VALUE;
+        if (!assignment.solve (deadline) && Log.isEnabled (Log.Level.Info))
+            Log.log ("assignment out of time for " + pilots.size () + " pilots and " + targets + " targets");
+
+        List<Pilot> leftOver = new ArrayList<>();
+        for (int i = 0; i < pilots.size (); ++i){
+            Pilot pilot = pilots.get (i);
+            int t = assignment.getTarget (i);
+            Goal goal;
+            if (t == MinCostAssignment.UNASSIGNED){
+                leftOver.add (pilot);
+                continue;
+            } else if (t < attackStart){
+                goal = new GoMineGoal (this, gameMap, pilot, minePlanets.get (t).getId ());
+            } else if (t < defendStart){
+                Ship enemy = attackShips.get (t - attackStart);
+                goal = new GoAttackGoal (this, gameMap, pilot, enemy.getOwner (), enemy.getId (), false);
+            } else {
+                goal = new DefendPlanetGoal (this, gameMap, pilot, defendPlanets.get (t - defendStart).getId ());
+            }
+            goals ++;
+            pilot.setGoal (this, goal);
+        }
+        for (Pilot pilot : leftOver)
+            pilot.setGoal (this, getGoal (gameMap, pilot));
+    }
+
+    public int getMiningPlanet (GameMap gameMap, Pilot pilot)
+    {
+        double minim = 9999999;
+        int nearestPlanetId = -1;
+        Player myPlayer = gameMap.getMyPlayer ();
+        Ship ship = pilot.getShip(gameMap);
+        for(final Planet planet : gameMap.getAllPlanets().values())
+        {
+            // skip if planet is owned by enemies
+            if(planet.getDockedShipCount () > 0 && !myPlayer.hasShip(planet.getDockedShipId (0)))
+                continue;
+
+            // skip if planet is full
+            if(planet.isFull())
+                continue;
+
+            // skip if it cannot be closer than the nearest so far: the ship is at least
+            // distance(nearest, planet) - minim away from it
+            if(nearestPlanetId != -1 && mapAnalysis.getDistance (nearestPlanetId, planet.getId ()) > 2 * minim + 1e-9)
+                continue;
+
+            // skip if there are no more docking spaces available
+            if(reservations.getFreeSpots (planet) <= 0)
+                continue;
+
+            double distance = ship.getDistanceTo(planet);
+            if(distance < minim)
+            {
+                minim = distance;
+                nearestPlanetId = planet.getId();
+            }
+
+        }
+
+        return nearestPlanetId;
+    }
+
+    // closest planet to our starting ships that is still free
+    public int getFirstPlanet (GameMap gameMap, Pilot pilot)
+    {
+        int myPlayerId = gameMap.getMyPlayerId ();
+        for (int planetId : mapAnalysis.getPlanetRanking (myPlayerId)){
+            Planet planet = gameMap.getPlanet (planetId);
+            if (planet == null || planet.isFull () || (planet.isOwned () && planet.getOwner () != myPlayerId))
+                continue;
+            return planetId;
+        }
+        return getMiningPlanet(gameMap, pilot);
+    }
+
+    public Goal getGoal (GameMap gameMap, Pilot pilot){
+        goals ++;
+        // start of the game
+        if (1 == turn){
+            if (firstPlanetId == -1)
+                firstPlanetId = getFirstPlanet(gameMap, pilot);
+            if (goals <= 2){
+                return new GoMineGoal (this, gameMap, pilot, firstPlanetId);
+            }
+            return new DefendPlanetGoal (this, gameMap, pilot, firstPlanetId);
+        }
+
+        // spawned ships
+        if (numPilotsDocked > attackMinDocked && (0 == (goals % attackEveryGoals))) {
+            return getAttackGoal(gameMap, pilot);
+        } else {
+            int planetId = secondClosestPlanet(gameMap, pilot);
+            if (planetId != -1) {
+                return new GoMineGoal(this, gameMap, pilot, planetId);
+            } else {
+                return getAttackGoal(gameMap, pilot);
+            }
+        }
+    }
+
+    // closest docked enemy, or the closest enemy when none is docked
+    private Goal getAttackGoal (GameMap gameMap, Pilot pilot){
+        ShipInfo shipInfo = closestShip(gameMap, pilot, true);
+        if (shipInfo.shipId == -1)
+            shipInfo = closestShip(gameMap, pilot, false);
+        return new GoAttackGoal(this, gameMap, pilot, shipInfo.playerId, shipInfo.shipId, false);
+    }
+}
+
+abstract class Goal {
+    public Task currentTask;
+
+    public Move taskCompleted (GameManager gameManager, GameMap gameMap) {
+        if (Log.isEnabled (Log.Level.Debug))
+            Log.log (Log.Level.Debug, "Task " + currentTask.name + " from goal " + getClass().getSimpleName() + " for ship " + currentTask.pilot.shipId + " completed");
+        return null;
+    }
+
+    public Move alarm (GameManager gameManager, GameMap gameMap, String issue){
+        if (Log.isEnabled (Log.Level.Debug))
+            Log.log (Log.Level.Debug, "Task " + currentTask.name + " from goal " + getClass().getSimpleName() + " for ship " + currentTask.pilot.shipId + " alarm " + issue);
+        return null;
+    }
+
+    // planet this goal holds a docking spot on, or -1
+    public int getReservedPlanet (){
+        return -1;
+    }
+
+    // nothing left to do, or the target is gone; only asked for undocked ships
+    public boolean isFinished (GameMap gameMap){
+        return currentTask == null;
+    }
+
+    Move update (GameManager gameManager, GameMap gameMap){
+        return currentTask != null ? currentTask.update(gameManager, gameMap) : null;
+    }
+
+    void logTask(){
+        if (!Log.isEnabled (Log.Level.Debug))
+            return;
+        if (currentTask != null)
+            Log.log (Log.Level.Debug, "\tShip " + currentTask.pilot.shipId + " Switch to task " + currentTask.toString ());
+        else
+            Log.log (Log.Level.Debug, "\tSwitch to nothing.");
+    }
+}
+
+class GoMineGoal extends Goal {
+    public static final transient String GO_TO_PLANET = "GoToPlanet";
+    public static final transient String DOCK_PLANET = "DockPlanet";
+    public int planetId;
+    public GoToPlanetTask gotoPlanetTask;
+    public DockPlanetTask dockPlanetTask;
+
+    public GoMineGoal (GameManager gameManager, GameMap gameMap, Pilot pilot, int planetId){
+        this.planetId = planetId;
+        Planet planet = gameMap.getPlanet (planetId);
+        double radius = planet.getRadius ();
+        gotoPlanetTask = new GoToPlanetTask (GO_TO_PLANET, gameManager, gameMap, pilot, this, planetId, radius + 2.0, false);
+        dockPlanetTask = new DockPlanetTask (DOCK_PLANET, gameManager, gameMap, pilot, this, planetId);
+        currentTask = gotoPlanetTask;
+        if (Log.isEnabled (Log.Level.Debug))
+            Log.log (Log.Level.Debug, "Ship " + pilot.shipId + " has goal " + getClass ().getSimpleName() + " planetId " + planetId);
+        logTask();
+    }
+
+    @Override
+    public Move alarm(GameManager gameManager, GameMap gameMap, String issue) {
+        super.alarm(gameManager, gameMap, issue);
+        switch (issue){
+            case Task.ISSUE_NO_TARGET:{
+                Pilot pilot = currentTask.pilot;
+                pilot.setGoal (gameManager, gameManager.getGoal(gameMap, pilot));
+                return pilot.goal.update(gameManager, gameMap);
+            }
+        }
+        currentTask = null;
+        logTask();
+        return null;
+    }
+
+    @Override
+    public Move taskCompleted(GameManager gameManager, GameMap gameMap) {
+        super.taskCompleted(gameManager, gameMap);
+        switch (currentTask.name){
+            case GO_TO_PLANET:{
+                currentTask = dockPlanetTask;
+            } break;
+            case DOCK_PLANET:{
+                currentTask = null;
+            } break;
+        }
+        logTask();
+        return currentTask != null ? currentTask.update(gameManager, gameMap) : null;
+    }
+
+    @Override
+    public int getReservedPlanet() {
+        return planetId;
+    }
+
+    @Override
+    public boolean isFinished(GameMap gameMap) {
+        if (currentTask != gotoPlanetTask)
+            return currentTask == null;
+        Planet planet = gameMap.getPlanet (planetId);
+        return planet == null || planet.isFull () || (planet.isOwned () && planet.getOwner () != gameMap.getMyPlayerId ());
+    }
+}
+
+class GoAttackGoal extends Goal {
+    public static final transient String GO_TO_SHIP = "GoToShip";
+    public int playerId;
+    public int shipId;
+    public boolean kamikaze;
+    public GoToShipTask goToShipTask;
+
+    public GoAttackGoal (GameManager gameManager, GameMap gameMap, Pilot pilot, int playerId, int shipId, boolean kamikaze){
+        this.playerId = playerId;
+        this.shipId = shipId;
+        this.kamikaze = kamikaze;
+        double radius = 0.0f;
+        if (!kamikaze){
+            radius = Constants.SHIP_RADIUS * 4.0;
+        }
+        goToShipTask = new GoToShipTask (GO_TO_SHIP, gameManager, gameMap, pilot, this, radius, playerId, shipId, true);
+        currentTask = goToShipTask;
+        if (Log.isEnabled (Log.Level.Debug))
+            Log.log (Log.Level.Debug, "Ship " + pilot.shipId + " has goal " + getClass ().getSimpleName () + " playerId " + playerId + " shipId " + shipId + " kamikaze " + kamikaze);
+        logTask();
+    }
+
+    @Override
+    public boolean isFinished(GameMap gameMap) {
+        return currentTask == null || gameMap.getShip (shipId) == null;
+    }
+
+    @Override
+    public Move taskCompleted(GameManager gameManager, GameMap gameMap) {
+        super.taskCompleted(gameManager, gameMap);
+        currentTask = null;
+        logTask();
+        return null;
+    }
+
+    @Override
+    public Move alarm(GameManager gameManager, GameMap gameMap, String issue) {
+        super.alarm(gameManager, gameMap, issue);
+        Pilot pilot = goToShipTask.pilot;
+        switch (issue){
+            case GoToTask.ISSUE_NO_TARGET:{
+                pilot.setGoal (gameManager, gameManager.getGoal(gameMap, pilot));
+                return pilot.goal.update(gameManager, gameMap);
+            }
+        }
+        currentTask = null;
+        logTask();
+        return null;
+    }
+}
+
+class DefendPlanetGoal extends Goal {
+    public static final transient String GO_TO_PLANET = "GoToPlanet";
+    public static final transient String PATROL_PLANET = "GoToPlanet";
+    public static final transient String GO_TO_SHIP = "GoToShip";
+    int planetId;
+    int shipId;
+    int playerId;
+    GoToPlanetTask goToPlanetTask;
+    PatrolPlanetTask patrolPlanetTask;
+
+    DefendPlanetGoal (GameManager gameManager, GameMap gameMap, Pilot pilot, int planetId){
+        this.planetId = planetId;
+        Planet planet = gameMap.getPlanet (planetId);
+        double radius = 20.0;
+        // within radius - APPROACH_DISTANCE of an approach point is within radius of the surface
+        if (gameManager.approachPoints && !gameManager.mapAnalysis.getApproachPoints (planetId).isEmpty ())
+            goToPlanetTask = new GoToApproachPointTask(GO_TO_PLANET, gameManager, gameMap, pilot, this, planetId, radius - MapAnalysis.APPROACH_DISTANCE);
+        else
+            goToPlanetTask = new GoToPlanetTask(GO_TO_PLANET, gameManager, gameMap, pilot, this, planetId, planet.getRadius () + radius, false);
+        patrolPlanetTask = new PatrolPlanetTask(PATROL_PLANET, gameManager, gameMap, pilot, this, planetId, radius);
+        currentTask = goToPlanetTask;
+        if (Log.isEnabled (Log.Level.Debug))
+            Log.log (Log.Level.Debug, "Ship " + pilot.shipId + " has goal " + getClass ().getSimpleName () + " planetId " + planetId);
+        logTask();
+    }
+
+    @Override
+    public boolean isFinished(GameMap gameMap) {
+        return currentTask == null || gameMap.getPlanet (planetId) == null;
+    }
+
+    @Override
+    public Move taskCompleted(GameManager gameManager, GameMap gameMap) {
+        super.taskCompleted(gameManager, gameMap);
+        switch (currentTask.name){
+            case GO_TO_PLANET: {
+                currentTask = patrolPlanetTask;
+            } break;
+            default:
+                currentTask = null;
+            break;
+        }
+        logTask();
+        return currentTask != null ? currentTask.update(gameManager, gameMap) : null;
+    }
+
+    @Override
+    public Move alarm(GameManager gameManager, GameMap gameMap, String issue) {
+        super.alarm(gameManager, gameMap, issue);
+        switch (issue){
+            case Task.ISSUE_ENEMY_CLOSE:{
+                ShipInfo shipInfo = gameManager.closestShip (gameMap, currentTask.pilot, false);
+                currentTask = new GoToShipTask (GO_TO_SHIP, gameManager, gameMap, currentTask.pilot, this, Constants.SHIP_RADIUS * 4.0, shipInfo.playerId, shipInfo.shipId, true);
+            } break;
+            case Task.ISSUE_NO_TARGET:{
+                Pilot pilot = currentTask.pilot;
+                pilot.setGoal (gameManager, gameManager.getGoal(gameMap, pilot));
+                return pilot.goal.update(gameManager, gameMap);
+            }
+            default:
+                currentTask = null;
+                break;
+        }
+        logTask();
+        return currentTask != null ? currentTask.update(gameManager, gameMap) : null;
+    }
+}
+
+abstract class Task {
+    public static transient final String ISSUE_NO_TARGET = "NoTarget";
+    public static transient final String ISSUE_ENEMY_CLOSE = "EnemyClose";
+
+    public String name;
+    public Pilot pilot;
+    public Goal goal;
+
+    Task (String name, GameManager gameManager, GameMap gameMap, Pilot pilot, Goal goal){
+        this.name = name;
+        this.pilot = pilot;
+        this.goal = goal;
+    }
+
+    abstract Move update (GameManager gameManager, GameMap gameMap);
+}
+
+abstract class GoToTask extends Task{
+    public double radius;
+    public boolean stayThere;
+
+    GoToTask(String name, GameManager gameManager, GameMap gameMap, Pilot pilot, Goal goal, double radius, boolean stayThere) {
+        super(name, gameManager, gameMap, pilot, goal);
+        this.radius = radius;
+        this.stayThere = stayThere;
+    }
+
+    abstract Position getTarget (GameMap gameMap);
+
+    @Override
+    public Move update (GameManager gameManager, GameMap gameMap){
+        int playerId = gameMap.getMyPlayerId ();
+        Ship ship = gameMap.getShip (playerId, pilot.shipId);
+        Position target = getTarget(gameMap);
+        if (target == null){
+            return goal.alarm(gameManager, gameMap, ISSUE_NO_TARGET);
+        }
+        double distance = ship.getDistanceTo (target);
+        if (distance <= radius){
+            if (stayThere)
+                return null;
+            return goal.taskCompleted(gameManager, gameMap);
+        }
+        int speed = Math.min ((int)(distance - radius + 1.0), Constants.MAX_SPEED);
+        if (distance - (double)speed < radius){
+            speed = (int)Math.ceil ((distance - radius));
+        }
+        return gameManager.navigate (gameMap, ship, target, speed, 90, Math.PI / 180.f * 5.0f);
+    }
+
+    @Override
+    public String toString (){
+        return getClass().getSimpleName () + " radius " + radius + " stayThere " + stayThere;
+    }
+
+}
+
+class GoToPlanetTask extends GoToTask{
+    public int planetId;
+
+    GoToPlanetTask (String name, GameManager gameManager, GameMap gameMap, Pilot pilot, Goal goal, int planetId, double radius, boolean stayThere){
+        super(name, gameManager, gameMap, pilot, goal, radius, stayThere);
+        this.planetId = planetId;
+    }
+
+    @Override
+    Position getTarget(GameMap gameMap) {
+        return gameMap.getPlanet (planetId);
+    }
+
+    @Override
+    public Move update(GameManager gameManager, GameMap gameMap) {
+
+        Planet planet = gameMap.getPlanet (planetId);
+        int myPlayerId = gameMap.getMyPlayerId ();
+        if (planet.isFull () || (planet.isOwned () && planet.getOwner () != myPlayerId)){
+            return goal.alarm(gameManager, gameMap, ISSUE_NO_TARGET);
+        }
+
+        return super.update(gameManager, gameMap);
+    }
+
+    @Override
+    public String toString (){
+        return super.toString() + " planetId " + planetId;
+    }
+}
+
+// heads for the planet's approach point closest to the ship: on its near side, clear of the map
+// edge and of the neighbouring planets
+class GoToApproachPointTask extends GoToPlanetTask{
+    public MapAnalysis mapAnalysis;
+
+    GoToApproachPointTask (String name, GameManager gameManager, GameMap gameMap, Pilot pilot, Goal goal, int planetId, double radius){
+        super(name, gameManager, gameMap, pilot, goal, planetId, radius, false);
+        this.mapAnalysis = gameManager.mapAnalysis;
+    }
+
+    @Override
+    Position getTarget(GameMap gameMap) {
+        if (gameMap.getPlanet (planetId) == null)
+            return null;
+        Ship ship = gameMap.getShip (gameMap.getMyPlayerId (), pilot.shipId);
+        return mapAnalysis.getClosestApproachPoint (planetId, ship.getXPos (), ship.getYPos ());
+    }
+}
+
+class GoToShipTask extends GoToTask {
+    public int playerId;
+    public int shipId;
+
+    GoToShipTask(String name, GameManager gameManager, GameMap gameMap, Pilot pilot, Goal goal, double radius, int playerId, int shipId, boolean stayThere) {
+        super(name, gameManager, gameMap, pilot, goal, radius, stayThere);
+        this.playerId = playerId;
+        this.shipId = shipId;
+    }
+
+    @Override
+    Position getTarget(GameMap gameMap) {
+        return gameMap.getShip (playerId, shipId);
+    }
+
+    @Override
+    public String toString (){
+        return super.toString() + " playerId " + playerId + " shipId " + shipId;
+    }
+}
+
+class DockPlanetTask extends Task {
+    public int planetId;
+    public int numUpdates;
+
+    DockPlanetTask(String name, GameManager gameManager, GameMap gameMap, Pilot pilot, Goal goal, int planetId) {
+        super(name, gameManager, gameMap, pilot, goal);
+        this.planetId = planetId;
+    }
+
+    @Override
+    Move update(GameManager gameManager, GameMap gameMap) {
+        int playerId = gameMap.getMyPlayerId ();
+        Ship ship = gameMap.getShip (playerId, pilot.shipId);
+        Planet planet = gameMap.getPlanet (planetId);
+        if (planet.isFull () || (planet.isOwned () && planet.getOwner () != playerId)){
+            goal.alarm(gameManager, gameMap, ISSUE_NO_TARGET);
+        }
+        numUpdates ++;
+        if (numUpdates > 5){
+            return goal.taskCompleted(gameManager, gameMap);
+        }
+        return new DockMove (ship, planet);
+    }
+
+    @Override
+    public String toString (){
+        return getClass().getSimpleName () + " planetId " + planetId;
+    }
+
+}
+
+class PatrolPlanetTask extends Task {
+    int planetId;
+    double radius;
+    int dir = 10;
+
+    PatrolPlanetTask(String name, GameManager gameManager, GameMap gameMap, Pilot pilot, Goal goal, int planetId, double radius) {
+        super(name, gameManager, gameMap, pilot, goal);
+        this.planetId = planetId;
+        this.radius = radius;
+    }
+
+    @Override
+    Move update(GameManager gameManager, GameMap gameMap) {
+        Planet planet = gameMap.getPlanet (planetId);
+        if (null == planet){
+            return goal.alarm(gameManager, gameMap, ISSUE_NO_TARGET);
+        }
+
+        int playerId = gameMap.getMyPlayerId ();
+        Ship ship = gameMap.getShip (playerId, pilot.shipId);
+        ShipInfo shipInfo = gameManager.closestShip (gameMap, pilot, false);
+        if (shipInfo.shipId != -1){
+            Ship enemy = gameMap.getShip (shipInfo.playerId, shipInfo.shipId);
+            double distance = enemy.getDistanceTo (ship);
+            if (distance < 40.0){
+                return goal.alarm(gameManager, gameMap, ISSUE_ENEMY_CLOSE);
+            }
+        }
+
+        int speed = 3;
+        double width = (double)gameMap.getWidth ();
+        double height = (double)gameMap.getHeight ();
+        int angle = planet.orientTowardsInDeg (ship) + dir;
+        double x = planet.getXPos () + Geometry.cosDeg (angle) * radius;
+        double y = planet.getYPos () + Geometry.sinDeg (angle) * radius;
+        double pading = 4.0;
+        if ((x < pading) || (y < pading) || (x >= width - pading) || (y >= height - pading)){
+            dir = -dir;
+            angle = planet.orientTowardsInDeg (ship) + dir;
+            x = planet.getXPos () + Geometry.cosDeg (angle) * radius;
+            y = planet.getYPos () + Geometry.sinDeg (angle) * radius;
+        }
+
+        Position target = new Position (x, y);
+
+        return gameManager.navigate (gameMap, ship, target, speed, 90, Math.PI / 180.f * 5.0f);
+    }
+
+    @Override
+    public String toString (){
+        return getClass().getSimpleName () + " planetId " + planetId;
+    }
+}
+
+// where a pilot wants to go, recorded by GameManager.navigate () and solved on any thread
+class NavigationRequest {
+    final Ship ship;
+    final Position target;
+    final int speed;
+    // already limited by the turn budget when the request was recorded
+    final int maxCorrections;
+    final double angularStepRad;
+    ThrustMove move;
+
+    NavigationRequest (Ship ship, Position target, int speed, int maxCorrections, double angularStepRad){
+        this.ship = ship;
+        this.target = target;
+        this.speed = speed;
+        this.maxCorrections = maxCorrections;
+        this.angularStepRad = angularStepRad;
+    }
+
+    void solve (GameMap gameMap, Navigation.Mode mode){
+        NavigationResult result = new NavigationResult ();
+        Navigation.navigateShipTowardsTargetUnbudgeted (gameMap, ship, target, speed, true, maxCorrections, angularStepRad, mode, result);
+        move = result.toThrustMove (ship);
+    }
+}
+
+// stands in for the thrust move of navigationRequests[index] until it is solved
+class PendingThrustMove extends Move {
+    final int index;
+
+    PendingThrustMove (Ship ship, int index){
+        super (MoveType.Thrust, ship);
+        this.index = index;
+    }
+}
+
+class Pilot {
+    public int shipId;
+    public Goal goal;
+    public Move lastMove;
+
+    public Pilot (int shipId){
+        this.shipId = shipId;
+    }
+
+    public void setGoal (GameManager gameManager, Goal goal){
+        this.goal = goal;
+        gameManager.reservations.reserve (shipId, goal.getReservedPlanet ());
+    }
+
+    public Ship getShip (GameMap gameMap){
+        Player myPlayer = gameMap.getMyPlayer ();
+        return myPlayer.getShip (shipId);
+    }
+
+    public void die (GameManager gameManager, GameMap gameMap){
+        if (Log.isEnabled (Log.Level.Debug))
+            Log.log (Log.Level.Debug, "Destructing pilot for ship " + shipId);
+        gameManager.reservations.release (shipId);
+    }
+
+    // no goal yet, or an undocked ship whose goal is over
+    public boolean needsGoal (GameMap gameMap){
+        if (goal == null)
+            return true;
+        return getShip (gameMap).getDockingStatus () == Ship.DockingStatus.Undocked && goal.isFinished (gameMap);
+    }
+
+    public Move update (GameManager gameManager, GameMap gameMap){
+        return goal != null ? goal.update(gameManager, gameMap) : null;
+    }
+
+    public Move repeatLastMove (GameMap gameMap){
+        Ship ship = getShip (gameMap);
+        if (!(lastMove instanceof ThrustMove) || ship.getDockingStatus () != Ship.DockingStatus.Undocked)
+            return null;
+        ThrustMove thrustMove = (ThrustMove)lastMove;
+        return new ThrustMove (ship, thrustMove.getAngle (), thrustMove.getThrust ());
+    }
+}
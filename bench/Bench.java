@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * Minimal benchmark harness for the starter kit, which has no build tool to pull in JMH.
+ *
+ * Each benchmark is warmed up, then run for a fixed number of timed iterations. Throughput is
+ * reported as ops/s together with the bytes allocated per op and the allocation rate of the
+ * benchmark thread. Results are also appended to the CSV file named by -Dbench.csv, if any.
+ *
+ * Build and run everything from the repository root with ./run_bench.sh.
+ */
+final class Bench {
+
+    interface Op {
+        /** Run one op and return something derived from its result so it cannot be optimised away. */
+        long run();
+    }
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final long WARMUP_NANOS = Long.getLong("bench.warmupMs", 1000) * 1_000_000L;
+    private static final long ITERATION_NANOS = Long.getLong("bench.iterationMs", 500) * 1_000_000L;
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final String CSV_PATH = System.getProperty("bench.csv");
+
+    static volatile long sink;
+
+    private Bench() {
+    }
+
+    static void header() {
+        System.out.println(String.format(Locale.ROOT, "%-64s %14s %12s %12s %10s", "benchmark", "ops/s", "ns/op", "B/op", "MB/s"));
+    }
+
+    static Result run(final String name, final Op op) {
+        runFor(op, WARMUP_NANOS);
+
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            final long allocatedBefore = ALLOCATION_BEAN.getCurrentThreadAllocatedBytes();
+            final long start = System.nanoTime();
+            ops += runFor(op, ITERATION_NANOS);
+            nanos += System.nanoTime() - start;
+            bytes += ALLOCATION_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+
+        final Result result = new Result(name, ops * 1e9 / nanos, (double) nanos / ops, (double) bytes / ops);
+        System.out.println(result);
+        if (CSV_PATH != null) {
+            appendCsv(result);
+        }
+        return result;
+    }
+
+    private static void appendCsv(final Result result) {
+        final Path path = Paths.get(CSV_PATH);
+        try {
+            if (!Files.exists(path)) {
+                Files.write(path, Collections.singletonList("benchmark,ops_per_s,ns_per_op,bytes_per_op,alloc_mb_per_s"));
+            }
+            Files.write(path, Collections.singletonList(result.toCsv()), StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long runFor(final Op op, final long durationNanos) {
+        final long deadline = System.nanoTime() + durationNanos;
+        long ops = 0;
+        long accumulator = 0;
+        do {
+            // Check the clock in batches so timing does not dominate very short ops.
+            for (int i = 0; i < 16; ++i) {
+                accumulator += op.run();
+            }
+            ops += 16;
+        } while (System.nanoTime() < deadline);
+        sink = accumulator;
+        return ops;
+    }
+
+    static final class Result {
+        final String name;
+        final double opsPerSecond;
+        final double nanosPerOp;
+        final double bytesPerOp;
+
+        Result(final String name, final double opsPerSecond, final double nanosPerOp, final double bytesPerOp) {
+            this.name = name;
+            this.opsPerSecond = opsPerSecond;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-64s %14.1f %12.1f %12.1f %10.1f",
+                                 name, opsPerSecond, nanosPerOp, bytesPerOp, allocationRate());
+        }
+
+        /** Allocation rate of the benchmark thread while running this benchmark, in MB/s. */
+        double allocationRate() {
+            return bytesPerOp * opsPerSecond / 1e6;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "\"%s\",%.1f,%.1f,%.1f,%.1f",
+                                 name.replace("\"", "\"\""), opsPerSecond, nanosPerOp, bytesPerOp, allocationRate());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import hlt.EntityStore;
+import hlt.GameMap;
+import hlt.Metadata;
+import hlt.Planet;
+import hlt.Player;
+import hlt.Ship;
+import hlt.SyntheticStates;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares id lookups and field scans through the TreeMap-based collections
+ * (Player.getShips(), GameMap.getAllPlanets(), Planet.getDockedShips())
+ * with the primitive EntityStore / IntObjectMap paths, at 600 and 1000 ships.
+ */
+public class EntityStoreBenchmark {
+
+    public static void main(final String[] args) {
+        Bench.header();
+        run(4, 150);
+        run(2, 500);
+    }
+
+    private static void run(final int numberOfPlayers, final int shipsPerPlayer) {
+        final int numberOfShips = numberOfPlayers * shipsPerPlayer;
+        final String line = SyntheticStates.turnLine(42, 384, 256, numberOfPlayers, shipsPerPlayer, 28, 4);
+        final GameMap gameMap = new GameMap(384, 256, 0);
+        gameMap.setIncrementalUpdates(true);
+        gameMap.updateMap(new Metadata(line));
+
+        final Player player = gameMap.getMyPlayer();
+        final Map<Integer, Ship> shipsTree = player.getShips();
+        final int[] ids = new int[shipsTree.size()];
+        int n = 0;
+        for (final int id : shipsTree.keySet()) {
+            ids[n++] = id;
+        }
+        final String suffix = " [" + numberOfShips + " ships]";
+
+        Bench.run("lookup ship by id, TreeMap" + suffix, () -> {
+            long sum = 0;
+            for (final int id : ids) {
+                sum += shipsTree.get(id).getHealth();
+            }
+            return sum;
+        });
+        Bench.run("lookup ship by id, IntObjectMap" + suffix, () -> {
+            long sum = 0;
+            for (final int id : ids) {
+                sum += player.getShip(id).getHealth();
+            }
+            return sum;
+        });
+
+        final List<Ship> allShips = gameMap.getAllShips();
+        final EntityStore shipStore = gameMap.getShipStore();
+        Bench.run("scan x/y of all ships, Ship list" + suffix, () -> {
+            double sum = 0;
+            for (int i = 0; i < allShips.size(); ++i) {
+                final Ship ship = allShips.get(i);
+                sum += ship.getXPos() + ship.getYPos();
+            }
+            return (long) sum;
+        });
+        Bench.run("scan x/y of all ships, EntityStore slots" + suffix, () -> {
+            double sum = 0;
+            for (int slot = 0; slot < shipStore.getSlotCount(); ++slot) {
+                sum += shipStore.getXPos(slot) + shipStore.getYPos(slot);
+            }
+            return (long) sum;
+        });
+
+        final Map<Integer, Planet> planetsTree = gameMap.getAllPlanets();
+        Bench.run("docked-by-me check per planet, TreeMap + List" + suffix, () -> {
+            long count = 0;
+            for (final Planet planet : planetsTree.values()) {
+                final List<Integer> docked = planet.getDockedShips();
+                if (docked.size() > 0 && shipsTree.containsKey(docked.get(0))) {
+                    ++count;
+                }
+            }
+            return count;
+        });
+        Bench.run("docked-by-me check per planet, primitive ids" + suffix, () -> {
+            long count = 0;
+            for (final Planet planet : planetsTree.values()) {
+                if (planet.getDockedShipCount() > 0 && player.hasShip(planet.getDockedShipId(0))) {
+                    ++count;
+                }
+            }
+            return count;
+        });
+    }
+}
@@ -0,0 +1,280 @@
+import hlt.Collision;
+import hlt.Constants;
+import hlt.Entity;
+import hlt.GameMap;
+import hlt.Geometry;
+import hlt.Metadata;
+import hlt.Position;
+import hlt.SyntheticStates;
+import hlt.ThrustMove;
+import hlt.Vec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks Geometry and Vec against the Position methods they stand in for, then times both.
+ *
+ *   sin/cos tables           must be bit-identical to Math over every whole degree, including
+ *                            negative and wrapped ones
+ *   ThrustMove displacements must be bit-identical to Math for all 360 x 8 engine moves
+ *   Geometry.closestPoint    must be bit-identical to Position.getClosestPoint()
+ *   Vec.distanceTo           must be bit-identical to Position.getDistanceTo()
+ *   squared comparisons      isWithin() against getDistanceTo() <= range, and ordering two
+ *                            distances by square against ordering them by getDistanceTo(); these
+ *                            may only disagree when the two sides are within 1e-9 of each other
+ *   segmentCirclesIntersect  the batch kernel must match the scalar segmentCircleIntersect() for
+ *                            every circle, with every third circle placed within 1e-13 of tangent
+ *                            to the segment, where the kernel's squared comparison hands over to
+ *                            the scalar test, and with some zero-length segments
+ *
+ * Exits with status 1 on any failure, so it can gate a change.
+ */
+public class GeometryAccuracy {
+
+    private static final int SAMPLES = 2_000_000;
+    private static final double TIE_TOLERANCE = 1e-9;
+
+    private static int failures;
+
+    public static void main(final String[] args) {
+        checkTables();
+        checkPositions();
+        checkBatchCollision();
+        if (failures > 0) {
+            System.out.println(failures + " accuracy checks FAILED");
+            System.exit(1);
+        }
+        System.out.println("all accuracy checks passed");
+
+        Bench.header();
+        time();
+    }
+
+    private static void checkTables() {
+        int mismatches = 0;
+        for (int deg = -720; deg < 720; ++deg) {
+            final int normalized = ((deg % 360) + 360) % 360;
+            final double rad = Math.toRadians(normalized);
+            if (Geometry.cosDeg(deg) != Math.cos(rad) || Geometry.sinDeg(deg) != Math.sin(rad)) {
+                ++mismatches;
+            }
+        }
+        report("sin/cos tables, 1440 degrees", mismatches, 0);
+
+        int moveMismatches = 0;
+        for (int angleDeg = 0; angleDeg < ThrustMove.ANGLE_COUNT; ++angleDeg) {
+            final double rad = Math.toRadians(angleDeg);
+            for (int thrust = 0; thrust < ThrustMove.THRUST_COUNT; ++thrust) {
+                if (ThrustMove.getDeltaX(angleDeg, thrust) != Math.cos(rad) * thrust
+                        || ThrustMove.getDeltaY(angleDeg, thrust) != Math.sin(rad) * thrust) {
+                    ++moveMismatches;
+                }
+            }
+        }
+        report("ThrustMove displacement table", moveMismatches, 0);
+
+        double maxRotationError = 0.0;
+        final Random random = new Random(3);
+        final Vec vec = new Vec();
+        for (int i = 0; i < SAMPLES / 10; ++i) {
+            final double x = random.nextDouble() * 20 - 10;
+            final double y = random.nextDouble() * 20 - 10;
+            final int deg = random.nextInt(720) - 360;
+            vec.set(x, y).rotateDeg(deg);
+            final double rad = Math.toRadians(deg);
+            final double expectedX = x * Math.cos(rad) - y * Math.sin(rad);
+            final double expectedY = x * Math.sin(rad) + y * Math.cos(rad);
+            maxRotationError = Math.max(maxRotationError, Math.hypot(vec.x - expectedX, vec.y - expectedY));
+        }
+        System.out.println(String.format(Locale.ROOT, "%-44s max error %.3g", "Vec.rotateDeg vs Math", maxRotationError));
+        if (maxRotationError > 1e-12) {
+            ++failures;
+        }
+    }
+
+    /**
+     * @return the ships and then the planets of a synthetic 4 player state, as circles to measure against
+     */
+    private static List<Entity> circles() {
+        final GameMap gameMap = new GameMap(384, 256, 0);
+        gameMap.updateMap(new Metadata(SyntheticStates.turnLine(13, 384, 256, 4, 100, 200, 0)));
+        final List<Entity> circles = new ArrayList<>(gameMap.getAllShips());
+        circles.addAll(gameMap.getAllPlanets().values());
+        return circles;
+    }
+
+    private static void checkPositions() {
+        final Random random = new Random(7);
+        final List<Entity> circles = circles();
+        final Vec vec = new Vec();
+        int closestMismatches = 0;
+        int distanceMismatches = 0;
+        int withinDisagreements = 0;
+        int withinUnexplained = 0;
+        int orderDisagreements = 0;
+        int orderUnexplained = 0;
+        for (int i = 0; i < SAMPLES; ++i) {
+            final Position a = new Position(random.nextDouble() * 384, random.nextDouble() * 256);
+            final Position b = new Position(random.nextDouble() * 384, random.nextDouble() * 256);
+            final Entity target = circles.get(i % circles.size());
+
+            final Position closest = a.getClosestPoint(target);
+            Geometry.closestPoint(a, target, vec);
+            if (vec.x != closest.getXPos() || vec.y != closest.getYPos()) {
+                ++closestMismatches;
+            }
+            if (vec.set(a).distanceTo(b) != a.getDistanceTo(b)) {
+                ++distanceMismatches;
+            }
+
+            // Every fourth range sits on the distance itself, where rounding decides.
+            final double distance = a.getDistanceTo(b);
+            final double range = i % 4 == 0 ? distance : random.nextDouble() * 400;
+            if (Geometry.isWithin(a, b, range) != (distance <= range)) {
+                ++withinDisagreements;
+                if (Math.abs(distance - range) > TIE_TOLERANCE) {
+                    ++withinUnexplained;
+                }
+            }
+
+            final double other = a.getDistanceTo(target);
+            final boolean closerBySquare = a.getDistanceSquaredTo(b) < a.getDistanceSquaredTo(target);
+            if (closerBySquare != (distance < other)) {
+                ++orderDisagreements;
+                if (Math.abs(distance - other) > TIE_TOLERANCE) {
+                    ++orderUnexplained;
+                }
+            }
+        }
+        report("Geometry.closestPoint vs getClosestPoint", closestMismatches, 0);
+        report("Vec.distanceTo vs getDistanceTo", distanceMismatches, 0);
+        System.out.println(String.format(Locale.ROOT, "%-44s %d of %d disagree, all at ties: %s",
+                "isWithin vs getDistanceTo <= range", withinDisagreements, SAMPLES, withinUnexplained == 0));
+        System.out.println(String.format(Locale.ROOT, "%-44s %d of %d disagree, all at ties: %s",
+                "squared vs getDistanceTo ordering", orderDisagreements, SAMPLES, orderUnexplained == 0));
+        if (withinUnexplained > 0 || orderUnexplained > 0) {
+            ++failures;
+        }
+    }
+
+    private static void checkBatchCollision() {
+        final Random random = new Random(5);
+        final int count = 64;
+        final double fudge = Constants.FORECAST_FUDGE_FACTOR;
+        final double[] centerX = new double[count];
+        final double[] centerY = new double[count];
+        final double[] radius = new double[count];
+        final double[] closestSquared = new double[count];
+        final boolean[] hits = new boolean[count];
+        int mismatches = 0;
+        for (int i = 0; i < SAMPLES / 20; ++i) {
+            final double startX = random.nextDouble() * 384;
+            final double startY = random.nextDouble() * 256;
+            final double angle = random.nextDouble() * 2 * Math.PI;
+            final double length = i % 50 == 0 ? 0.0 : random.nextDouble() * Constants.MAX_SPEED;
+            final double endX = startX + Math.cos(angle) * length;
+            final double endY = startY + Math.sin(angle) * length;
+            for (int j = 0; j < count; ++j) {
+                radius[j] = j % 4 == 0 ? 3 + random.nextDouble() * 10 : Constants.SHIP_RADIUS;
+                if (j % 3 == 0) {
+                    // Perpendicular to a point on the segment, at the limit distance give or take an ulp or so.
+                    final double t = random.nextDouble();
+                    final double limit = radius[j] + fudge + (random.nextInt(3) - 1) * 1e-13;
+                    centerX[j] = startX + (endX - startX) * t - Math.sin(angle) * limit;
+                    centerY[j] = startY + (endY - startY) * t + Math.cos(angle) * limit;
+                } else {
+                    centerX[j] = startX + random.nextDouble() * 30 - 15;
+                    centerY[j] = startY + random.nextDouble() * 30 - 15;
+                }
+            }
+            final int hitCount = Collision.segmentCirclesIntersect(startX, startY, endX, endY,
+                    centerX, centerY, radius, count, fudge, closestSquared, hits);
+            int expectedHits = 0;
+            for (int j = 0; j < count; ++j) {
+                final boolean expected = Collision.segmentCircleIntersect(startX, startY, endX, endY,
+                        centerX[j], centerY[j], radius[j], fudge);
+                if (hits[j] != expected) {
+                    ++mismatches;
+                }
+                expectedHits += expected ? 1 : 0;
+            }
+            if (hitCount != expectedHits) {
+                ++mismatches;
+            }
+        }
+        report("segmentCirclesIntersect vs scalar", mismatches, 0);
+    }
+
+    private static void report(final String name, final int mismatches, final int allowed) {
+        System.out.println(String.format(Locale.ROOT, "%-44s %d mismatches", name, mismatches));
+        if (mismatches > allowed) {
+            ++failures;
+        }
+    }
+
+    private static void time() {
+        final Random random = new Random(11);
+        final int count = 1024;
+        final Position[] points = new Position[count];
+        final int[] degrees = new int[count];
+        for (int i = 0; i < count; ++i) {
+            points[i] = new Position(random.nextDouble() * 384, random.nextDouble() * 256);
+            degrees[i] = random.nextInt(360);
+        }
+        final Position from = new Position(192, 128);
+
+        Bench.run("Math.cos/sin(toRadians(deg)) x" + count, () -> {
+            double sum = 0.0;
+            for (int i = 0; i < count; ++i) {
+                final double rad = Math.toRadians(degrees[i]);
+                sum += Math.cos(rad) + Math.sin(rad);
+            }
+            return (long) sum;
+        });
+        Bench.run("Geometry.cosDeg/sinDeg x" + count, () -> {
+            double sum = 0.0;
+            for (int i = 0; i < count; ++i) {
+                sum += Geometry.cosDeg(degrees[i]) + Geometry.sinDeg(degrees[i]);
+            }
+            return (long) sum;
+        });
+        Bench.run("Position.getDistanceTo <= 50 x" + count, () -> {
+            long within = 0;
+            for (int i = 0; i < count; ++i) {
+                if (from.getDistanceTo(points[i]) <= 50.0) {
+                    ++within;
+                }
+            }
+            return within;
+        });
+        Bench.run("Geometry.isWithin 50 x" + count, () -> {
+            long within = 0;
+            for (int i = 0; i < count; ++i) {
+                if (Geometry.isWithin(from, points[i], 50.0)) {
+                    ++within;
+                }
+            }
+            return within;
+        });
+        final List<Entity> circles = circles();
+        final Entity planet = circles.get(circles.size() - 1);
+        Bench.run("Position.getClosestPoint x" + count, () -> {
+            double sum = 0.0;
+            for (int i = 0; i < count; ++i) {
+                sum += points[i].getClosestPoint(planet).getXPos();
+            }
+            return (long) sum;
+        });
+        final Vec vec = new Vec();
+        Bench.run("Geometry.closestPoint into a Vec x" + count, () -> {
+            double sum = 0.0;
+            for (int i = 0; i < count; ++i) {
+                sum += Geometry.closestPoint(points[i], planet, vec).x;
+            }
+            return (long) sum;
+        });
+    }
+}
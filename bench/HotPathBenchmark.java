@@ -0,0 +1,196 @@
+import hlt.Collision;
+import hlt.Constants;
+import hlt.Entity;
+import hlt.GameMap;
+import hlt.Metadata;
+import hlt.MinCostAssignment;
+import hlt.Move;
+import hlt.MoveResolver;
+import hlt.Navigation;
+import hlt.NavigationResult;
+import hlt.NearestQueries;
+import hlt.Planet;
+import hlt.Position;
+import hlt.Ship;
+import hlt.SyntheticStates;
+import hlt.ThrustMove;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput and allocation of the per-turn hot paths on synthetic 2 and 4 player states
+ * from 50 to 1000 ships, plus the busiest turn of a recorded game when -Dbench.recorded is set.
+ *
+ *   GameMap.updateMap                     one op parses a whole turn line
+ *   Collision.segmentCircleIntersect      one op tests a 7-unit move against every entity
+ *   Collision.segmentCirclesIntersect     the same with the batch kernel on packed arrays
+ *   Navigation.navigateShipTowardsTarget  one op navigates one ship, cycling through my ships,
+ *                                         once returning a ThrustMove and once into a reused result
+ *   MoveResolver.resolve                  one op resolves the moves of all my ships
+ *   MinCostAssignment.solve               one op assigns all my ships to the docking spots of every
+ *                                         planet and to every enemy ship, by distance
+ *   closest enemy ship                    one op finds it for one of my ships, by sorting every
+ *                                         entity as GameMap.nearbyEntitiesByDistance() does, and
+ *                                         through NearestQueries with the memo cleared each time
+ */
+public class HotPathBenchmark {
+
+    private static final int[] PLAYERS = { 2, 4 };
+    private static final int[] TOTAL_SHIPS = { 50, 200, 500, 1000 };
+
+    public static void main(final String[] args) throws IOException {
+        Bench.header();
+        for (final int players : PLAYERS) {
+            for (final int totalShips : TOTAL_SHIPS) {
+                final String line = SyntheticStates.turnLine(7, 384, 256, players, totalShips / players, 24, 5);
+                run(players + "p/" + totalShips + " ships", 384, 256, 0, line);
+            }
+        }
+
+        final String recorded = System.getProperty("bench.recorded");
+        if (recorded != null) {
+            final RecordedStates states = RecordedStates.load(recorded);
+            run("recorded", states.width, states.height, states.myId, states.busiestTurn());
+        }
+    }
+
+    private static void run(final String label, final int width, final int height, final int myId, final String line) {
+        final String suffix = " [" + label + "]";
+        final byte[] lineBytes = line.getBytes(StandardCharsets.ISO_8859_1);
+        final Metadata metadata = new Metadata();
+
+        final GameMap gameMap = new GameMap(width, height, myId);
+        gameMap.setIncrementalUpdates(true);
+        metadata.append(lineBytes, 0, lineBytes.length);
+        gameMap.updateMap(metadata);
+
+        Bench.run("GameMap.updateMap" + suffix, () -> {
+            metadata.clear();
+            metadata.append(lineBytes, 0, lineBytes.length);
+            gameMap.updateMap(metadata);
+            return gameMap.getAllShips().size();
+        });
+
+        final Random random = new Random(11);
+        final List<Entity> entities = new ArrayList<>(gameMap.getAllPlanets().values());
+        entities.addAll(gameMap.getAllShips());
+        final List<Ship> myShips = new ArrayList<>(gameMap.getMyPlayer().getShips().values());
+        final Position[] segmentEnds = new Position[myShips.size()];
+        final Position[] targets = new Position[myShips.size()];
+        for (int i = 0; i < myShips.size(); ++i) {
+            final Ship ship = myShips.get(i);
+            final double angle = random.nextDouble() * 2 * Math.PI;
+            segmentEnds[i] = new Position(ship.getXPos() + Math.cos(angle) * Constants.MAX_SPEED,
+                                          ship.getYPos() + Math.sin(angle) * Constants.MAX_SPEED);
+            targets[i] = new Position(random.nextDouble() * width, random.nextDouble() * height);
+        }
+
+        final int[] next = { 0 };
+        Bench.run("Collision.segmentCircleIntersect x" + entities.size() + suffix, () -> {
+            final int i = next[0]++ % myShips.size();
+            final Ship ship = myShips.get(i);
+            long hits = 0;
+            for (int j = 0; j < entities.size(); ++j) {
+                if (Collision.segmentCircleIntersect(ship, segmentEnds[i], entities.get(j), Constants.FORECAST_FUDGE_FACTOR)) {
+                    ++hits;
+                }
+            }
+            return hits;
+        });
+
+        final double[] centerX = new double[entities.size()];
+        final double[] centerY = new double[entities.size()];
+        final double[] radius = new double[entities.size()];
+        for (int j = 0; j < entities.size(); ++j) {
+            centerX[j] = entities.get(j).getXPos();
+            centerY[j] = entities.get(j).getYPos();
+            radius[j] = entities.get(j).getRadius();
+        }
+        final double[] closestSquared = new double[entities.size()];
+        final boolean[] hits = new boolean[entities.size()];
+        Bench.run("Collision.segmentCirclesIntersect x" + entities.size() + suffix, () -> {
+            final int i = next[0]++ % myShips.size();
+            final Ship ship = myShips.get(i);
+            return Collision.segmentCirclesIntersect(ship.getXPos(), ship.getYPos(),
+                    segmentEnds[i].getXPos(), segmentEnds[i].getYPos(), centerX, centerY, radius, entities.size(),
+                    Constants.FORECAST_FUDGE_FACTOR, closestSquared, hits);
+        });
+
+        Bench.run("Navigation.navigateShipTowardsTarget" + suffix, () -> {
+            final int i = next[0]++ % myShips.size();
+            final ThrustMove move = Navigation.navigateShipTowardsTarget(gameMap, myShips.get(i), targets[i],
+                    Constants.MAX_SPEED, true, Constants.MAX_NAVIGATION_CORRECTIONS, Math.PI / 180.0);
+            return move == null ? 0 : move.getAngle();
+        });
+
+        final NavigationResult result = new NavigationResult();
+        Bench.run("Navigation.navigateShipTowardsTarget (result)" + suffix, () -> {
+            final int i = next[0]++ % myShips.size();
+            Navigation.navigateShipTowardsTarget(gameMap, myShips.get(i), targets[i],
+                    Constants.MAX_SPEED, true, Constants.MAX_NAVIGATION_CORRECTIONS, Math.PI / 180.0, result);
+            return result.isFound() ? result.getAngle() : 0;
+        });
+
+        Bench.run("GameMap.nearbyEntitiesByDistance (closest enemy)" + suffix, () -> {
+            final Ship ship = myShips.get(next[0]++ % myShips.size());
+            for (final Entity entity : gameMap.nearbyEntitiesByDistance(ship).values()) {
+                if (entity instanceof Ship && entity.getOwner() != myId) {
+                    return entity.getId();
+                }
+            }
+            return -1;
+        });
+
+        final NearestQueries.Filter enemyShips = NearestQueries.Filter.SHIPS.owner(NearestQueries.Owner.Enemy);
+        final NearestQueries nearestQueries = gameMap.getNearestQueries();
+        Bench.run("NearestQueries.nearest (closest enemy)" + suffix, () -> {
+            final Ship ship = myShips.get(next[0]++ % myShips.size());
+            nearestQueries.invalidate();
+            final Entity enemy = nearestQueries.nearest(ship, enemyShips);
+            return enemy == null ? -1 : enemy.getId();
+        });
+
+        final List<Move> template = new ArrayList<>();
+        for (final Ship ship : myShips) {
+            template.add(new ThrustMove(ship, random.nextInt(360), Constants.MAX_SPEED));
+        }
+        final List<Move> moves = new ArrayList<>(template.size());
+        final MoveResolver resolver = new MoveResolver();
+        Bench.run("MoveResolver.resolve x" + template.size() + suffix, () -> {
+            moves.clear();
+            for (int i = 0; i < template.size(); ++i) {
+                moves.add(template.get(i));
+            }
+            resolver.resolve(gameMap, moves);
+            return moves.size();
+        });
+
+        final List<Entity> assignTargets = new ArrayList<>(gameMap.getAllPlanets().values());
+        for (final Ship ship : gameMap.getAllShips()) {
+            if (ship.getOwner() != myId) {
+                assignTargets.add(ship);
+            }
+        }
+        final MinCostAssignment assignment = new MinCostAssignment();
+        Bench.run("MinCostAssignment.solve " + myShips.size() + "x" + assignTargets.size() + suffix, () -> {
+            assignment.reset(myShips.size(), assignTargets.size(), width + height);
+            for (int t = 0; t < assignTargets.size(); ++t) {
+                final Entity target = assignTargets.get(t);
+                if (target instanceof Planet) {
+                    assignment.setCapacity(t, ((Planet) target).getDockingSpots());
+                }
+            }
+            for (int i = 0; i < myShips.size(); ++i) {
+                for (int t = 0; t < assignTargets.size(); ++t) {
+                    assignment.setCost(i, t, myShips.get(i).getDistanceTo(assignTargets.get(t)));
+                }
+            }
+            assignment.solve(Long.MAX_VALUE);
+            return assignment.getTarget(0);
+        });
+    }
+}
@@ -0,0 +1,199 @@
+import hlt.Collision;
+import hlt.Constants;
+import hlt.Entity;
+import hlt.GameMap;
+import hlt.Metadata;
+import hlt.Navigation;
+import hlt.NavigationResult;
+import hlt.Planet;
+import hlt.Position;
+import hlt.Ship;
+import hlt.SyntheticStates;
+import hlt.ThrustMove;
+import hlt.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks the navigation modes against plain reference implementations on seeded synthetic 2 and
+ * 4 player states, for every ship of mine towards a random point, the closest point of a random
+ * planet and a random planet itself, with several step sizes and correction limits.
+ *
+ *   Linear     both the ThrustMove and the NavigationResult form must return the move of the
+ *              original recursive implementation, kept below, with and without avoiding obstacles
+ *   Analytic   must pick the step the reference picks by testing the steps one at a time,
+ *              closest to the direct heading first and counter-clockwise first at equal distance,
+ *              each against every entity with the scalar Collision.segmentCircleIntersect()
+ *
+ * Exits with status 1 on any failure, so it can gate a change.
+ */
+public class NavigationAccuracy {
+
+    private static final int[] PLAYERS = { 2, 4 };
+    private static final int[] TOTAL_SHIPS = { 200, 1000 };
+    private static final double[] STEPS_DEG = { 1.0, 5.0 };
+    private static final int[] MAX_CORRECTIONS = { 10, Constants.MAX_NAVIGATION_CORRECTIONS };
+
+    private static int failures;
+    private static long turned;
+
+    public static void main(final String[] args) {
+        final Random random = new Random(3);
+        long calls = 0;
+        int linearMismatches = 0;
+        int analyticMismatches = 0;
+        for (final int players : PLAYERS) {
+            for (final int totalShips : TOTAL_SHIPS) {
+                final GameMap gameMap = new GameMap(384, 256, 0);
+                gameMap.updateMap(new Metadata(SyntheticStates.turnLine(players * 31 + totalShips, 384, 256,
+                        players, totalShips / players, 24, 5)));
+                final List<Entity> entities = new ArrayList<>(gameMap.getAllPlanets().values());
+                entities.addAll(gameMap.getAllShips());
+                final List<Planet> planets = new ArrayList<>(gameMap.getAllPlanets().values());
+
+                final NavigationResult result = new NavigationResult();
+                for (final Ship ship : gameMap.getMyPlayer().getShips().values()) {
+                    for (final Position target : targets(ship, planets, random)) {
+                        for (final double stepDeg : STEPS_DEG) {
+                            for (final int maxCorrections : MAX_CORRECTIONS) {
+                                final double stepRad = Math.toRadians(stepDeg);
+                                ++calls;
+                                for (final boolean avoidObstacles : new boolean[] { true, false }) {
+                                    final ThrustMove expected = navigateRecursively(gameMap, ship, target,
+                                            Constants.MAX_SPEED, avoidObstacles, maxCorrections, stepRad);
+                                    final ThrustMove move = Navigation.navigateShipTowardsTarget(gameMap, ship, target,
+                                            Constants.MAX_SPEED, avoidObstacles, maxCorrections, stepRad);
+                                    Navigation.navigateShipTowardsTarget(gameMap, ship, target, Constants.MAX_SPEED,
+                                            avoidObstacles, maxCorrections, stepRad, result);
+                                    if (!sameMove(move, expected) || !sameMove(result, toMove(expected))) {
+                                        ++linearMismatches;
+                                    }
+                                }
+                                Navigation.navigateShipTowardsTarget(gameMap, ship, target, Constants.MAX_SPEED, true,
+                                        maxCorrections, stepRad, Navigation.Mode.Analytic, result);
+                                if (!sameMove(result, closestFreeStep(entities, ship, target, stepRad, maxCorrections))) {
+                                    ++analyticMismatches;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        report("Linear vs the recursive implementation", calls, linearMismatches);
+        report("Analytic vs step-by-step scalar tests", calls, analyticMismatches);
+        System.out.println(String.format(Locale.ROOT, "%-44s %d", "  of which had to turn", turned));
+
+        if (failures > 0) {
+            System.out.println(failures + " accuracy checks FAILED");
+            System.exit(1);
+        }
+        System.out.println("all accuracy checks passed");
+    }
+
+    private static List<Position> targets(final Ship ship, final List<Planet> planets, final Random random) {
+        final List<Position> targets = new ArrayList<>(3);
+        targets.add(new Position(random.nextDouble() * 384, random.nextDouble() * 256));
+        targets.add(ship.getClosestPoint(planets.get(random.nextInt(planets.size()))));
+        targets.add(planets.get(random.nextInt(planets.size())));
+        return targets;
+    }
+
+    /**
+     * Navigation.navigateShipTowardsTarget() as it was before it became iterative: it recurses once
+     * per correction, allocating the rotated target and the list of objects in the way.
+     */
+    private static ThrustMove navigateRecursively(final GameMap gameMap, final Ship ship, final Position targetPos,
+                                                  final int maxThrust, final boolean avoidObstacles,
+                                                  final int maxCorrections, final double angularStepRad) {
+        if (maxCorrections <= 0) {
+            return null;
+        }
+
+        final double distance = ship.getDistanceTo(targetPos);
+        final double angleRad = ship.orientTowardsInRad(targetPos);
+
+        if (avoidObstacles && !gameMap.objectsBetween(ship, targetPos).isEmpty()) {
+            final double newTargetDx = Math.cos(angleRad + angularStepRad) * distance;
+            final double newTargetDy = Math.sin(angleRad + angularStepRad) * distance;
+            final Position newTarget = new Position(ship.getXPos() + newTargetDx, ship.getYPos() + newTargetDy);
+
+            return navigateRecursively(gameMap, ship, newTarget, maxThrust, true, maxCorrections - 1, angularStepRad);
+        }
+
+        final int thrust = distance < maxThrust ? (int) distance : maxThrust;
+        return new ThrustMove(ship, Util.angleRadToDegClipped(angleRad), thrust);
+    }
+
+    /**
+     * The reference for Navigation.Mode.Analytic: the move along the free heading closest to the
+     * direct one, or null if none of the steps within maxSteps is free.
+     */
+    private static int[] closestFreeStep(final List<Entity> entities, final Ship ship, final Position target,
+                                         final double stepRad, final int maxSteps) {
+        final double distance = ship.getDistanceTo(target);
+        final double directRad = ship.orientTowardsInRad(target);
+        for (int k = 0; k < maxSteps && k * stepRad <= Math.PI; ++k) {
+            for (int direction = 1; direction >= (k == 0 ? 1 : -1); direction -= 2) {
+                final double offset = direction * k * stepRad;
+                final Position end = k == 0 ? target : new Position(
+                        ship.getXPos() + Math.cos(directRad + offset) * distance,
+                        ship.getYPos() + Math.sin(directRad + offset) * distance);
+                if (isFree(entities, ship, end, k == 0 ? target : null)) {
+                    if (k > 0) {
+                        ++turned;
+                    }
+                    return new int[] { Util.angleRadToDegClipped(directRad + offset), thrustFor(distance) };
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the move from the ship to end passes clear of every entity but the ship and the target
+     */
+    private static boolean isFree(final List<Entity> entities, final Ship ship, final Position end, final Position target) {
+        for (final Entity entity : entities) {
+            if (entity.equals(ship) || (target != null && entity.equals(target))) {
+                continue;
+            }
+            if (Collision.segmentCircleIntersect(ship, end, entity, Constants.FORECAST_FUDGE_FACTOR)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int thrustFor(final double distance) {
+        return distance < Constants.MAX_SPEED ? (int) distance : Constants.MAX_SPEED;
+    }
+
+    private static int[] toMove(final ThrustMove move) {
+        return move == null ? null : new int[] { move.getAngle(), move.getThrust() };
+    }
+
+    private static boolean sameMove(final ThrustMove move, final ThrustMove expected) {
+        if (expected == null) {
+            return move == null;
+        }
+        return move != null && move.getAngle() == expected.getAngle() && move.getThrust() == expected.getThrust();
+    }
+
+    private static boolean sameMove(final NavigationResult result, final int[] expected) {
+        if (expected == null) {
+            return !result.isFound();
+        }
+        return result.isFound() && result.getAngle() == expected[0] && result.getThrust() == expected[1];
+    }
+
+    private static void report(final String name, final long calls, final int mismatches) {
+        System.out.println(String.format(Locale.ROOT, "%-44s %d mismatches in %d calls", name, mismatches, calls));
+        if (mismatches > 0) {
+            ++failures;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import hlt.GameMap;
+import hlt.Metadata;
+import hlt.Move;
+import hlt.SyntheticStates;
+import hlt.ThrustMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * GameManager.update with serial planning against parallel planning on 1, 2, 4 and all available
+ * threads, on synthetic 2 player states from 500 to 2000 ships. One op plans one turn for all of
+ * my ships on the same map; the moves of every parallel bot are checked against the serial bot's
+ * first, and the speedup over serial is printed after each state.
+ *
+ * B/op only counts the benchmark thread, so it leaves out what the planning threads allocate.
+ */
+public class PlanningBenchmark {
+
+    private static final int[] TOTAL_SHIPS = { 500, 1000, 2000 };
+    private static final int WARMUP_TURNS = 8;
+
+    public static void main(final String[] args) {
+        final List<Integer> threadCounts = new ArrayList<>(List.of(1, 2, 4));
+        final int cores = Runtime.getRuntime().availableProcessors();
+        if (!threadCounts.contains(cores)) {
+            threadCounts.add(cores);
+        }
+
+        Bench.header();
+        for (final int totalShips : TOTAL_SHIPS) {
+            final String line = SyntheticStates.turnLine(13, 384, 256, 2, totalShips / 2, 28, 0);
+            final GameMap gameMap = new GameMap(384, 256, 0);
+            gameMap.setIncrementalUpdates(true);
+            gameMap.updateMap(new Metadata(line));
+            final String suffix = " [" + totalShips + " ships, " + cores + " cores]";
+
+            final GameManager serial = newBot(0);
+            final List<Move> expected = warmUp(serial, gameMap);
+            final double serialNanos = run("GameManager.update serial" + suffix, serial, gameMap);
+
+            for (final int threads : threadCounts) {
+                final GameManager parallel = newBot(threads);
+                if (!sameMoves(expected, warmUp(parallel, gameMap))) {
+                    throw new IllegalStateException("parallel planning on " + threads + " threads changed the moves");
+                }
+                final double parallelNanos = run("GameManager.update parallel x" + threads + suffix, parallel, gameMap);
+                System.out.println(String.format(Locale.ROOT, "  speedup x%d: %.2f", threads, serialNanos / parallelNanos));
+            }
+        }
+    }
+
+    private static GameManager newBot(final int planningThreads) {
+        final GameManager bot = new GameManager();
+        bot.parallelPlanning = planningThreads > 0;
+        bot.planningThreads = Math.max(1, planningThreads);
+        return bot;
+    }
+
+    /**
+     * Plan the same turn a few times so every pilot has settled on a goal.
+     *
+     * @return the moves of the last turn
+     */
+    private static List<Move> warmUp(final GameManager bot, final GameMap gameMap) {
+        final List<Move> moves = new ArrayList<>();
+        for (int turn = 0; turn < WARMUP_TURNS; ++turn) {
+            bot.update(gameMap, moves);
+        }
+        return moves;
+    }
+
+    private static double run(final String name, final GameManager bot, final GameMap gameMap) {
+        final List<Move> moves = new ArrayList<>();
+        return Bench.run(name, () -> {
+            bot.update(gameMap, moves);
+            return moves.size();
+        }).nanosPerOp;
+    }
+
+    private static boolean sameMoves(final List<Move> expected, final List<Move> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); ++i) {
+            final Move a = expected.get(i);
+            final Move b = actual.get(i);
+            if (a.getClass() != b.getClass() || a.getShip().getId() != b.getShip().getId()) {
+                return false;
+            }
+            if (a instanceof ThrustMove && (((ThrustMove) a).getAngle() != ((ThrustMove) b).getAngle()
+                    || ((ThrustMove) a).getThrust() != ((ThrustMove) b).getThrust())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,39 @@
+import hlt.ReplayFile;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Turn lines captured from a real game, i.e. the engine's stdin stream saved to a text file:
+ * the player id line, the "width height" line, then one line per turn. Recordings made with
+ * -Dhlt.record, gzipped or not, load the same way.
+ */
+final class RecordedStates {
+    final int myId;
+    final int width;
+    final int height;
+    final List<String> turns;
+
+    private RecordedStates(final int myId, final int width, final int height, final List<String> turns) {
+        this.myId = myId;
+        this.width = width;
+        this.height = height;
+        this.turns = turns;
+    }
+
+    static RecordedStates load(final String path) throws IOException {
+        final ReplayFile replay = ReplayFile.load(path);
+        return new RecordedStates(replay.getMyId(), replay.getWidth(), replay.getHeight(), replay.getTurns());
+    }
+
+    /** The turn with the most entities, which is the interesting one for hot-path benchmarks. */
+    String busiestTurn() {
+        String busiest = turns.get(0);
+        for (final String turn : turns) {
+            if (turn.length() > busiest.length()) {
+                busiest = turn;
+            }
+        }
+        return busiest;
+    }
+}
@@ -0,0 +1,91 @@
+import hlt.GameMap;
+import hlt.Metadata;
+import hlt.Move;
+import hlt.Navigation;
+import hlt.NavigationResult;
+import hlt.Planet;
+import hlt.Position;
+import hlt.Ship;
+import hlt.SyntheticStates;
+import hlt.TurnBudget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Navigation.Mode.Search against the Linear and Analytic modes on synthetic 2 player states with
+ * 300 to 1000 friendly ships. One op navigates every one of my ships towards a point next to a
+ * random planet, the way the bot's tasks call navigation; after each state the per-ship cost of
+ * the search is printed with its p99 and max, and the whole turn as a share of the turn budget.
+ * Last, one op of GameManager.update with navigationMode=Search plans a whole turn.
+ */
+public class SearchNavigationBenchmark {
+
+    private static final int[] FRIENDLY_SHIPS = { 300, 600, 1000 };
+    private static final int MAX_CORRECTIONS = 90;
+    private static final double ANGULAR_STEP_RAD = Math.PI / 180.0 * 5.0;
+
+    public static void main(final String[] args) {
+        Bench.header();
+        for (final int friendlyShips : FRIENDLY_SHIPS) {
+            final String line = SyntheticStates.turnLine(17, 384, 256, 2, friendlyShips, 28, 0);
+            final GameMap gameMap = new GameMap(384, 256, 0);
+            gameMap.setIncrementalUpdates(true);
+            gameMap.updateMap(new Metadata(line));
+            final String suffix = " [" + friendlyShips + " friendly ships]";
+
+            final List<Ship> myShips = new ArrayList<>(gameMap.getMyPlayer().getShips().values());
+            final List<Planet> planets = new ArrayList<>(gameMap.getAllPlanets().values());
+            final Random random = new Random(5);
+            final Position[] targets = new Position[myShips.size()];
+            for (int i = 0; i < myShips.size(); ++i) {
+                targets[i] = myShips.get(i).getClosestPoint(planets.get(random.nextInt(planets.size())));
+            }
+
+            final NavigationResult result = new NavigationResult();
+            double searchNanos = 0.0;
+            for (final Navigation.Mode mode : Navigation.Mode.values()) {
+                final double nanos = Bench.run("navigate all ships, " + mode + suffix, () -> {
+                    long found = 0;
+                    for (int i = 0; i < myShips.size(); ++i) {
+                        if (Navigation.navigateShipTowardsTarget(gameMap, myShips.get(i), targets[i], 7, true,
+                                MAX_CORRECTIONS, ANGULAR_STEP_RAD, mode, result)) {
+                            ++found;
+                        }
+                    }
+                    return found;
+                }).nanosPerOp;
+                if (mode == Navigation.Mode.Search) {
+                    searchNanos = nanos;
+                }
+            }
+
+            final long[] perShip = new long[myShips.size()];
+            for (int i = 0; i < myShips.size(); ++i) {
+                final long start = System.nanoTime();
+                Navigation.navigateShipTowardsTarget(gameMap, myShips.get(i), targets[i], 7, true,
+                        MAX_CORRECTIONS, ANGULAR_STEP_RAD, Navigation.Mode.Search, result);
+                perShip[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(perShip);
+            System.out.println(String.format(Locale.ROOT,
+                    "  Search per ship: avg %.1f us, p99 %.1f us, max %.1f us; all ships %.2f ms = %.2f%% of the %d ms turn budget",
+                    searchNanos / myShips.size() / 1e3, perShip[(int) (perShip.length * 0.99)] / 1e3,
+                    perShip[perShip.length - 1] / 1e3, searchNanos / 1e6,
+                    100.0 * searchNanos / 1e6 / TurnBudget.DEFAULT_BUDGET_MILLIS, TurnBudget.DEFAULT_BUDGET_MILLIS));
+
+            final GameManager bot = new GameManager();
+            bot.navigationMode = Navigation.Mode.Search;
+            final List<Move> moves = new ArrayList<>();
+            final double turnNanos = Bench.run("GameManager.update, Search" + suffix, () -> {
+                bot.update(gameMap, moves);
+                return moves.size();
+            }).nanosPerOp;
+            System.out.println(String.format(Locale.ROOT, "  whole turn %.2f ms = %.2f%% of the turn budget",
+                    turnNanos / 1e6, 100.0 * turnNanos / 1e6 / TurnBudget.DEFAULT_BUDGET_MILLIS));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Picks the best of the 360 x 8 discrete thrust moves for one ship by score:
+ * the distance from the move's destination to the target, plus THREAT_WEIGHT for every enemy ship
+ * that could fire at the destination next turn, plus COLLISION_RISK_WEIGHT for every enemy ship the
+ * move would run into if that ship repeats its last displacement (see MotionHistory). Moves whose
+ * swept segment hits a planet or another ship, or that end outside the map, are not allowed.
+ *
+ * Obstacles and threats are gathered once per ship through the spatial grid into packed arrays,
+ * so a candidate costs one batched segment test against a handful of circles. For a given thrust
+ * the distance to the target grows with the angle away from the direct heading, so the candidates
+ * are walked as 2 x 7 streams (each thrust, turning either way) plus standing still, always
+ * taking the stream head closest to the target. Penalties are never negative, so once that
+ * distance alone is no better than the best score found the search stops; on an open path the
+ * first candidate is final. MAX_EVALUATIONS bounds the rest.
+ *
+ * Instances keep their buffers between calls and are not thread-safe.
+ */
+class ActionSearch {
+    static final double THREAT_WEIGHT = 4.0;
+    static final double COLLISION_RISK_WEIGHT = 20.0;
+    static final int MAX_EVALUATIONS = 720;
+
+    /** An enemy ship can move this far and still fire at a ship at the destination. */
+    private static final double THREAT_RANGE = Constants.MAX_SPEED + Constants.WEAPON_RADIUS + 2 * Constants.SHIP_RADIUS;
+
+    private static final int STREAMS = 2 * Constants.MAX_SPEED + 1;
+
+    /** Keeps rounding in the gathering distance from dropping an obstacle the segment test would hit. */
+    private static final double GATHER_PADDING = 0.01;
+
+    // obstacles the swept segment of some candidate could hit
+    private double[] obstacleX = new double[32];
+    private double[] obstacleY = new double[32];
+    private double[] obstacleRadius = new double[32];
+    private double[] closestSquared = new double[32];
+    private boolean[] hits = new boolean[32];
+    private int obstacleCount;
+
+    // undocked enemy ships nearby, with their expected displacement
+    private double[] enemyX = new double[32];
+    private double[] enemyY = new double[32];
+    private double[] enemyDx = new double[32];
+    private double[] enemyDy = new double[32];
+    private int enemyCount;
+
+    private final int[] streamAngle = new int[STREAMS];
+    private final int[] streamThrust = new int[STREAMS];
+    private final int[] streamDirection = new int[STREAMS];
+    private final int[] streamLeft = new int[STREAMS];
+    private final double[] streamKey = new double[STREAMS];
+    private int streamCount;
+
+    private int evaluations;
+
+    /**
+     * @param maxOffsetDeg how many whole degrees past the ones either side of the direct heading a move
+     *                     may turn, at most 180
+     * @return whether an allowed move was found; its angle and thrust are written to result
+     */
+    boolean search(final GameMap gameMap, final Ship ship, final Position target, final int maxThrust,
+                   final int maxOffsetDeg, final int maxEvaluations, final NavigationResult result) {
+        final double shipX = ship.getXPos();
+        final double shipY = ship.getYPos();
+        final double targetX = target.getXPos();
+        final double targetY = target.getYPos();
+        final int thrustLimit = Math.max(0, Math.min(maxThrust, Constants.MAX_SPEED));
+
+        gather(gameMap, ship, target, thrustLimit);
+
+        final double directDeg = Math.toDegrees(Math.atan2(targetY - shipY, targetX - shipX));
+        final int firstCounterClockwise = (int) Math.ceil(directDeg);
+        // Each direction takes the offsets 0..limit from the whole degree on its side of the direct
+        // heading, so even a limit of 0 tries the two degrees around it; together at most every heading once.
+        final int offsetLimit = Math.max(0, Math.min(180, maxOffsetDeg));
+        final int counterClockwiseLength = Math.min(offsetLimit + 1, ThrustMove.ANGLE_COUNT);
+        final int clockwiseLength = Math.min(offsetLimit + 1, ThrustMove.ANGLE_COUNT - counterClockwiseLength);
+        streamCount = 0;
+        addStream(firstCounterClockwise, 0, 1, 1, shipX, shipY, targetX, targetY);
+        for (int thrust = 1; thrust <= thrustLimit; ++thrust) {
+            addStream(firstCounterClockwise, thrust, 1, counterClockwiseLength, shipX, shipY, targetX, targetY);
+            addStream(firstCounterClockwise - 1, thrust, -1, clockwiseLength, shipX, shipY, targetX, targetY);
+        }
+
+        double bestScore = Double.POSITIVE_INFINITY;
+        int bestAngle = -1;
+        int bestThrust = 0;
+        evaluations = 0;
+        while (evaluations < maxEvaluations) {
+            int next = -1;
+            for (int s = 0; s < streamCount; ++s) {
+                if (streamLeft[s] > 0 && (next < 0 || streamKey[s] < streamKey[next])) {
+                    next = s;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            final double targetDistance = Math.sqrt(streamKey[next]);
+            if (targetDistance >= bestScore) {
+                break;
+            }
+
+            final int angle = Geometry.normalizeDeg(streamAngle[next]);
+            final int thrust = streamThrust[next];
+            ++evaluations;
+            final double score = targetDistance + penalty(gameMap, shipX, shipY, angle, thrust);
+            if (score < bestScore) {
+                bestScore = score;
+                bestAngle = angle;
+                bestThrust = thrust;
+            }
+            advance(next, shipX, shipY, targetX, targetY);
+        }
+
+        if (bestAngle < 0) {
+            return false;
+        }
+        result.set(bestAngle, bestThrust);
+        return true;
+    }
+
+    /** Candidates scored by the last search(). */
+    int getEvaluations() {
+        return evaluations;
+    }
+
+    private void gather(final GameMap gameMap, final Ship ship, final Position target, final int thrustLimit) {
+        obstacleCount = 0;
+        enemyCount = 0;
+        final double shipX = ship.getXPos();
+        final double shipY = ship.getYPos();
+        final SpatialGrid grid = gameMap.getSpatialGrid();
+        final SpatialGrid.Query query = grid.query();
+        final MotionHistory motionHistory = gameMap.getMotionHistory();
+
+        // The grid registers every entity by its inflated box, so the reach of the move is enough.
+        final int candidateCount = query.collectRadiusCandidates(shipX, shipY, thrustLimit + THREAT_RANGE);
+        for (int i = 0; i < candidateCount; ++i) {
+            final Entity entity = grid.getEntity(query.getCandidate(i));
+            if (entity.equals(ship)) {
+                continue;
+            }
+            final double distance = Math.sqrt(Geometry.distanceSquared(shipX, shipY, entity.getXPos(), entity.getYPos()));
+            // As in GameMap.objectsBetween(), an entity passed as the target itself is not an obstacle.
+            if (!entity.equals(target)
+                    && distance <= thrustLimit + entity.getRadius() + Constants.FORECAST_FUDGE_FACTOR + GATHER_PADDING) {
+                addObstacle(entity);
+            }
+            if (entity instanceof Ship && entity.getOwner() != ship.getOwner()
+                    && ((Ship) entity).getDockingStatus() == Ship.DockingStatus.Undocked
+                    && distance <= thrustLimit + THREAT_RANGE) {
+                addEnemy(entity, motionHistory);
+            }
+        }
+        gameMap.getMetrics().count(TurnMetrics.Counter.ObjectsBetween);
+    }
+
+    private double penalty(final GameMap gameMap, final double shipX, final double shipY, final int angle, final int thrust) {
+        final double dx = ThrustMove.getDeltaX(angle, thrust);
+        final double dy = ThrustMove.getDeltaY(angle, thrust);
+        final double endX = shipX + dx;
+        final double endY = shipY + dy;
+        if (endX < 0 || endY < 0 || endX >= gameMap.getWidth() || endY >= gameMap.getHeight()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        // Standing still cannot run into anything that stands still.
+        if (thrust > 0 && obstacleCount > 0 && Collision.segmentCirclesIntersect(shipX, shipY, endX, endY, obstacleX, obstacleY,
+                obstacleRadius, obstacleCount, Constants.FORECAST_FUDGE_FACTOR, closestSquared, hits) > 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double penalty = 0.0;
+        final double threatRangeSquared = THREAT_RANGE * THREAT_RANGE;
+        for (int i = 0; i < enemyCount; ++i) {
+            if (Geometry.distanceSquared(endX, endY, enemyX[i], enemyY[i]) <= threatRangeSquared) {
+                penalty += THREAT_WEIGHT;
+            }
+            if (Collision.movingCirclesIntersect(shipX, shipY, dx, dy, Constants.SHIP_RADIUS,
+                    enemyX[i], enemyY[i], enemyDx[i], enemyDy[i], Constants.SHIP_RADIUS, 0.0)) {
+                penalty += COLLISION_RISK_WEIGHT;
+            }
+        }
+        return penalty;
+    }
+
+    private void addStream(final int angle, final int thrust, final int direction, final int length,
+                           final double shipX, final double shipY, final double targetX, final double targetY) {
+        if (length <= 0) {
+            return;
+        }
+        final int s = streamCount++;
+        streamAngle[s] = angle;
+        streamThrust[s] = thrust;
+        streamDirection[s] = direction;
+        streamLeft[s] = length;
+        streamKey[s] = key(angle, thrust, shipX, shipY, targetX, targetY);
+    }
+
+    private void advance(final int s, final double shipX, final double shipY, final double targetX, final double targetY) {
+        if (--streamLeft[s] > 0) {
+            streamAngle[s] += streamDirection[s];
+            streamKey[s] = key(streamAngle[s], streamThrust[s], shipX, shipY, targetX, targetY);
+        }
+    }
+
+    /**
+     * @return the squared distance from the destination of the move to the target
+     */
+    private static double key(final int angle, final int thrust,
+                              final double shipX, final double shipY, final double targetX, final double targetY) {
+        final int normalized = Geometry.normalizeDeg(angle);
+        return Geometry.distanceSquared(shipX + ThrustMove.getDeltaX(normalized, thrust),
+                shipY + ThrustMove.getDeltaY(normalized, thrust), targetX, targetY);
+    }
+
+    private void addObstacle(final Entity entity) {
+        if (obstacleCount == obstacleX.length) {
+            final int length = obstacleCount * 2;
+            obstacleX = Arrays.copyOf(obstacleX, length);
+            obstacleY = Arrays.copyOf(obstacleY, length);
+            obstacleRadius = Arrays.copyOf(obstacleRadius, length);
+            closestSquared = new double[length];
+            hits = new boolean[length];
+        }
+        obstacleX[obstacleCount] = entity.getXPos();
+        obstacleY[obstacleCount] = entity.getYPos();
+        obstacleRadius[obstacleCount] = entity.getRadius();
+        ++obstacleCount;
+    }
+
+    private void addEnemy(final Entity enemy, final MotionHistory motionHistory) {
+        if (enemyCount == enemyX.length) {
+            final int length = enemyCount * 2;
+            enemyX = Arrays.copyOf(enemyX, length);
+            enemyY = Arrays.copyOf(enemyY, length);
+            enemyDx = Arrays.copyOf(enemyDx, length);
+            enemyDy = Arrays.copyOf(enemyDy, length);
+        }
+        enemyX[enemyCount] = enemy.getXPos();
+        enemyY[enemyCount] = enemy.getYPos();
+        enemyDx[enemyCount] = motionHistory.getVelocityX(enemy.getId());
+        enemyDy[enemyCount] = motionHistory.getVelocityY(enemy.getId());
+        ++enemyCount;
+    }
+}
@@ -0,0 +1,207 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Finds the free heading closest to the direct heading towards a target, searching clockwise and
+ * counter-clockwise at once.
+ *
+ * Every obstacle found on a tested path blocks one angular interval of headings, computed in
+ * closed form from its circle. The next heading tested is the closest one on either side that lies
+ * outside every known interval, so each obstacle costs one trigonometric evaluation instead of one
+ * collision test per angular step, and only obstacles that actually block some tested path are
+ * ever looked at. Instances keep their scratch arrays between calls and are not thread-safe.
+ */
+class BlockedHeadings {
+    public static final int NO_FREE_STEP = Integer.MIN_VALUE;
+
+    private static final double TWO_PI = 2 * Math.PI;
+
+    private double[] starts = new double[32];
+    private double[] ends = new double[32];
+    private int intervalCount;
+
+    // merged, disjoint and sorted by start
+    private double[] mergedStarts = new double[32];
+    private double[] mergedEnds = new double[32];
+    private int mergedCount;
+
+    /**
+     * @return the step count k, with |k| < maxSteps, of the free heading directAngle + k * step
+     *         closest to the direct heading, where a heading is free when a move of the given length
+     *         along it would not come within Constants.FORECAST_FUDGE_FACTOR of any planet or ship.
+     *         Counter-clockwise wins ties. NO_FREE_STEP if no such heading is free.
+     */
+    int closestFreeStep(final GameMap gameMap, final Ship ship, final Position target,
+                        final double directAngleRad, final double length,
+                        final double angularStepRad, final int maxSteps) {
+        intervalCount = 0;
+        mergedCount = 0;
+
+        int counterClockwise = 0;
+        int clockwise = 0;
+        for (;;) {
+            counterClockwise = nextUnblockedStep(counterClockwise, angularStepRad, maxSteps, 1);
+            clockwise = nextUnblockedStep(clockwise, angularStepRad, maxSteps, -1);
+            if (counterClockwise < 0 && clockwise < 0) {
+                return NO_FREE_STEP;
+            }
+
+            final int step = (clockwise < 0 || (counterClockwise >= 0 && counterClockwise <= clockwise))
+                    ? counterClockwise : -clockwise;
+            final double offset = step * angularStepRad;
+            if (step != 0) {
+                gameMap.getMetrics().count(TurnMetrics.Counter.NavigationCorrections);
+            }
+            if (addBlockers(gameMap, ship, target, directAngleRad, offset, length) == 0) {
+                return step;
+            }
+            // Rounding at an interval edge must never make us test the same heading again.
+            if (intervalContaining(offset) < 0) {
+                addInterval(offset, offset);
+                merge();
+            }
+        }
+    }
+
+    /**
+     * @return the smallest k >= from, below maxSteps, for which direction * k * step lies outside
+     *         every known interval, or -1
+     */
+    private int nextUnblockedStep(final int from, final double angularStepRad, final int maxSteps, final int direction) {
+        if (from < 0) {
+            return -1;
+        }
+        int k = from;
+        while (k < maxSteps && k * angularStepRad <= Math.PI) {
+            final int interval = intervalContaining(direction * k * angularStepRad);
+            if (interval < 0) {
+                return k;
+            }
+            final double edge = direction > 0 ? mergedEnds[interval] : -mergedStarts[interval];
+            k = Math.max(k + 1, (int) Math.floor(edge / angularStepRad) + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Test the move along the given heading and add the interval of every obstacle on it.
+     *
+     * @return the number of obstacles found
+     */
+    private int addBlockers(final GameMap gameMap, final Ship ship, final Position target,
+                            final double directAngleRad, final double offset, final double length) {
+        final double shipX = ship.getXPos();
+        final double shipY = ship.getYPos();
+        final boolean direct = offset == 0.0;
+        final double endX = direct ? target.getXPos() : shipX + Math.cos(directAngleRad + offset) * length;
+        final double endY = direct ? target.getYPos() : shipY + Math.sin(directAngleRad + offset) * length;
+
+        gameMap.getMetrics().count(TurnMetrics.Counter.ObjectsBetween);
+        int found = 0;
+        final SpatialGrid grid = gameMap.getSpatialGrid();
+        final SpatialGrid.Query query = grid.query();
+        final int candidateCount = query.testSegment(shipX, shipY, endX, endY, Constants.FORECAST_FUDGE_FACTOR);
+        for (int i = 0; i < candidateCount; ++i) {
+            if (!query.isHit(i)) {
+                continue;
+            }
+            final Entity entity = grid.getEntity(query.getCandidate(i));
+            // As in GameMap.objectsBetween(), only an entity passed as the target itself is excluded.
+            if (entity.equals(ship) || (direct && entity.equals(target))) {
+                continue;
+            }
+            addObstacle(shipX, shipY, entity, directAngleRad, length);
+            ++found;
+        }
+        if (found > 0) {
+            merge();
+        }
+        return found;
+    }
+
+    private void addObstacle(final double shipX, final double shipY, final Entity entity,
+                             final double directAngleRad, final double length) {
+        final double dx = entity.getXPos() - shipX;
+        final double dy = entity.getYPos() - shipY;
+        final double d = Math.sqrt(dx * dx + dy * dy);
+        final double r = entity.getRadius() + Constants.FORECAST_FUDGE_FACTOR;
+
+        final double halfWidth;
+        if (d <= r) {
+            // Already inside the safety zone: only moves heading away from the center are free.
+            halfWidth = Math.PI / 2;
+        } else if (Math.sqrt(d * d - r * r) <= length) {
+            // The tangent point is reached, so the whole tangent cone is blocked.
+            halfWidth = Math.asin(r / d);
+        } else {
+            // Only the end of the move can reach the circle.
+            final double cos = (length * length + d * d - r * r) / (2 * length * d);
+            halfWidth = Math.acos(Math.max(-1.0, Math.min(1.0, cos)));
+        }
+
+        final double center = normalize(Math.atan2(dy, dx) - directAngleRad);
+        addInterval(center - halfWidth, center + halfWidth);
+        // Keep both sides of the +-PI seam covered.
+        if (center - halfWidth < -Math.PI) {
+            addInterval(center - halfWidth + TWO_PI, center + halfWidth + TWO_PI);
+        }
+        if (center + halfWidth > Math.PI) {
+            addInterval(center - halfWidth - TWO_PI, center + halfWidth - TWO_PI);
+        }
+    }
+
+    private int intervalContaining(final double offset) {
+        int low = 0;
+        int high = mergedCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (mergedStarts[mid] > offset) {
+                high = mid - 1;
+            } else if (mergedEnds[mid] < offset) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void addInterval(final double start, final double end) {
+        if (intervalCount == starts.length) {
+            starts = Arrays.copyOf(starts, intervalCount * 2);
+            ends = Arrays.copyOf(ends, intervalCount * 2);
+        }
+        starts[intervalCount] = start;
+        ends[intervalCount] = end;
+        ++intervalCount;
+    }
+
+    private void merge() {
+        mergedCount = 0;
+        if (mergedStarts.length < intervalCount) {
+            mergedStarts = new double[starts.length];
+            mergedEnds = new double[starts.length];
+        }
+
+        // The union only depends on the sorted starts and the sorted ends, not on their pairing.
+        Arrays.sort(starts, 0, intervalCount);
+        Arrays.sort(ends, 0, intervalCount);
+        for (int i = 0; i < intervalCount; ++i) {
+            if (i == 0 || starts[i] > mergedEnds[mergedCount - 1]) {
+                mergedStarts[mergedCount++] = starts[i];
+            }
+            mergedEnds[mergedCount - 1] = ends[i];
+        }
+    }
+
+    private static double normalize(final double angleRad) {
+        double angle = angleRad % TWO_PI;
+        if (angle > Math.PI) {
+            angle -= TWO_PI;
+        } else if (angle <= -Math.PI) {
+            angle += TWO_PI;
+        }
+        return angle;
+    }
+}
@@ -0,0 +1,15 @@
+package hlt;
+
+import java.util.List;
+
+/**
+ * A player's per-turn decision, as called by MyBot's main loop or by the Simulator.
+ */
+public interface Bot {
+
+    /**
+     * @param gameMap  the map, already updated for this turn
+     * @param outMoves cleared and filled with this turn's moves
+     */
+    void update(GameMap gameMap, List<Move> outMoves);
+}
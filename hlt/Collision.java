@@ -1,6 +1,11 @@
 package hlt;
 
 public class Collision {
+    // Relative band around the squared limit inside which segmentCirclesIntersect() defers to the
+    // scalar test; far wider than the few ulps by which the two distance computations can differ.
+    private static final double BAND_LOW = 1.0 - 1e-9;
+    private static final double BAND_HIGH = 1.0 + 1e-9;
+
     /**
      * Test whether a given line segment intersects a circular area.
      *
@@ -11,16 +16,31 @@ public class Collision {
      * @return true if the segment intersects, false otherwise
      */
     public static boolean segmentCircleIntersect(final Position start, final Position end, final Entity circle, final double fudge) {
+        return segmentCircleIntersect(start.getXPos(), start.getYPos(), end.getXPos(), end.getYPos(), circle, fudge);
+    }
+
+    /**
+     * Same test as segmentCircleIntersect(Position, Position, Entity, double) on raw coordinates,
+     * so that callers testing many candidate segments need not allocate a Position for each.
+     */
+    public static boolean segmentCircleIntersect(final double startX, final double startY,
+                                                 final double endX, final double endY,
+                                                 final Entity circle, final double fudge) {
+        return segmentCircleIntersect(startX, startY, endX, endY,
+                circle.getXPos(), circle.getYPos(), circle.getRadius(), fudge);
+    }
+
+    /**
+     * Same test as segmentCircleIntersect(Position, Position, Entity, double) against a circle given
+     * by its center and radius.
+     */
+    public static boolean segmentCircleIntersect(final double startX, final double startY,
+                                                 final double endX, final double endY,
+                                                 final double centerX, final double centerY,
+                                                 final double circleRadius, final double fudge) {
         // Parameterize the segment as start + t * (end - start),
         // and substitute into the equation of a circle
         // Solve for t
-        final double circleRadius = circle.getRadius();
-        final double startX = start.getXPos();
-        final double startY = start.getYPos();
-        final double endX = end.getXPos();
-        final double endY = end.getYPos();
-        final double centerX = circle.getXPos();
-        final double centerY = circle.getYPos();
         final double dx = endX - startX;
         final double dy = endY - startY;
 
@@ -33,7 +53,7 @@ public class Collision {
 
         if (a == 0.0) {
             // Start and end are the same point
-            return start.getDistanceTo(circle) <= circleRadius + fudge;
+            return distance(startX, startY, centerX, centerY) <= circleRadius + fudge;
         }
 
         // Time along segment when closest to the circle (vertex of the quadratic)
@@ -44,12 +64,117 @@ public class Collision {
 
         final double closestX = startX + dx * t;
         final double closestY = startY + dy * t;
-        final double closestDistance = new Position(closestX, closestY).getDistanceTo(circle);
+        final double closestDistance = distance(closestX, closestY, centerX, centerY);
 
         return closestDistance <= circleRadius + fudge;
     }
 
+    /**
+     * segmentCircleIntersect() for one segment against count circles given as packed arrays, with
+     * hits[i] set to the result for circle i. The results are exactly those of the scalar test.
+     *
+     * The first loop has no branches, calls or object accesses, so C2 can turn it into vector
+     * instructions; it leaves the squared distance from each circle center to the closest point in
+     * closestSquared, or NaN when the segment points away from the circle. Squared distances are
+     * only compared against the squared limit outside a narrow band around it; inside the band the
+     * scalar test decides, so rounding can never make the two disagree.
+     *
+     * @param closestSquared scratch space for at least count values
+     * @return the number of circles hit
+     */
+    public static int segmentCirclesIntersect(final double startX, final double startY,
+                                              final double endX, final double endY,
+                                              final double[] centerX, final double[] centerY,
+                                              final double[] radius, final int count, final double fudge,
+                                              final double[] closestSquared, final boolean[] hits) {
+        final double dx = endX - startX;
+        final double dy = endY - startY;
+        final double a = square(dx) + square(dy);
+        int hitCount = 0;
+        if (a == 0.0) {
+            for (int i = 0; i < count; ++i) {
+                hits[i] = segmentCircleIntersect(startX, startY, endX, endY, centerX[i], centerY[i], radius[i], fudge);
+                hitCount += hits[i] ? 1 : 0;
+            }
+            return hitCount;
+        }
+
+        final double twoA = 2 * a;
+        for (int i = 0; i < count; ++i) {
+            final double cx = centerX[i];
+            final double cy = centerY[i];
+            // Same expression as the scalar test, so t is bit-identical.
+            final double b = -2 * (square(startX) - (startX * endX)
+                                - (startX * cx) + (endX * cx)
+                                + square(startY) - (startY * endY)
+                                - (startY * cy) + (endY * cy));
+            final double t = Math.min(-b / twoA, 1.0);
+            final double ox = startX + dx * t - cx;
+            final double oy = startY + dy * t - cy;
+            // sqrt(t) is NaN exactly when t < 0, which poisons the distance without a branch.
+            closestSquared[i] = ox * ox + oy * oy + 0.0 * Math.sqrt(t);
+        }
+
+        for (int i = 0; i < count; ++i) {
+            final double limit = radius[i] + fudge;
+            final double limitSquared = limit * limit;
+            final double distanceSquared = closestSquared[i];
+            final boolean hit;
+            if (!(distanceSquared <= limitSquared * BAND_HIGH)) {
+                hit = false;
+            } else if (distanceSquared < limitSquared * BAND_LOW) {
+                hit = true;
+            } else {
+                hit = segmentCircleIntersect(startX, startY, endX, endY, centerX[i], centerY[i], radius[i], fudge);
+            }
+            hits[i] = hit;
+            hitCount += hit ? 1 : 0;
+        }
+        return hitCount;
+    }
+
+    /**
+     * Test whether two circles moving in straight lines over a turn come within fudge of each other
+     * at any time during it. (aDx, aDy) and (bDx, bDy) are the displacements over the whole turn.
+     */
+    public static boolean movingCirclesIntersect(final double aX, final double aY, final double aDx, final double aDy,
+                                                 final double aRadius,
+                                                 final double bX, final double bY, final double bDx, final double bDy,
+                                                 final double bRadius, final double fudge) {
+        return firstContact(bX - aX, bY - aY, bDx - aDx, bDy - aDy, aRadius + bRadius + fudge) >= 0;
+    }
+
+    /**
+     * @return the first time in [0, 1] at which a point at relative position (px, py), moving by
+     *         (vx, vy) over the turn, comes within range of the origin, or -1
+     */
+    public static double firstContact(final double px, final double py, final double vx, final double vy,
+                                      final double range) {
+        final double c = px * px + py * py - range * range;
+        if (c <= 0) {
+            return 0.0;
+        }
+        final double a = vx * vx + vy * vy;
+        if (a == 0.0) {
+            return -1.0;
+        }
+        final double b = 2 * (px * vx + py * vy);
+        final double discriminant = b * b - 4 * a * c;
+        if (discriminant < 0) {
+            return -1.0;
+        }
+        final double t = (-b - Math.sqrt(discriminant)) / (2 * a);
+        return t >= 0 && t <= 1 ? t : -1.0;
+    }
+
     public static double square(final double num) {
         return num * num;
     }
+
+    /** Same arithmetic as Position.getDistanceTo(), so both give bit-identical results. */
+    private static double distance(final double fromX, final double fromY, final double toX, final double toY) {
+        final double dx = fromX - toX;
+        final double dy = fromY - toY;
+        return Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
+    }
 }
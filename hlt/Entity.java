@@ -2,43 +2,52 @@ package hlt;
 
 public class Entity extends Position {
 
-    private final int owner;
-    private final int id;
-    private final int health;
-    private final double radius;
+    final EntityStore store;
+    final int slot;
+
+    /** Create the view for a new entity in the given store; its fields are set by the caller. */
+    Entity(final EntityStore store, final int id) {
+        // The position lives in the store, the Position fields are unused.
+        super(0.0, 0.0);
+        this.store = store;
+        this.slot = store.allocateSlot(id);
+        store.views[slot] = this;
+    }
 
-    public Entity(final int owner, final int id, final double xPos, final double yPos, final int health, final double radius) {
-        super(xPos, yPos);
-        this.owner = owner;
-        this.id = id;
-        this.health = health;
-        this.radius = radius;
+    @Override
+    public double getXPos() {
+        return store.xPos[slot];
+    }
+
+    @Override
+    public double getYPos() {
+        return store.yPos[slot];
     }
 
     public int getOwner() {
-        return owner;
+        return store.owner[slot];
     }
 
     public int getId() {
-        return id;
+        return store.id[slot];
     }
 
     public int getHealth() {
-        return health;
+        return store.health[slot];
     }
 
     public double getRadius() {
-        return radius;
+        return store.radius[slot];
     }
 
     @Override
     public String toString() {
         return "Entity[" +
                 super.toString() +
-                ", owner=" + owner +
-                ", id=" + id +
-                ", health=" + health +
-                ", radius=" + radius +
+                ", owner=" + getOwner() +
+                ", id=" + getId() +
+                ", health=" + getHealth() +
+                ", radius=" + getRadius() +
                 "]";
     }
 }
@@ -0,0 +1,228 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays storage for every ship or every planet of a GameMap.
+ *
+ * Each entity owns a slot and all of its fields live in primitive arrays indexed by that slot;
+ * Ship and Planet are thin views that read their slot. Ids below DENSE_ID_LIMIT find their slot
+ * through a direct table, larger or negative ids through an open-addressing map.
+ * Slots released during an update are only handed out again by the next one, so views of
+ * destroyed entities keep reporting their last state until then.
+ */
+public class EntityStore {
+    public static final int NO_SLOT = -1;
+
+    private static final int DENSE_ID_LIMIT = 1 << 14;
+    private static final Ship.DockingStatus[] DOCKING_STATUSES = Ship.DockingStatus.values();
+
+    // fields shared by ships and planets
+    int capacity = 0;
+    int slotCount = 0;
+    int[] id = new int[0];
+    double[] xPos = new double[0];
+    double[] yPos = new double[0];
+    double[] radius = new double[0];
+    int[] health = new int[0];
+    int[] owner = new int[0];
+    int[] lastSeenUpdate = new int[0];
+    Entity[] views = new Entity[0];
+
+    // ship fields
+    int[] dockingStatus = new int[0];
+    int[] dockedPlanet = new int[0];
+    int[] dockingProgress = new int[0];
+    int[] weaponCooldown = new int[0];
+    double[] velocityX = new double[0];
+    double[] velocityY = new double[0];
+
+    // planet fields
+    int[] dockingSpots = new int[0];
+    int[] currentProduction = new int[0];
+    int[] remainingProduction = new int[0];
+    int[] dockedShipCount = new int[0];
+    int[][] dockedShips = new int[0][];
+
+    private int[] slotByDenseId = new int[0];
+    private final IntIntMap slotBySparseId = new IntIntMap(NO_SLOT);
+
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int[] releasedSlots = new int[16];
+    private int releasedCount;
+
+    public EntityStore(final int initialCapacity) {
+        grow(Math.max(1, initialCapacity));
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * @return the slot of the entity with the given id, or NO_SLOT if it is not in the store
+     */
+    public int slotOf(final int entityId) {
+        if (entityId >= 0 && entityId < DENSE_ID_LIMIT) {
+            return entityId < slotByDenseId.length ? slotByDenseId[entityId] : NO_SLOT;
+        }
+        return slotBySparseId.get(entityId);
+    }
+
+    public Entity viewOf(final int entityId) {
+        final int slot = slotOf(entityId);
+        return slot == NO_SLOT ? null : views[slot];
+    }
+
+    public Entity getView(final int slot) {
+        return views[slot];
+    }
+
+    public int getId(final int slot) {
+        return id[slot];
+    }
+
+    public double getXPos(final int slot) {
+        return xPos[slot];
+    }
+
+    public double getYPos(final int slot) {
+        return yPos[slot];
+    }
+
+    public double getRadius(final int slot) {
+        return radius[slot];
+    }
+
+    public int getHealth(final int slot) {
+        return health[slot];
+    }
+
+    public int getOwner(final int slot) {
+        return owner[slot];
+    }
+
+    public Ship.DockingStatus getDockingStatus(final int slot) {
+        return DOCKING_STATUSES[dockingStatus[slot]];
+    }
+
+    int allocateSlot(final int entityId) {
+        final int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == capacity) {
+                grow(capacity * 2);
+            }
+            slot = slotCount++;
+        }
+
+        id[slot] = entityId;
+        views[slot] = null;
+        dockedShipCount[slot] = 0;
+        if (entityId >= 0 && entityId < DENSE_ID_LIMIT) {
+            if (entityId >= slotByDenseId.length) {
+                final int oldLength = slotByDenseId.length;
+                slotByDenseId = Arrays.copyOf(slotByDenseId, Math.min(DENSE_ID_LIMIT, Math.max(entityId + 1, oldLength * 2)));
+                Arrays.fill(slotByDenseId, oldLength, slotByDenseId.length, NO_SLOT);
+            }
+            slotByDenseId[entityId] = slot;
+        } else {
+            slotBySparseId.put(entityId, slot);
+        }
+        return slot;
+    }
+
+    /** Forget the entity in the slot; the slot becomes reusable after the next commitReleases(). */
+    void releaseSlot(final int slot) {
+        final int entityId = id[slot];
+        if (entityId >= 0 && entityId < DENSE_ID_LIMIT) {
+            slotByDenseId[entityId] = NO_SLOT;
+        } else {
+            slotBySparseId.remove(entityId);
+        }
+        if (releasedCount == releasedSlots.length) {
+            releasedSlots = Arrays.copyOf(releasedSlots, releasedCount * 2);
+        }
+        releasedSlots[releasedCount++] = slot;
+    }
+
+    void commitReleases() {
+        if (freeCount + releasedCount > freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, Math.max(freeSlots.length * 2, freeCount + releasedCount));
+        }
+        System.arraycopy(releasedSlots, 0, freeSlots, freeCount, releasedCount);
+        freeCount += releasedCount;
+        releasedCount = 0;
+    }
+
+    boolean isLive(final int slot) {
+        return slotOf(id[slot]) == slot;
+    }
+
+    void setEntity(final int slot, final int owner, final double xPos, final double yPos,
+                   final int health, final double radius) {
+        this.owner[slot] = owner;
+        this.xPos[slot] = xPos;
+        this.yPos[slot] = yPos;
+        this.health[slot] = health;
+        this.radius[slot] = radius;
+    }
+
+    void setShip(final int slot, final Ship.DockingStatus dockingStatus, final int dockedPlanet,
+                 final int dockingProgress, final int weaponCooldown) {
+        this.dockingStatus[slot] = dockingStatus.ordinal();
+        this.dockedPlanet[slot] = dockedPlanet;
+        this.dockingProgress[slot] = dockingProgress;
+        this.weaponCooldown[slot] = weaponCooldown;
+    }
+
+    void setVelocity(final int slot, final double velocityX, final double velocityY) {
+        this.velocityX[slot] = velocityX;
+        this.velocityY[slot] = velocityY;
+    }
+
+    void setPlanet(final int slot, final int dockingSpots, final int currentProduction, final int remainingProduction) {
+        this.dockingSpots[slot] = dockingSpots;
+        this.currentProduction[slot] = currentProduction;
+        this.remainingProduction[slot] = remainingProduction;
+    }
+
+    void clearDockedShips(final int slot) {
+        dockedShipCount[slot] = 0;
+    }
+
+    void addDockedShip(final int slot, final int shipId) {
+        int[] ids = dockedShips[slot];
+        if (ids == null) {
+            ids = dockedShips[slot] = new int[8];
+        } else if (dockedShipCount[slot] == ids.length) {
+            ids = dockedShips[slot] = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[dockedShipCount[slot]++] = shipId;
+    }
+
+    private void grow(final int newCapacity) {
+        capacity = newCapacity;
+        id = Arrays.copyOf(id, newCapacity);
+        xPos = Arrays.copyOf(xPos, newCapacity);
+        yPos = Arrays.copyOf(yPos, newCapacity);
+        radius = Arrays.copyOf(radius, newCapacity);
+        health = Arrays.copyOf(health, newCapacity);
+        owner = Arrays.copyOf(owner, newCapacity);
+        lastSeenUpdate = Arrays.copyOf(lastSeenUpdate, newCapacity);
+        views = Arrays.copyOf(views, newCapacity);
+        dockingStatus = Arrays.copyOf(dockingStatus, newCapacity);
+        dockedPlanet = Arrays.copyOf(dockedPlanet, newCapacity);
+        dockingProgress = Arrays.copyOf(dockingProgress, newCapacity);
+        weaponCooldown = Arrays.copyOf(weaponCooldown, newCapacity);
+        velocityX = Arrays.copyOf(velocityX, newCapacity);
+        velocityY = Arrays.copyOf(velocityY, newCapacity);
+        dockingSpots = Arrays.copyOf(dockingSpots, newCapacity);
+        currentProduction = Arrays.copyOf(currentProduction, newCapacity);
+        remainingProduction = Arrays.copyOf(remainingProduction, newCapacity);
+        dockedShipCount = Arrays.copyOf(dockedShipCount, newCapacity);
+        dockedShips = Arrays.copyOf(dockedShips, newCapacity);
+    }
+}
@@ -1,11 +1,11 @@
 package hlt;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.Collections;
-import java.util.Collection;
 
 public class GameMap {
     private final int width, height;
@@ -15,6 +15,19 @@ public class GameMap {
     private final Map<Integer, Planet> planets;
     private final List<Ship> allShips;
     private final List<Ship> allShipsUnmodifiable;
+    private final SpatialGrid spatialGrid;
+    private final NearestQueries nearestQueries;
+    private TurnBudget turnBudget;
+    private final TurnMetrics metrics;
+
+    private final List<Map<Integer, Ship>> playerShips;
+    private final List<IntObjectMap<Ship>> playerShipsById;
+    private EntityStore shipStore;
+    private EntityStore planetStore;
+    private final MapDiff diff;
+    private final MotionHistory motionHistory;
+    private boolean incrementalUpdates = false;
+    private int updateCount = 0;
 
     // used only during parsing to reduce memory allocations
     private final List<Ship> currentShips = new ArrayList<>();
@@ -28,6 +41,16 @@ public class GameMap {
         planets = new TreeMap<>();
         allShips = new ArrayList<>();
         allShipsUnmodifiable = Collections.unmodifiableList(allShips);
+        spatialGrid = new SpatialGrid();
+        nearestQueries = new NearestQueries(this);
+        turnBudget = new TurnBudget(TurnBudget.DEFAULT_BUDGET_MILLIS);
+        metrics = new TurnMetrics();
+        playerShips = new ArrayList<>(Constants.MAX_PLAYERS);
+        playerShipsById = new ArrayList<>(Constants.MAX_PLAYERS);
+        shipStore = new EntityStore(64);
+        planetStore = new EntityStore(32);
+        diff = new MapDiff();
+        motionHistory = new MotionHistory();
     }
 
     public int getHeight() {
@@ -55,7 +78,20 @@ public class GameMap {
     }
 
     public Planet getPlanet(final int entityId) {
-        return planets.get(entityId);
+        return (Planet) planetStore.viewOf(entityId);
+    }
+
+    /** Ship with the given id whoever owns it, or null. */
+    public Ship getShip(final int entityId) {
+        return (Ship) shipStore.viewOf(entityId);
+    }
+
+    public EntityStore getShipStore() {
+        return shipStore;
+    }
+
+    public EntityStore getPlanetStore() {
+        return planetStore;
     }
 
     public Map<Integer, Planet> getAllPlanets() {
@@ -69,26 +105,92 @@ public class GameMap {
     public ArrayList<Entity> objectsBetween(Position start, Position target) {
         final ArrayList<Entity> entitiesFound = new ArrayList<>();
 
-        addEntitiesBetween(entitiesFound, start, target, planets.values());
-        addEntitiesBetween(entitiesFound, start, target, allShips);
+        metrics.count(TurnMetrics.Counter.ObjectsBetween);
+        final SpatialGrid.Query query = spatialGrid.query();
+        final int candidateCount = query.testSegment(
+                start.getXPos(), start.getYPos(), target.getXPos(), target.getYPos(), Constants.FORECAST_FUDGE_FACTOR);
+        for (int i = 0; i < candidateCount; ++i) {
+            if (!query.isHit(i)) {
+                continue;
+            }
+            final Entity entity = spatialGrid.getEntity(query.getCandidate(i));
+            if (!entity.equals(start) && !entity.equals(target)) {
+                entitiesFound.add(entity);
+            }
+        }
 
         return entitiesFound;
     }
 
-    private static void addEntitiesBetween(final List<Entity> entitiesFound,
-                                           final Position start, final Position target,
-                                           final Collection<? extends Entity> entitiesToCheck) {
+    /**
+     * Same as !objectsBetween(start, target).isEmpty(), but stops at the first obstacle and builds no list.
+     */
+    public boolean anyObjectBetween(final Position start, final Position target) {
+        metrics.count(TurnMetrics.Counter.ObjectsBetween);
+        final SpatialGrid.Query query = spatialGrid.query();
+        final int candidateCount = query.testSegment(
+                start.getXPos(), start.getYPos(), target.getXPos(), target.getYPos(), Constants.FORECAST_FUDGE_FACTOR);
+        for (int i = 0; i < candidateCount; ++i) {
+            if (!query.isHit(i)) {
+                continue;
+            }
+            final Entity entity = spatialGrid.getEntity(query.getCandidate(i));
+            if (!entity.equals(start) && !entity.equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * anyObjectBetween() towards a plain point, which unlike an entity can never be excluded as the target.
+     */
+    public boolean anyObjectBetween(final Position start, final double targetX, final double targetY) {
+        final double startX = start.getXPos();
+        final double startY = start.getYPos();
+        metrics.count(TurnMetrics.Counter.ObjectsBetween);
+        final SpatialGrid.Query query = spatialGrid.query();
+        final int candidateCount = query.testSegment(startX, startY, targetX, targetY, Constants.FORECAST_FUDGE_FACTOR);
+        for (int i = 0; i < candidateCount; ++i) {
+            if (query.isHit(i) && !spatialGrid.getEntity(query.getCandidate(i)).equals(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        for (final Entity entity : entitiesToCheck) {
-            if (entity.equals(start) || entity.equals(target)) {
+    /**
+     * Whether the ship, moving by (dx, dy) this turn, would come within fudge of a ship of another
+     * player moving by its MotionHistory estimate. Only ships the move could reach are looked at.
+     */
+    public boolean anyEnemyOnCollisionCourse(final Ship ship, final double dx, final double dy, final double fudge) {
+        final double x = ship.getXPos();
+        final double y = ship.getYPos();
+        final double reach = 0.5 * Math.sqrt(dx * dx + dy * dy) + Constants.MAX_SPEED
+                + 2 * Constants.SHIP_RADIUS + fudge;
+        metrics.count(TurnMetrics.Counter.ObjectsBetween);
+        final SpatialGrid.Query query = spatialGrid.query();
+        final int candidateCount = query.collectRadiusCandidates(x + 0.5 * dx, y + 0.5 * dy, reach);
+        for (int i = 0; i < candidateCount; ++i) {
+            final Entity entity = spatialGrid.getEntity(query.getCandidate(i));
+            if (!(entity instanceof Ship) || entity.getOwner() == ship.getOwner()) {
                 continue;
             }
-            if (Collision.segmentCircleIntersect(start, target, entity, Constants.FORECAST_FUDGE_FACTOR)) {
-                entitiesFound.add(entity);
+            final int otherId = entity.getId();
+            if (Collision.movingCirclesIntersect(x, y, dx, dy, ship.getRadius(),
+                    entity.getXPos(), entity.getYPos(),
+                    motionHistory.getVelocityX(otherId), motionHistory.getVelocityY(otherId),
+                    entity.getRadius(), fudge)) {
+                return true;
             }
         }
+        return false;
     }
 
+    /**
+     * Entities at equal distances share a key, so all but the last one are dropped; NearestQueries
+     * keeps them.
+     */
     public Map<Double, Entity> nearbyEntitiesByDistance(final Entity entity) {
         final Map<Double, Entity> entityByDistance = new TreeMap<>();
 
@@ -109,41 +211,183 @@ public class GameMap {
         return entityByDistance;
     }
 
-    public GameMap updateMap(final Metadata mapMetadata) {
+    public Map<Double, Entity> nearbyEntitiesByDistance(final Entity entity, final double maxDistance) {
+        final Map<Double, Entity> entityByDistance = new TreeMap<>();
+
+        final SpatialGrid.Query query = spatialGrid.query();
+        final int candidateCount = query.collectRadiusCandidates(entity.getXPos(), entity.getYPos(), maxDistance);
+        for (int i = 0; i < candidateCount; ++i) {
+            final Entity other = spatialGrid.getEntity(query.getCandidate(i));
+            if (other.equals(entity)) {
+                continue;
+            }
+            final double distance = entity.getDistanceTo(other);
+            if (distance <= maxDistance) {
+                entityByDistance.put(distance, other);
+            }
+        }
+
+        return entityByDistance;
+    }
+
+    public SpatialGrid getSpatialGrid() {
+        return spatialGrid;
+    }
+
+    /**
+     * Memoised nearest-entity queries for the current turn.
+     */
+    public NearestQueries getNearestQueries() {
+        return nearestQueries;
+    }
+
+    public TurnBudget getTurnBudget() {
+        return turnBudget;
+    }
+
+    public void setTurnBudget(final TurnBudget turnBudget) {
+        this.turnBudget = turnBudget;
+    }
+
+    public TurnMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Recent positions and estimated velocities of every ship, updated by updateMap().
+     */
+    public MotionHistory getMotionHistory() {
+        return motionHistory;
+    }
+
+    public MapDiff getLastDiff() {
+        return diff;
+    }
+
+    public boolean isIncrementalUpdates() {
+        return incrementalUpdates;
+    }
+
+    /**
+     * In incremental mode updateMap() keeps the same Ship, Planet and Player instances across turns
+     * and updates them in place by id; otherwise every turn gets fresh instances.
+     * The MapDiff returned by getLastDiff() is maintained in both modes.
+     */
+    public void setIncrementalUpdates(final boolean incrementalUpdates) {
+        this.incrementalUpdates = incrementalUpdates;
+    }
+
+    public GameMap updateMap(final TokenSource mapMetadata) {
+        ++updateCount;
+        diff.clear();
+
+        final EntityStore previousShipStore = shipStore;
+        final EntityStore previousPlanetStore = planetStore;
+        if (!incrementalUpdates) {
+            shipStore = new EntityStore(previousShipStore.getSlotCount());
+            planetStore = new EntityStore(previousPlanetStore.getSlotCount());
+        }
+
         final int numberOfPlayers = MetadataParser.parsePlayerNum(mapMetadata);
 
-        players.clear();
-        planets.clear();
         allShips.clear();
 
         // update players info
         for (int i = 0; i < numberOfPlayers; ++i) {
             currentShips.clear();
-            final Map<Integer, Ship> currentPlayerShips = new TreeMap<>();
             final int playerId = MetadataParser.parsePlayerId(mapMetadata);
 
-            final Player currentPlayer = new Player(playerId, currentPlayerShips);
-            MetadataParser.populateShipList(currentShips, playerId, mapMetadata);
-            allShips.addAll(currentShips);
+            final Map<Integer, Ship> previousPlayerShips = i < playerShips.size() ? playerShips.get(i) : Collections.emptyMap();
+            final int firstSpawned = diff.getSpawnedShips().size();
+            MetadataParser.populateShipList(currentShips, playerId, shipStore, previousShipStore, updateCount, diff, mapMetadata);
+            for (int j = 0; j < currentShips.size(); ++j) {
+                allShips.add(currentShips.get(j));
+            }
 
+            if (incrementalUpdates && i < players.size()) {
+                final IntObjectMap<Ship> playerShipsById = this.playerShipsById.get(i);
+                final Iterator<Ship> previousShipsIterator = previousPlayerShips.values().iterator();
+                while (previousShipsIterator.hasNext()) {
+                    final Ship ship = previousShipsIterator.next();
+                    if (shipStore.lastSeenUpdate[ship.slot] != updateCount) {
+                        diff.shipDestroyed(ship);
+                        previousShipsIterator.remove();
+                        playerShipsById.remove(ship.getId());
+                        shipStore.releaseSlot(ship.slot);
+                    }
+                }
+                for (int j = firstSpawned; j < diff.getSpawnedShips().size(); ++j) {
+                    final Ship ship = diff.getSpawnedShips().get(j);
+                    previousPlayerShips.put(ship.getId(), ship);
+                    playerShipsById.put(ship.getId(), ship);
+                }
+                continue;
+            }
+
+            for (final Ship ship : previousPlayerShips.values()) {
+                if (previousShipStore.lastSeenUpdate[ship.slot] != updateCount) {
+                    diff.shipDestroyed(ship);
+                }
+            }
+            final Map<Integer, Ship> currentPlayerShips = new TreeMap<>();
+            final IntObjectMap<Ship> currentPlayerShipsById = new IntObjectMap<>(currentShips.size());
             for (final Ship ship : currentShips) {
                 currentPlayerShips.put(ship.getId(), ship);
+                currentPlayerShipsById.put(ship.getId(), ship);
+            }
+            final Player currentPlayer = new Player(playerId, currentPlayerShips, currentPlayerShipsById);
+            if (i < players.size()) {
+                players.set(i, currentPlayer);
+                playerShips.set(i, currentPlayerShips);
+                playerShipsById.set(i, currentPlayerShipsById);
+            } else {
+                players.add(currentPlayer);
+                playerShips.add(currentPlayerShips);
+                playerShipsById.add(currentPlayerShipsById);
             }
-            players.add(currentPlayer);
         }
 
-        final int numberOfPlanets = Integer.parseInt(mapMetadata.pop());
+        if (!incrementalUpdates) {
+            planets.clear();
+        }
+
+        final int numberOfPlanets = mapMetadata.popInt();
 
         for (int i = 0; i < numberOfPlanets; ++i) {
-            final List<Integer> dockedShips = new ArrayList<>();
-            final Planet planet = MetadataParser.newPlanetFromMetadata(dockedShips, mapMetadata);
+            final Planet planet = MetadataParser.planetFromMetadata(planetStore, previousPlanetStore, updateCount, diff, mapMetadata);
             planets.put(planet.getId(), planet);
         }
 
+        for (int slot = 0; slot < previousPlanetStore.getSlotCount(); ++slot) {
+            if (previousPlanetStore.isLive(slot) && previousPlanetStore.lastSeenUpdate[slot] != updateCount) {
+                final Planet planet = (Planet) previousPlanetStore.getView(slot);
+                diff.planetDestroyed(planet);
+                if (incrementalUpdates) {
+                    planets.remove(planet.getId());
+                    planetStore.releaseSlot(slot);
+                }
+            }
+        }
+
+        shipStore.commitReleases();
+        planetStore.commitReleases();
+
         if (!mapMetadata.isEmpty()) {
             throw new IllegalStateException("Failed to parse data from Halite game engine. Please contact maintainers.");
         }
 
+        final List<Ship> destroyedShips = diff.getDestroyedShips();
+        for (int i = 0; i < destroyedShips.size(); ++i) {
+            motionHistory.forget(destroyedShips.get(i).getId());
+        }
+        for (int i = 0; i < allShips.size(); ++i) {
+            final Ship ship = allShips.get(i);
+            motionHistory.record(ship.getId(), ship.getXPos(), ship.getYPos(), updateCount);
+        }
+
+        spatialGrid.rebuild(planets.values(), allShips);
+        nearestQueries.invalidate();
+
         return this;
     }
 }
@@ -0,0 +1,74 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of one simulated game.
+ */
+public class GameResult {
+    private final long seed;
+    private final int turns;
+    private final int[] ranks;
+    private final int[] ships;
+    private final int[] errors;
+    private final long[][] turnNanos;
+
+    GameResult(final long seed, final int turns, final int[] ranks, final int[] ships, final int[] errors,
+               final long[][] turnNanos) {
+        this.seed = seed;
+        this.turns = turns;
+        this.ranks = ranks;
+        this.ships = ships;
+        this.errors = errors;
+        this.turnNanos = turnNanos;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getNumberOfPlayers() {
+        return ranks.length;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * @return the player's final rank, 1 for the winner
+     */
+    public int getRank(final int playerId) {
+        return ranks[playerId];
+    }
+
+    public int getWinner() {
+        for (int player = 0; player < ranks.length; ++player) {
+            if (ranks[player] == 1) {
+                return player;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of ships the player had when the game ended
+     */
+    public int getShips(final int playerId) {
+        return ships[playerId];
+    }
+
+    /**
+     * @return the number of turns in which the player's bot threw an exception
+     */
+    public int getErrors(final int playerId) {
+        return errors[playerId];
+    }
+
+    /**
+     * @return the time the player's bot spent in update() on each turn it played
+     */
+    public long[] getTurnNanos(final int playerId) {
+        return Arrays.copyOf(turnNanos[playerId], turnNanos[playerId].length);
+    }
+}
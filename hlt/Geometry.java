@@ -0,0 +1,73 @@
+package hlt;
+
+/**
+ * Allocation-free geometry for hot loops, next to the Position methods it mirrors.
+ *
+ * The engine only takes whole degrees, so sines and cosines of them come from tables built with
+ * the same Math calls the rest of the code makes; a table lookup is bit-identical to
+ * Math.cos(Math.toRadians(deg)). Squared distances skip the square root and are the right tool to
+ * compare distances with each other or with a range. They can disagree with comparing
+ * Position.getDistanceTo() results only when the two sides are within an ulp or so of each other.
+ */
+public final class Geometry {
+
+    private static final double[] COS_DEG = new double[360];
+    private static final double[] SIN_DEG = new double[360];
+
+    static {
+        for (int deg = 0; deg < 360; ++deg) {
+            final double rad = Math.toRadians(deg);
+            COS_DEG[deg] = Math.cos(rad);
+            SIN_DEG[deg] = Math.sin(rad);
+        }
+    }
+
+    private Geometry() {
+    }
+
+    /**
+     * @return the angle in [0, 360) equal to deg modulo 360
+     */
+    public static int normalizeDeg(final int deg) {
+        final int normalized = deg % 360;
+        return normalized < 0 ? normalized + 360 : normalized;
+    }
+
+    /** Math.cos(Math.toRadians(deg)) for any whole degree, from a table. */
+    public static double cosDeg(final int deg) {
+        return COS_DEG[normalizeDeg(deg)];
+    }
+
+    /** Math.sin(Math.toRadians(deg)) for any whole degree, from a table. */
+    public static double sinDeg(final int deg) {
+        return SIN_DEG[normalizeDeg(deg)];
+    }
+
+    public static double distanceSquared(final double fromX, final double fromY, final double toX, final double toY) {
+        final double dx = fromX - toX;
+        final double dy = fromY - toY;
+        return dx * dx + dy * dy;
+    }
+
+    public static double distanceSquared(final Position from, final Position to) {
+        return distanceSquared(from.getXPos(), from.getYPos(), to.getXPos(), to.getYPos());
+    }
+
+    /**
+     * @return whether the two points are at most range apart, without a square root
+     */
+    public static boolean isWithin(final Position from, final Position to, final double range) {
+        return distanceSquared(from, to) <= range * range;
+    }
+
+    /**
+     * Position.getClosestPoint() into out instead of a new Position, with bit-identical coordinates.
+     *
+     * @return out
+     */
+    public static Vec closestPoint(final Position from, final Entity target, final Vec out) {
+        final double radius = target.getRadius() + Constants.MIN_DISTANCE_FOR_CLOSEST_POINT;
+        final double angleRad = target.orientTowardsInRad(from);
+        return out.set(target.getXPos() + radius * Math.cos(angleRad), target.getYPos() + radius * Math.sin(angleRad));
+    }
+}
@@ -0,0 +1,131 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to non-null values, with linear probing and no boxing.
+ */
+public class IntObjectMap<V> {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    public IntObjectMap() {
+        this(16);
+    }
+
+    public IntObjectMap(final int expectedSize) {
+        allocate(IntIntMap.tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(final int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(final int key) {
+        final int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    public void put(final int key, final V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntObjectMap does not accept null values");
+        }
+        final int mask = keys.length - 1;
+        int index = IntIntMap.hash(key) & mask;
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(final int key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        final V removed = (V) values[index];
+        --size;
+
+        // Shift later entries of the probe chain back so lookups never hit a hole.
+        final int mask = keys.length - 1;
+        int next = (index + 1) & mask;
+        while (values[next] != null) {
+            final int home = IntIntMap.hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[index] = null;
+
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(final int key) {
+        final int mask = keys.length - 1;
+        int index = IntIntMap.hash(key) & mask;
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(final int capacity) {
+        final int[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != null) {
+                putUnchecked(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void putUnchecked(final int key, final Object value) {
+        final int mask = keys.length - 1;
+        int index = IntIntMap.hash(key) & mask;
+        while (values[index] != null) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        ++size;
+    }
+
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+}
@@ -1,28 +1,220 @@
 package hlt;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Asynchronous logger.
+ *
+ * log() only puts the message into a lock-free ring buffer; a background thread drains it in
+ * batches, writes each batch with a single flush, and drains whatever is left at shutdown.
+ * Messages below the current level are discarded before they are enqueued, and callers that
+ * build expensive messages should check isEnabled() first so the string is never built.
+ * Before initialize() is called every level is disabled.
+ */
 public class Log {
 
-    private final FileWriter file;
-    private static Log instance;
+    public enum Level { Debug, Info, Warning, Error }
 
-    private Log(final FileWriter f) {
+    public enum OverflowPolicy {
+        /** Discard the message being logged and count it as dropped. */
+        DropNewest,
+        /** Wait for the writer thread to make room. */
+        Block
+    }
+
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static volatile Log instance;
+    private static volatile Level level = parseLevel(System.getProperty("hlt.log.level"));
+    private static volatile OverflowPolicy overflowPolicy = OverflowPolicy.DropNewest;
+
+    private final Writer file;
+    private final AtomicReferenceArray<String> ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    // used only by the writer thread
+    private final StringBuilder batch = new StringBuilder(1 << 16);
+    private long droppedReported = 0;
+
+    private Log(final Writer f, final int capacity) {
         file = f;
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        writerThread = new Thread(this::writeLoop, "hlt-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    static void initialize(final Writer f) {
+        final Log log = new Log(f, DEFAULT_CAPACITY);
+        instance = log;
+        Runtime.getRuntime().addShutdownHook(new Thread(log::close, "hlt-log-shutdown"));
+    }
+
+    /**
+     * @return the level named by value, or Info when it is missing or names no level
+     */
+    static Level parseLevel(final String value) {
+        if (value != null) {
+            for (final Level candidate : Level.values()) {
+                if (candidate.name().equalsIgnoreCase(value.trim())) {
+                    return candidate;
+                }
+            }
+        }
+        return Level.Info;
+    }
+
+    public static void setLevel(final Level newLevel) {
+        level = newLevel;
+    }
+
+    public static Level getLevel() {
+        return level;
     }
 
-    static void initialize(final FileWriter f) {
-        instance = new Log(f);
+    public static void setOverflowPolicy(final OverflowPolicy policy) {
+        overflowPolicy = policy;
+    }
+
+    public static boolean isEnabled(final Level messageLevel) {
+        return instance != null && messageLevel.compareTo(level) >= 0;
     }
 
     public static void log(final String message) {
+        log(Level.Info, message);
+    }
+
+    public static void log(final Level messageLevel, final String message) {
+        final Log log = instance;
+        if (log == null || messageLevel.compareTo(level) < 0) {
+            return;
+        }
+        // A null slot in the ring means "not published yet", so null itself must never be stored.
+        log.enqueue(String.valueOf(message));
+    }
+
+    /** Number of messages discarded so far because the buffer was full. */
+    public static long getDroppedCount() {
+        final Log log = instance;
+        return log == null ? 0 : log.dropped.get();
+    }
+
+    /** Block until everything logged so far has been written and flushed. */
+    public static void flush() {
+        final Log log = instance;
+        if (log == null) {
+            return;
+        }
+        final long target = log.head.get();
+        while (log.tail.get() < target && log.writerThread.isAlive()) {
+            LockSupport.unpark(log.writerThread);
+            Thread.yield();
+        }
+    }
+
+    private void enqueue(final String message) {
+        for (;;) {
+            final long position = head.get();
+            if (position - tail.get() > mask) {
+                if (overflowPolicy == OverflowPolicy.DropNewest || !running) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(writerThread);
+                Thread.yield();
+                continue;
+            }
+            if (head.compareAndSet(position, position + 1)) {
+                // A null slot tells the writer the claimed message is not published yet.
+                ring.set((int) position & mask, message);
+                return;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            if (drainBatch() == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        // close() stopped the loop; write what was published before it did.
+        drainAll();
+    }
+
+    private void drainAll() {
+        while (drainBatch() > 0) {
+            // keep draining
+        }
+    }
+
+    /**
+     * @return the number of messages written
+     */
+    private int drainBatch() {
+        long position = tail.get();
+        int count = 0;
+        String message;
+        while (count <= mask && (message = ring.get((int) position & mask)) != null) {
+            ring.lazySet((int) position & mask, null);
+            batch.append(message).append('\n');
+            ++position;
+            ++count;
+        }
+
+        final long droppedNow = dropped.get();
+        if (droppedNow != droppedReported) {
+            batch.append("[log] ").append(droppedNow - droppedReported).append(" messages dropped, buffer full\n");
+            droppedReported = droppedNow;
+        }
+
+        if (batch.length() > 0) {
+            try {
+                file.append(batch);
+                file.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            batch.setLength(0);
+        }
+        // Publish the free space only once the batch is written, so flush() waits for the write.
+        tail.set(position);
+        return count;
+    }
+
+    private synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
         try {
-            instance.file.write(message);
-            instance.file.write('\n');
-            instance.file.flush();
+            writerThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        catch (IOException e) {
+        // Only the writer thread touches the batch and the tail while it runs; if it is still
+        // busy with its final drain, leave the rest to it rather than write concurrently.
+        if (writerThread.isAlive()) {
+            return;
+        }
+        // Producers may still have published messages after the writer stopped.
+        drainAll();
+        try {
+            file.close();
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
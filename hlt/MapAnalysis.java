@@ -0,0 +1,296 @@
+package hlt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Static facts about the map computed once from the pre-game state, when the engine gives the bot
+ * a minute to think. Planets never move, so everything here stays valid for the whole game apart
+ * from planets that get destroyed, which callers see through the GameMap.
+ *
+ * - distances between every two planets, center to center and surface to surface
+ * - clusters: planets chained together by surface gaps of at most CLUSTER_GAP
+ * - approach points: APPROACH_POINTS spots around each planet within docking range, on the map
+ *   and clear of the other planets
+ * - for every player, the planets ordered by distance from the center of its starting ships
+ *
+ * Instances are immutable and every lookup by planet id is O(1).
+ */
+public class MapAnalysis {
+
+    /** Largest surface gap between two planets of the same cluster. */
+    public static final double CLUSTER_GAP = 15.0;
+
+    /** Number of approach points computed around each planet. */
+    public static final int APPROACH_POINTS = 16;
+
+    /** Distance of the approach points from the planet's surface, inside the docking range. */
+    public static final double APPROACH_DISTANCE = Constants.DOCK_RADIUS - Constants.SHIP_RADIUS;
+
+    private static final int NO_INDEX = -1;
+
+    private final int[] planetIds;
+    private final int[] indexById;
+    private final double[] radius;
+    private final double[] centerDistance;
+    private final int[] clusterOf;
+    private final List<List<Integer>> clusters;
+    private final List<List<Position>> approachPoints;
+    private final int[] playerIds;
+    private final List<List<Integer>> rankings;
+    private final int[][] rankOf;
+
+    private MapAnalysis(final GameMap gameMap) {
+        final List<Planet> planets = new ArrayList<>(gameMap.getAllPlanets().values());
+        final int count = planets.size();
+
+        planetIds = new int[count];
+        radius = new double[count];
+        int maxId = -1;
+        for (int i = 0; i < count; ++i) {
+            planetIds[i] = planets.get(i).getId();
+            radius[i] = planets.get(i).getRadius();
+            maxId = Math.max(maxId, planetIds[i]);
+        }
+        indexById = new int[maxId + 1];
+        Arrays.fill(indexById, NO_INDEX);
+        for (int i = 0; i < count; ++i) {
+            indexById[planetIds[i]] = i;
+        }
+
+        centerDistance = new double[count * count];
+        for (int i = 0; i < count; ++i) {
+            for (int j = i + 1; j < count; ++j) {
+                final double distance = planets.get(i).getDistanceTo(planets.get(j));
+                centerDistance[i * count + j] = distance;
+                centerDistance[j * count + i] = distance;
+            }
+        }
+
+        clusterOf = new int[count];
+        clusters = findClusters(count);
+        approachPoints = findApproachPoints(gameMap, planets);
+
+        final List<Player> players = gameMap.getAllPlayers();
+        playerIds = new int[players.size()];
+        rankings = new ArrayList<>(players.size());
+        rankOf = new int[players.size()][count];
+        for (int p = 0; p < players.size(); ++p) {
+            playerIds[p] = players.get(p).getId();
+            rankings.add(rankFromStart(players.get(p), planets, rankOf[p]));
+        }
+    }
+
+    /**
+     * Analyse the map; meant for the pre-game state, before any ship has moved.
+     */
+    public static MapAnalysis analyze(final GameMap gameMap) {
+        return new MapAnalysis(gameMap);
+    }
+
+    public int getPlanetCount() {
+        return planetIds.length;
+    }
+
+    /**
+     * @return the distance between the two planets' centers
+     */
+    public double getDistance(final int planetId, final int otherPlanetId) {
+        return centerDistance[index(planetId) * planetIds.length + index(otherPlanetId)];
+    }
+
+    /**
+     * @return the distance between the two planets' surfaces
+     */
+    public double getSurfaceDistance(final int planetId, final int otherPlanetId) {
+        final int i = index(planetId);
+        final int j = index(otherPlanetId);
+        return i == j ? 0.0 : centerDistance[i * planetIds.length + j] - radius[i] - radius[j];
+    }
+
+    /**
+     * @return the cluster number of the planet, from 0 to getClusterCount() - 1
+     */
+    public int getCluster(final int planetId) {
+        return clusterOf[index(planetId)];
+    }
+
+    public int getClusterCount() {
+        return clusters.size();
+    }
+
+    /**
+     * @return the ids of the planets in the cluster, in ascending order
+     */
+    public List<Integer> getClusterPlanets(final int cluster) {
+        return clusters.get(cluster);
+    }
+
+    /**
+     * @return the points around the planet from which a ship can dock, by angle from the planet;
+     *         may be empty for a planet boxed in by the map edge and its neighbours
+     */
+    public List<Position> getApproachPoints(final int planetId) {
+        return approachPoints.get(index(planetId));
+    }
+
+    /**
+     * @return the approach point of the planet closest to (x, y), or null if it has none
+     */
+    public Position getClosestApproachPoint(final int planetId, final double x, final double y) {
+        Position best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (final Position point : approachPoints.get(index(planetId))) {
+            final double dx = point.getXPos() - x;
+            final double dy = point.getYPos() - y;
+            final double distance = dx * dx + dy * dy;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = point;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the planet ids ordered by distance from the player's starting ships, closest first
+     */
+    public List<Integer> getPlanetRanking(final int playerId) {
+        return rankings.get(playerIndex(playerId));
+    }
+
+    /**
+     * @return the planet's position in getPlanetRanking(playerId), 0 for the closest
+     */
+    public int getRank(final int playerId, final int planetId) {
+        return rankOf[playerIndex(playerId)][index(planetId)];
+    }
+
+    private int index(final int planetId) {
+        final int index = planetId >= 0 && planetId < indexById.length ? indexById[planetId] : NO_INDEX;
+        if (index == NO_INDEX) {
+            throw new IllegalArgumentException("Unknown planet " + planetId);
+        }
+        return index;
+    }
+
+    private int playerIndex(final int playerId) {
+        for (int p = 0; p < playerIds.length; ++p) {
+            if (playerIds[p] == playerId) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException("Unknown player " + playerId);
+    }
+
+    /** Single-linkage clustering with a union-find over the planet indices. */
+    private List<List<Integer>> findClusters(final int count) {
+        final int[] parent = new int[count];
+        for (int i = 0; i < count; ++i) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < count; ++i) {
+            for (int j = i + 1; j < count; ++j) {
+                if (centerDistance[i * count + j] - radius[i] - radius[j] <= CLUSTER_GAP) {
+                    parent[root(parent, i)] = root(parent, j);
+                }
+            }
+        }
+
+        // Number the clusters in order of their lowest planet id.
+        final Integer[] byId = new Integer[count];
+        for (int i = 0; i < count; ++i) {
+            byId[i] = i;
+        }
+        Arrays.sort(byId, (a, b) -> Integer.compare(planetIds[a], planetIds[b]));
+        final int[] clusterOfRoot = new int[count];
+        Arrays.fill(clusterOfRoot, NO_INDEX);
+        final List<List<Integer>> members = new ArrayList<>();
+        for (final int i : byId) {
+            final int root = root(parent, i);
+            if (clusterOfRoot[root] == NO_INDEX) {
+                clusterOfRoot[root] = members.size();
+                members.add(new ArrayList<>());
+            }
+            clusterOf[i] = clusterOfRoot[root];
+            members.get(clusterOf[i]).add(planetIds[i]);
+        }
+
+        final List<List<Integer>> result = new ArrayList<>(members.size());
+        for (final List<Integer> cluster : members) {
+            result.add(Collections.unmodifiableList(cluster));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static int root(final int[] parent, final int index) {
+        int root = index;
+        while (parent[root] != root) {
+            parent[root] = parent[parent[root]];
+            root = parent[root];
+        }
+        return root;
+    }
+
+    private static List<List<Position>> findApproachPoints(final GameMap gameMap, final List<Planet> planets) {
+        final double margin = Constants.SHIP_RADIUS + Constants.FORECAST_FUDGE_FACTOR;
+        final List<List<Position>> result = new ArrayList<>(planets.size());
+        for (final Planet planet : planets) {
+            final List<Position> points = new ArrayList<>(APPROACH_POINTS);
+            final double distance = planet.getRadius() + APPROACH_DISTANCE;
+            for (int k = 0; k < APPROACH_POINTS; ++k) {
+                final double angle = 2 * Math.PI * k / APPROACH_POINTS;
+                final double x = planet.getXPos() + Math.cos(angle) * distance;
+                final double y = planet.getYPos() + Math.sin(angle) * distance;
+                if (x < margin || y < margin || x > gameMap.getWidth() - margin || y > gameMap.getHeight() - margin) {
+                    continue;
+                }
+                boolean clear = true;
+                for (final Planet other : planets) {
+                    if (other != planet && Math.hypot(other.getXPos() - x, other.getYPos() - y) <= other.getRadius() + margin) {
+                        clear = false;
+                        break;
+                    }
+                }
+                if (clear) {
+                    points.add(new Position(x, y));
+                }
+            }
+            result.add(Collections.unmodifiableList(points));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Order the planets by center distance from the centroid of the player's ships, ties by id,
+     * and fill in each planet's rank.
+     */
+    private List<Integer> rankFromStart(final Player player, final List<Planet> planets, final int[] rank) {
+        double x = 0.0;
+        double y = 0.0;
+        final int ships = player.getShips().size();
+        for (final Ship ship : player.getShips().values()) {
+            x += ship.getXPos();
+            y += ship.getYPos();
+        }
+        final Position start = ships == 0 ? null : new Position(x / ships, y / ships);
+
+        final Integer[] order = new Integer[planets.size()];
+        final double[] distance = new double[planets.size()];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+            distance[i] = start == null ? 0.0 : start.getDistanceTo(planets.get(i));
+        }
+        Arrays.sort(order, (a, b) -> distance[a] != distance[b]
+                ? Double.compare(distance[a], distance[b]) : Integer.compare(planetIds[a], planetIds[b]));
+
+        final List<Integer> ranking = new ArrayList<>(order.length);
+        for (int r = 0; r < order.length; ++r) {
+            rank[order[r]] = r;
+            ranking.add(planetIds[order[r]]);
+        }
+        return Collections.unmodifiableList(ranking);
+    }
+}
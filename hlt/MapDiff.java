@@ -0,0 +1,78 @@
+package hlt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What changed between the previous and the current GameMap.updateMap() call.
+ *
+ * The lists are reused across turns and are only valid until the next update.
+ * Ships and planets appear in the order the engine sent them.
+ */
+public class MapDiff {
+    private final List<Ship> spawnedShips = new ArrayList<>();
+    private final List<Ship> destroyedShips = new ArrayList<>();
+    private final List<Ship> movedShips = new ArrayList<>();
+    private final List<Planet> planetsChangedOwner = new ArrayList<>();
+    private final List<Planet> destroyedPlanets = new ArrayList<>();
+
+    private final List<Ship> spawnedShipsUnmodifiable = Collections.unmodifiableList(spawnedShips);
+    private final List<Ship> destroyedShipsUnmodifiable = Collections.unmodifiableList(destroyedShips);
+    private final List<Ship> movedShipsUnmodifiable = Collections.unmodifiableList(movedShips);
+    private final List<Planet> planetsChangedOwnerUnmodifiable = Collections.unmodifiableList(planetsChangedOwner);
+    private final List<Planet> destroyedPlanetsUnmodifiable = Collections.unmodifiableList(destroyedPlanets);
+
+    void clear() {
+        spawnedShips.clear();
+        destroyedShips.clear();
+        movedShips.clear();
+        planetsChangedOwner.clear();
+        destroyedPlanets.clear();
+    }
+
+    void shipSpawned(final Ship ship) {
+        spawnedShips.add(ship);
+    }
+
+    void shipDestroyed(final Ship ship) {
+        destroyedShips.add(ship);
+    }
+
+    void shipMoved(final Ship ship) {
+        movedShips.add(ship);
+    }
+
+    void planetChangedOwner(final Planet planet) {
+        planetsChangedOwner.add(planet);
+    }
+
+    void planetDestroyed(final Planet planet) {
+        destroyedPlanets.add(planet);
+    }
+
+    /** Ships present this turn that were not present in the previous one. */
+    public List<Ship> getSpawnedShips() {
+        return spawnedShipsUnmodifiable;
+    }
+
+    /** Ships present in the previous turn that are gone, as they were last seen. */
+    public List<Ship> getDestroyedShips() {
+        return destroyedShipsUnmodifiable;
+    }
+
+    /** Ships present in both turns whose position changed. */
+    public List<Ship> getMovedShips() {
+        return movedShipsUnmodifiable;
+    }
+
+    /** Planets present in both turns whose owner changed, including becoming unowned. */
+    public List<Planet> getPlanetsChangedOwner() {
+        return planetsChangedOwnerUnmodifiable;
+    }
+
+    /** Planets present in the previous turn that are gone, as they were last seen. */
+    public List<Planet> getDestroyedPlanets() {
+        return destroyedPlanetsUnmodifiable;
+    }
+}
@@ -1,18 +1,160 @@
 package hlt;
 
-public class Metadata {
-    final private String[] metadata;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tokenizer over a single line of the engine protocol.
+ *
+ * The line is kept in a reusable byte buffer and numbers are parsed straight from the bytes,
+ * so reading a turn does not create a String per token.
+ */
+public class Metadata implements TokenSource {
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private byte[] buffer;
+    private int length = 0;
     private int index = 0;
 
-    public Metadata(final String[] metadata) {
-        this.metadata = metadata;
+    public Metadata() {
+        buffer = new byte[1 << 16];
+    }
+
+    public Metadata(final String line) {
+        buffer = line.getBytes(StandardCharsets.ISO_8859_1);
+        length = buffer.length;
+    }
+
+    public void clear() {
+        length = 0;
+        index = 0;
+    }
+
+    public void append(final byte[] source, final int offset, final int count) {
+        if (length + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+        }
+        System.arraycopy(source, offset, buffer, length, count);
+        length += count;
     }
 
-    public String pop() {
-        return metadata[index++];
+    public int length() {
+        return length;
     }
 
     public boolean isEmpty() {
-        return index == metadata.length;
+        skipWhitespace();
+        return index == length;
+    }
+
+    public int popInt() {
+        final long value = popLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of int range: " + value);
+        }
+        return (int) value;
+    }
+
+    public long popLong() {
+        final int start = beginToken();
+        boolean negative = false;
+        if (buffer[index] == '-' || buffer[index] == '+') {
+            negative = buffer[index] == '-';
+            ++index;
+        }
+
+        long value = 0;
+        int digits = 0;
+        for (; index < length && !isWhitespace(buffer[index]); ++index) {
+            final int digit = buffer[index] - '0';
+            if (digit < 0 || digit > 9 || ++digits > 18) {
+                throw new NumberFormatException("Invalid integer: " + tokenAsString(start));
+            }
+            value = value * 10 + digit;
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid integer: " + tokenAsString(start));
+        }
+
+        return negative ? -value : value;
+    }
+
+    public double popDouble() {
+        final int start = beginToken();
+        boolean negative = false;
+        if (buffer[index] == '-' || buffer[index] == '+') {
+            negative = buffer[index] == '-';
+            ++index;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; index < length && !isWhitespace(buffer[index]); ++index) {
+            final byte c = buffer[index];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            final int digit = c - '0';
+            if (digit < 0 || digit > 9 || digits >= 18) {
+                return slowParseDouble(start);
+            }
+            mantissa = mantissa * 10 + digit;
+            ++digits;
+            if (fractionDigits >= 0) {
+                ++fractionDigits;
+            }
+        }
+        if (digits == 0) {
+            return slowParseDouble(start);
+        }
+
+        // Both operands are exactly representable, so the division is correctly rounded
+        // and gives the same result as Double.parseDouble().
+        if (mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+            return slowParseDouble(start);
+        }
+        final double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : (double) mantissa;
+
+        return negative ? -value : value;
+    }
+
+    private double slowParseDouble(final int start) {
+        while (index < length && !isWhitespace(buffer[index])) {
+            ++index;
+        }
+        return Double.parseDouble(tokenAsString(start));
+    }
+
+    private int beginToken() {
+        skipWhitespace();
+        if (index == length) {
+            throw new IllegalStateException("Failed to parse data from Halite game engine. Please contact maintainers.");
+        }
+        return index;
+    }
+
+    private void skipWhitespace() {
+        while (index < length && isWhitespace(buffer[index])) {
+            ++index;
+        }
+    }
+
+    private String tokenAsString(final int start) {
+        int end = start;
+        while (end < length && !isWhitespace(buffer[end])) {
+            ++end;
+        }
+        return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean isWhitespace(final byte c) {
+        // Also covers the carriage return sent by the engine on windows.
+        return c <= ' ';
     }
 }
@@ -1,51 +1,89 @@
 package hlt;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 public class MetadataParser {
 
-    public static void populateShipList(final List<Ship> shipsOutput, final int owner, final Metadata shipsMetadata) {
-        final long numberOfShips = Long.parseLong(shipsMetadata.pop());
+    private static final Ship.DockingStatus[] DOCKING_STATUSES = Ship.DockingStatus.values();
+
+    /**
+     * Parse one player's ships into store. Ships already present in previousStore are reported to
+     * the diff as moved when their position changed, and keep their view when both stores are the
+     * same; other ships get a new view and are reported as spawned. Every parsed ship is stamped
+     * with updateCount in both stores.
+     */
+    public static void populateShipList(final List<Ship> shipsOutput, final int owner,
+                                        final EntityStore store, final EntityStore previousStore,
+                                        final int updateCount, final MapDiff diff, final TokenSource shipsMetadata) {
+        final int numberOfShips = shipsMetadata.popInt();
 
         for(int i = 0; i < numberOfShips; ++i) {
-            shipsOutput.add(newShipFromMetadata(owner, shipsMetadata));
+            shipsOutput.add(shipFromMetadata(owner, store, previousStore, updateCount, diff, shipsMetadata));
         }
     }
 
-    private static Ship newShipFromMetadata(final int owner, final Metadata metadata) {
-        final int id = Integer.parseInt(metadata.pop());
-        final double xPos = Double.parseDouble(metadata.pop());
-        final double yPos = Double.parseDouble(metadata.pop());
-        final int health = Integer.parseInt(metadata.pop());
+    private static Ship shipFromMetadata(final int owner, final EntityStore store, final EntityStore previousStore,
+                                         final int updateCount, final MapDiff diff, final TokenSource metadata) {
+        final int id = metadata.popInt();
+        final double xPos = metadata.popDouble();
+        final double yPos = metadata.popDouble();
+        final int health = metadata.popInt();
+
+        // Always (0,0) in the current engine version; MotionHistory estimates it from positions instead.
+        final double velocityX = metadata.popDouble();
+        final double velocityY = metadata.popDouble();
 
-        // Ignoring velocity(x,y) which is always (0,0) in current version.
-        metadata.pop();
-        metadata.pop();
+        final Ship.DockingStatus dockingStatus = DOCKING_STATUSES[metadata.popInt()];
+        final int dockedPlanet = metadata.popInt();
+        final int dockingProgress = metadata.popInt();
+        final int weaponCooldown = metadata.popInt();
 
-        final Ship.DockingStatus dockingStatus = Ship.DockingStatus.values()[Integer.parseInt(metadata.pop())];
-        final int dockedPlanet = Integer.parseInt(metadata.pop());
-        final int dockingProgress = Integer.parseInt(metadata.pop());
-        final int weaponCooldown = Integer.parseInt(metadata.pop());
+        final int previousSlot = previousStore.slotOf(id);
+        boolean moved = false;
+        if (previousSlot != EntityStore.NO_SLOT) {
+            moved = previousStore.xPos[previousSlot] != xPos || previousStore.yPos[previousSlot] != yPos;
+            previousStore.lastSeenUpdate[previousSlot] = updateCount;
+        }
+
+        final Ship ship;
+        if (previousSlot != EntityStore.NO_SLOT && store == previousStore) {
+            ship = (Ship) store.views[previousSlot];
+        } else {
+            ship = new Ship(store, id);
+        }
+
+        store.setEntity(ship.slot, owner, xPos, yPos, health, Constants.SHIP_RADIUS);
+        store.setShip(ship.slot, dockingStatus, dockedPlanet, dockingProgress, weaponCooldown);
+        store.setVelocity(ship.slot, velocityX, velocityY);
+        store.lastSeenUpdate[ship.slot] = updateCount;
+
+        if (previousSlot == EntityStore.NO_SLOT) {
+            diff.shipSpawned(ship);
+        } else if (moved) {
+            diff.shipMoved(ship);
+        }
 
-        return new Ship(owner, id, xPos, yPos, health, dockingStatus, dockedPlanet, dockingProgress, weaponCooldown);
+        return ship;
     }
 
-    public static Planet newPlanetFromMetadata(final List<Integer> dockedShips, final Metadata metadata) {
-        final int id = Integer.parseInt(metadata.pop());
-        final double xPos = Double.parseDouble(metadata.pop());
-        final double yPos = Double.parseDouble(metadata.pop());
-        final int health = Integer.parseInt(metadata.pop());
+    /**
+     * Parse one planet into store, reusing or replacing its previous view the same way
+     * populateShipList() does for ships. Owner changes are reported to the diff.
+     */
+    public static Planet planetFromMetadata(final EntityStore store, final EntityStore previousStore,
+                                            final int updateCount, final MapDiff diff, final TokenSource metadata) {
+        final int id = metadata.popInt();
+        final double xPos = metadata.popDouble();
+        final double yPos = metadata.popDouble();
+        final int health = metadata.popInt();
 
-        final double radius = Double.parseDouble(metadata.pop());
-        final int dockingSpots = Integer.parseInt(metadata.pop());
-        final int currentProduction = Integer.parseInt(metadata.pop());
-        final int remainingProduction = Integer.parseInt(metadata.pop());
+        final double radius = metadata.popDouble();
+        final int dockingSpots = metadata.popInt();
+        final int currentProduction = metadata.popInt();
+        final int remainingProduction = metadata.popInt();
 
-        final int hasOwner = Integer.parseInt(metadata.pop());
-        final int ownerCandidate = Integer.parseInt(metadata.pop());
+        final int hasOwner = metadata.popInt();
+        final int ownerCandidate = metadata.popInt();
         final int owner;
         if (hasOwner == 1) {
             owner = ownerCandidate;
@@ -53,20 +91,42 @@ public class MetadataParser {
             owner = -1; // ignore ownerCandidate
         }
 
-        final int dockedShipCount = Integer.parseInt(metadata.pop());
+        final int previousSlot = previousStore.slotOf(id);
+        boolean ownerChanged = false;
+        if (previousSlot != EntityStore.NO_SLOT) {
+            ownerChanged = previousStore.owner[previousSlot] != owner;
+            previousStore.lastSeenUpdate[previousSlot] = updateCount;
+        }
+
+        final Planet planet;
+        if (previousSlot != EntityStore.NO_SLOT && store == previousStore) {
+            planet = (Planet) store.views[previousSlot];
+        } else {
+            planet = new Planet(store, id);
+        }
+
+        store.setEntity(planet.slot, owner, xPos, yPos, health, radius);
+        store.setPlanet(planet.slot, dockingSpots, currentProduction, remainingProduction);
+        store.lastSeenUpdate[planet.slot] = updateCount;
+
+        store.clearDockedShips(planet.slot);
+        final int dockedShipCount = metadata.popInt();
         for (int i = 0; i < dockedShipCount; ++i) {
-            dockedShips.add(Integer.parseInt(metadata.pop()));
+            store.addDockedShip(planet.slot, metadata.popInt());
+        }
+
+        if (ownerChanged) {
+            diff.planetChangedOwner(planet);
         }
 
-        return new Planet(owner, id, xPos, yPos, health, radius, dockingSpots,
-                          currentProduction, remainingProduction, dockedShips);
+        return planet;
     }
 
-    public static int parsePlayerNum(final Metadata metadata) {
-        return Integer.parseInt(metadata.pop());
+    public static int parsePlayerNum(final TokenSource metadata) {
+        return metadata.popInt();
     }
 
-    public static int parsePlayerId(final Metadata metadata) {
-        return Integer.parseInt(metadata.pop());
+    public static int parsePlayerId(final TokenSource metadata) {
+        return metadata.popInt();
     }
 }
@@ -0,0 +1,217 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Assigns agents to targets with limited capacity at minimum total cost.
+ *
+ * Agents are added one at a time along a shortest augmenting path: Dijkstra over the targets,
+ * where moving through a full target means one of its agents moves on to another target. Each
+ * target carries a price so that every assigned agent sits on its cheapest target counting
+ * prices, which keeps the path lengths non-negative. An agent can always stay unassigned at a
+ * fixed cost, so a target is only taken when it is cheaper than that.
+ *
+ * Each agent costs O(targets^2 + agents * targets). The deadline is checked before each agent is
+ * added; agents not reached by then stay unassigned, and the ones before them are optimal among
+ * themselves. Agents are added in index order and ties go to the lowest target index, so the
+ * result only depends on the costs. Instances keep their buffers between problems and are not
+ * thread-safe.
+ */
+public class MinCostAssignment {
+
+    public static final int UNASSIGNED = -1;
+
+    private static final int NONE = -1;
+
+    private int agentCount;
+    private int targetCount;
+    private double unassignedCost;
+    private double[] cost = new double[0];
+    private int[] capacity = new int[0];
+
+    // The unassigned option is target index targetCount, with unlimited capacity.
+    private int[] agentTarget = new int[0];
+    private int[] used = new int[0];
+    private double[] price = new double[0];
+    // agents of each target as linked lists
+    private int[] firstAgent = new int[0];
+    private int[] nextAgent = new int[0];
+
+    private double[] distance = new double[0];
+    private int[] predecessor = new int[0];
+    private boolean[] settled = new boolean[0];
+
+    private boolean complete;
+
+    /**
+     * Start a new problem; every cost is infinite (not allowed) and every capacity 1 until set.
+     *
+     * @param unassignedCost the cost of leaving an agent without a target
+     */
+    public void reset(final int agents, final int targets, final double unassignedCost) {
+        this.agentCount = agents;
+        this.targetCount = targets;
+        this.unassignedCost = unassignedCost;
+        if (cost.length < agents * targets) {
+            cost = new double[Math.max(agents * targets, cost.length * 2)];
+        }
+        Arrays.fill(cost, 0, agents * targets, Double.POSITIVE_INFINITY);
+        if (agentTarget.length < agents) {
+            final int length = Math.max(agents, agentTarget.length * 2);
+            agentTarget = new int[length];
+            nextAgent = new int[length];
+        }
+        if (capacity.length < targets + 1) {
+            final int length = Math.max(targets + 1, capacity.length * 2);
+            capacity = new int[length];
+            used = new int[length];
+            price = new double[length];
+            firstAgent = new int[length];
+            distance = new double[length];
+            predecessor = new int[length];
+            settled = new boolean[length];
+        }
+        Arrays.fill(capacity, 0, targets, 1);
+        capacity[targets] = Integer.MAX_VALUE;
+        complete = agents == 0;
+    }
+
+    public void setCapacity(final int target, final int slots) {
+        capacity[target] = slots;
+    }
+
+    public void setCost(final int agent, final int target, final double value) {
+        cost[agent * targetCount + target] = value;
+    }
+
+    /**
+     * @param deadlineNanos System.nanoTime() value after which no more agents are added
+     * @return true if every agent was considered before the deadline
+     */
+    public boolean solve(final long deadlineNanos) {
+        Arrays.fill(agentTarget, 0, agentCount, NONE);
+        Arrays.fill(used, 0, targetCount + 1, 0);
+        Arrays.fill(price, 0, targetCount + 1, 0.0);
+        Arrays.fill(firstAgent, 0, targetCount + 1, NONE);
+        for (int agent = 0; agent < agentCount; ++agent) {
+            if (System.nanoTime() >= deadlineNanos) {
+                complete = false;
+                return false;
+            }
+            augment(agent);
+        }
+        complete = true;
+        return true;
+    }
+
+    /**
+     * @return the target of the agent, or UNASSIGNED
+     */
+    public int getTarget(final int agent) {
+        final int target = agentTarget[agent];
+        return target == NONE || target == targetCount ? UNASSIGNED : target;
+    }
+
+    /**
+     * @return the sum of the assigned costs plus the unassigned cost of every other agent
+     */
+    public double getTotalCost() {
+        double total = 0.0;
+        for (int agent = 0; agent < agentCount; ++agent) {
+            final int target = getTarget(agent);
+            total += target == UNASSIGNED ? unassignedCost : cost[agent * targetCount + target];
+        }
+        return total;
+    }
+
+    /** False if the last solve() ran out of time. */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private double costOf(final int agent, final int target) {
+        return target == targetCount ? unassignedCost : cost[agent * targetCount + target];
+    }
+
+    private void augment(final int agent) {
+        final int targets = targetCount + 1;
+        for (int target = 0; target < targets; ++target) {
+            distance[target] = costOf(agent, target) + price[target];
+            predecessor[target] = agent;
+            settled[target] = false;
+        }
+
+        int sink;
+        for (;;) {
+            int closest = NONE;
+            for (int target = 0; target < targets; ++target) {
+                if (!settled[target] && (closest == NONE || distance[target] < distance[closest])) {
+                    closest = target;
+                }
+            }
+            // The unassigned option is always reachable and never full, so closest is found.
+            settled[closest] = true;
+            if (used[closest] < capacity[closest]) {
+                sink = closest;
+                break;
+            }
+            // Any agent of a full target can make room by moving to another one.
+            for (int other = firstAgent[closest]; other != NONE; other = nextAgent[other]) {
+                final double base = distance[closest] - costOf(other, closest) - price[closest];
+                for (int target = 0; target < targets; ++target) {
+                    if (settled[target]) {
+                        continue;
+                    }
+                    final double length = base + costOf(other, target) + price[target];
+                    if (length < distance[target]) {
+                        distance[target] = length;
+                        predecessor[target] = other;
+                    }
+                }
+            }
+        }
+
+        // Raise the prices of the targets passed through so assigned agents stay on their cheapest.
+        final double sinkDistance = distance[sink];
+        for (int target = 0; target < targets; ++target) {
+            if (settled[target]) {
+                price[target] += sinkDistance - distance[target];
+            }
+        }
+
+        // Shift the agents along the path back from the sink.
+        int target = sink;
+        for (;;) {
+            final int moving = predecessor[target];
+            final int from = agentTarget[moving];
+            if (from != NONE) {
+                unlink(moving, from);
+            }
+            link(moving, target);
+            if (moving == agent) {
+                break;
+            }
+            target = from;
+        }
+    }
+
+    private void link(final int agent, final int target) {
+        agentTarget[agent] = target;
+        nextAgent[agent] = firstAgent[target];
+        firstAgent[target] = agent;
+        ++used[target];
+    }
+
+    private void unlink(final int agent, final int target) {
+        int previous = NONE;
+        for (int current = firstAgent[target]; current != agent; current = nextAgent[current]) {
+            previous = current;
+        }
+        if (previous == NONE) {
+            firstAgent[target] = nextAgent[agent];
+        } else {
+            nextAgent[previous] = nextAgent[agent];
+        }
+        --used[target];
+    }
+}
@@ -0,0 +1,147 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * The last few positions of every ship, kept across GameMap.updateMap() calls, and the velocity
+ * estimated from them.
+ *
+ * Each ship owns a row of DEPTH samples used as a ring buffer, and rows of forgotten ships are
+ * reused, so memory is bounded by the number of ships alive at once and recording a turn costs
+ * O(ships). Ships have no inertia: the displacement over the last turn is the thrust the ship was
+ * given, which is also the best guess for its next one. The estimate is therefore that
+ * displacement, or zero when the ship was not seen in the update before.
+ */
+public class MotionHistory {
+    public static final int DEPTH = 4;
+
+    private static final int NO_ROW = -1;
+
+    private final IntIntMap rowByShip = new IntIntMap(NO_ROW);
+
+    // DEPTH samples per row
+    private double[] sampleX = new double[64 * DEPTH];
+    private double[] sampleY = new double[64 * DEPTH];
+    private int[] sampleUpdate = new int[64 * DEPTH];
+
+    // per row
+    private int[] newest = new int[64];
+    private int[] sampleCount = new int[64];
+    private double[] velocityX = new double[64];
+    private double[] velocityY = new double[64];
+    private int rowCount;
+
+    private int[] freeRows = new int[16];
+    private int freeCount;
+
+    /**
+     * Add the ship's position in the given update; the oldest sample is dropped once DEPTH are kept.
+     */
+    public void record(final int shipId, final double x, final double y, final int updateCount) {
+        int row = rowByShip.get(shipId);
+        if (row == NO_ROW) {
+            row = allocateRow();
+            rowByShip.put(shipId, row);
+            newest[row] = DEPTH - 1;
+            sampleCount[row] = 0;
+        }
+
+        final int previous = row * DEPTH + newest[row];
+        final boolean consecutive = sampleCount[row] > 0 && sampleUpdate[previous] == updateCount - 1;
+        velocityX[row] = consecutive ? x - sampleX[previous] : 0.0;
+        velocityY[row] = consecutive ? y - sampleY[previous] : 0.0;
+
+        newest[row] = (newest[row] + 1) & (DEPTH - 1);
+        final int sample = row * DEPTH + newest[row];
+        sampleX[sample] = x;
+        sampleY[sample] = y;
+        sampleUpdate[sample] = updateCount;
+        if (sampleCount[row] < DEPTH) {
+            ++sampleCount[row];
+        }
+    }
+
+    /**
+     * Drop the ship's samples, for a ship that was destroyed.
+     */
+    public void forget(final int shipId) {
+        final int row = rowByShip.remove(shipId);
+        if (row == NO_ROW) {
+            return;
+        }
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    public void clear() {
+        rowByShip.clear();
+        rowCount = 0;
+        freeCount = 0;
+    }
+
+    /**
+     * @return the number of positions kept for the ship, at most DEPTH
+     */
+    public int getSampleCount(final int shipId) {
+        final int row = rowByShip.get(shipId);
+        return row == NO_ROW ? 0 : sampleCount[row];
+    }
+
+    /**
+     * @param age 0 for the newest position, up to getSampleCount(shipId) - 1
+     */
+    public double getX(final int shipId, final int age) {
+        return sampleX[sampleIndex(shipId, age)];
+    }
+
+    public double getY(final int shipId, final int age) {
+        return sampleY[sampleIndex(shipId, age)];
+    }
+
+    /**
+     * @return the GameMap update the position was recorded in
+     */
+    public int getUpdate(final int shipId, final int age) {
+        return sampleUpdate[sampleIndex(shipId, age)];
+    }
+
+    /**
+     * @return the estimated displacement of the ship over the coming turn, 0 for unknown ships
+     */
+    public double getVelocityX(final int shipId) {
+        final int row = rowByShip.get(shipId);
+        return row == NO_ROW ? 0.0 : velocityX[row];
+    }
+
+    public double getVelocityY(final int shipId) {
+        final int row = rowByShip.get(shipId);
+        return row == NO_ROW ? 0.0 : velocityY[row];
+    }
+
+    private int sampleIndex(final int shipId, final int age) {
+        final int row = rowByShip.get(shipId);
+        if (row == NO_ROW || age < 0 || age >= sampleCount[row]) {
+            throw new IndexOutOfBoundsException("no sample " + age + " for ship " + shipId);
+        }
+        return row * DEPTH + ((newest[row] - age) & (DEPTH - 1));
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowCount == newest.length) {
+            final int rows = rowCount * 2;
+            sampleX = Arrays.copyOf(sampleX, rows * DEPTH);
+            sampleY = Arrays.copyOf(sampleY, rows * DEPTH);
+            sampleUpdate = Arrays.copyOf(sampleUpdate, rows * DEPTH);
+            newest = Arrays.copyOf(newest, rows);
+            sampleCount = Arrays.copyOf(sampleCount, rows);
+            velocityX = Arrays.copyOf(velocityX, rows);
+            velocityY = Arrays.copyOf(velocityY, rows);
+        }
+        return rowCount++;
+    }
+}
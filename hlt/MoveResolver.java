@@ -0,0 +1,271 @@
+package hlt;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Makes the thrust moves of one player's ships safe against each other.
+ *
+ * All ships move at the same time during a turn, so two moves conflict when the ships come
+ * closer than CONFLICT_DISTANCE at any moment of the turn, not just at their end points.
+ * Moves are accepted in list order and indexed in a uniform grid by the box around their swept
+ * segment; a move that conflicts with an accepted one is repaired by the alternative heading and
+ * thrust that keeps the most progress along its original heading, and only stopped when none is
+ * free. Rotated alternatives must also be clear of planets and ships according to the GameMap.
+ * With setAvoidPredictedEnemies() a move also conflicts when it would hit an enemy ship moving as
+ * GameMap.getMotionHistory() predicts.
+ * Instances keep their buffers between turns and are not thread-safe.
+ */
+public class MoveResolver {
+
+    /** Minimum distance kept between two of our ships during their moves. */
+    public static final double CONFLICT_DISTANCE = Constants.SHIP_RADIUS * 3.1;
+
+    /** Margin kept from the predicted path of an enemy ship. */
+    private static final double ENEMY_MARGIN = 0.1;
+
+    private static final double CELL_SIZE = 8.0;
+    private static final int[] ANGLE_OFFSETS_DEG = { 0, 15, -15, 30, -30, 45, -45 };
+
+    /** Per original thrust, the alternatives as packed (offset index << 8 | thrust), best first. */
+    private static final int[][] ALTERNATIVES = buildAlternatives(Constants.MAX_SPEED);
+
+    private int columns;
+    private int rows;
+    private int[] cellHead = new int[0];
+
+    // accepted moves
+    private double[] startX = new double[64];
+    private double[] startY = new double[64];
+    private double[] deltaX = new double[64];
+    private double[] deltaY = new double[64];
+    private int[] stamp = new int[64];
+    private int acceptedCount;
+    private int currentStamp;
+
+    // grid entries, chained per cell
+    private int[] entryMove = new int[256];
+    private int[] entryNext = new int[256];
+    private int entryCount;
+
+    private int repairedCount;
+    private int stoppedCount;
+    private boolean avoidPredictedEnemies;
+
+    /**
+     * Replace every thrust move that conflicts with an earlier one by a conflict-free alternative,
+     * or by a zero thrust move when there is none.
+     */
+    public void resolve(final GameMap gameMap, final List<Move> moves) {
+        reset(gameMap.getWidth(), gameMap.getHeight());
+
+        for (int i = 0; i < moves.size(); ++i) {
+            final Move move = moves.get(i);
+            if (!(move instanceof ThrustMove)) {
+                continue;
+            }
+            final ThrustMove thrustMove = (ThrustMove) move;
+            final Ship ship = move.getShip();
+            final double x = ship.getXPos();
+            final double y = ship.getYPos();
+            final int angleDeg = thrustMove.getAngle();
+            final int thrust = thrustMove.getThrust();
+
+            final double dx = thrustMove.getDeltaX();
+            final double dy = thrustMove.getDeltaY();
+            if (!conflicts(gameMap, ship, x, y, dx, dy)) {
+                accept(x, y, dx, dy);
+                continue;
+            }
+
+            final ThrustMove repaired = repair(gameMap, ship, angleDeg, thrust);
+            if (repaired != null) {
+                ++repairedCount;
+                moves.set(i, repaired);
+            } else {
+                ++stoppedCount;
+                moves.set(i, new ThrustMove(ship, angleDeg, 0));
+                accept(x, y, 0.0, 0.0);
+            }
+        }
+    }
+
+    public void setAvoidPredictedEnemies(final boolean avoidPredictedEnemies) {
+        this.avoidPredictedEnemies = avoidPredictedEnemies;
+    }
+
+    public boolean isAvoidPredictedEnemies() {
+        return avoidPredictedEnemies;
+    }
+
+    /** Number of moves changed to another heading or thrust by the last resolve(). */
+    public int getRepairedCount() {
+        return repairedCount;
+    }
+
+    /** Number of moves stopped by the last resolve() because no alternative was free. */
+    public int getStoppedCount() {
+        return stoppedCount;
+    }
+
+    private ThrustMove repair(final GameMap gameMap, final Ship ship, final int angleDeg, final int thrust) {
+        final double x = ship.getXPos();
+        final double y = ship.getYPos();
+        final int[] alternatives = ALTERNATIVES[Math.min(thrust, Constants.MAX_SPEED)];
+        for (final int alternative : alternatives) {
+            final int offset = ANGLE_OFFSETS_DEG[alternative >>> 8];
+            final int newThrust = alternative & 0xff;
+            final int newAngleDeg = ((angleDeg + offset) % 360 + 360) % 360;
+
+            final double dx = ThrustMove.getDeltaX(newAngleDeg, newThrust);
+            final double dy = ThrustMove.getDeltaY(newAngleDeg, newThrust);
+            if (conflicts(gameMap, ship, x, y, dx, dy)) {
+                continue;
+            }
+            // A shorter move along the original heading stays on a path navigation found clear.
+            if (offset != 0 && (!insideMap(gameMap, x + dx, y + dy) || gameMap.anyObjectBetween(ship, x + dx, y + dy))) {
+                continue;
+            }
+            accept(x, y, dx, dy);
+            return new ThrustMove(ship, newAngleDeg, newThrust);
+        }
+        return null;
+    }
+
+    private static boolean insideMap(final GameMap gameMap, final double x, final double y) {
+        return x >= 0 && y >= 0 && x < gameMap.getWidth() && y < gameMap.getHeight();
+    }
+
+    private boolean conflicts(final GameMap gameMap, final Ship ship,
+                              final double x, final double y, final double dx, final double dy) {
+        return conflictsWithAccepted(x, y, dx, dy)
+                || (avoidPredictedEnemies && gameMap.anyEnemyOnCollisionCourse(ship, dx, dy, ENEMY_MARGIN));
+    }
+
+    private boolean conflictsWithAccepted(final double x, final double y, final double dx, final double dy) {
+        if (++currentStamp == 0) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+
+        final double limitSquared = CONFLICT_DISTANCE * CONFLICT_DISTANCE;
+        final int minColumn = column(Math.min(x, x + dx) - CONFLICT_DISTANCE);
+        final int maxColumn = column(Math.max(x, x + dx) + CONFLICT_DISTANCE);
+        final int minRow = row(Math.min(y, y + dy) - CONFLICT_DISTANCE);
+        final int maxRow = row(Math.max(y, y + dy) + CONFLICT_DISTANCE);
+        for (int r = minRow; r <= maxRow; ++r) {
+            for (int c = minColumn; c <= maxColumn; ++c) {
+                for (int entry = cellHead[r * columns + c]; entry >= 0; entry = entryNext[entry]) {
+                    final int other = entryMove[entry];
+                    if (stamp[other] == currentStamp) {
+                        continue;
+                    }
+                    stamp[other] = currentStamp;
+                    if (closestApproachSquared(x - startX[other], y - startY[other],
+                            dx - deltaX[other], dy - deltaY[other]) < limitSquared) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the smallest squared distance over the turn between two ships whose relative position
+     *         at its start is (px, py) and whose relative displacement over it is (vx, vy)
+     */
+    static double closestApproachSquared(final double px, final double py, final double vx, final double vy) {
+        final double speedSquared = vx * vx + vy * vy;
+        double t = 0.0;
+        if (speedSquared > 0.0) {
+            t = Math.max(0.0, Math.min(1.0, -(px * vx + py * vy) / speedSquared));
+        }
+        final double cx = px + vx * t;
+        final double cy = py + vy * t;
+        return cx * cx + cy * cy;
+    }
+
+    private void accept(final double x, final double y, final double dx, final double dy) {
+        if (acceptedCount == startX.length) {
+            final int capacity = acceptedCount * 2;
+            startX = Arrays.copyOf(startX, capacity);
+            startY = Arrays.copyOf(startY, capacity);
+            deltaX = Arrays.copyOf(deltaX, capacity);
+            deltaY = Arrays.copyOf(deltaY, capacity);
+            stamp = Arrays.copyOf(stamp, capacity);
+        }
+        final int move = acceptedCount++;
+        startX[move] = x;
+        startY[move] = y;
+        deltaX[move] = dx;
+        deltaY[move] = dy;
+
+        // Only the move's own box is indexed; conflicts() pads the box it looks up instead.
+        final int minColumn = column(Math.min(x, x + dx));
+        final int maxColumn = column(Math.max(x, x + dx));
+        final int minRow = row(Math.min(y, y + dy));
+        final int maxRow = row(Math.max(y, y + dy));
+        for (int r = minRow; r <= maxRow; ++r) {
+            for (int c = minColumn; c <= maxColumn; ++c) {
+                if (entryCount == entryMove.length) {
+                    entryMove = Arrays.copyOf(entryMove, entryCount * 2);
+                    entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+                }
+                final int cell = r * columns + c;
+                entryMove[entryCount] = move;
+                entryNext[entryCount] = cellHead[cell];
+                cellHead[cell] = entryCount++;
+            }
+        }
+    }
+
+    private void reset(final int width, final int height) {
+        columns = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        if (cellHead.length < columns * rows) {
+            cellHead = new int[columns * rows];
+        }
+        Arrays.fill(cellHead, 0, columns * rows, -1);
+        acceptedCount = 0;
+        entryCount = 0;
+        repairedCount = 0;
+        stoppedCount = 0;
+    }
+
+    private int column(final double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / CELL_SIZE)));
+    }
+
+    private int row(final double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / CELL_SIZE)));
+    }
+
+    private static int[][] buildAlternatives(final int maxThrust) {
+        final int[][] alternatives = new int[maxThrust + 1][];
+        for (int thrust = 0; thrust <= maxThrust; ++thrust) {
+            final Integer[] packed = new Integer[ANGLE_OFFSETS_DEG.length * thrust];
+            int count = 0;
+            for (int offset = 0; offset < ANGLE_OFFSETS_DEG.length; ++offset) {
+                for (int t = thrust; t >= 1; --t) {
+                    // The unchanged move itself is what conflicted.
+                    if (offset == 0 && t == thrust) {
+                        continue;
+                    }
+                    packed[count++] = offset << 8 | t;
+                }
+            }
+            // Most progress along the original heading first; the offsets are already ordered by size.
+            Arrays.sort(packed, 0, count, (a, b) -> Double.compare(progress(b), progress(a)));
+            alternatives[thrust] = new int[count];
+            for (int i = 0; i < count; ++i) {
+                alternatives[thrust][i] = packed[i];
+            }
+        }
+        return alternatives;
+    }
+
+    private static double progress(final int alternative) {
+        return (alternative & 0xff) * Geometry.cosDeg(ANGLE_OFFSETS_DEG[alternative >>> 8]);
+    }
+}
@@ -2,6 +2,21 @@ package hlt;
 
 public class Navigation {
 
+    public enum Mode {
+        /** Rotate the heading counter-clockwise one step at a time until the path is clear. */
+        Linear,
+        /** Skip whole intervals blocked by known obstacles and take the closest free heading on either side. */
+        Analytic,
+        /** Score every whole-degree heading and thrust by progress, threats and collision risk; see ActionSearch. */
+        Search
+    }
+
+    private static final ThreadLocal<BlockedHeadings> BLOCKED_HEADINGS = ThreadLocal.withInitial(BlockedHeadings::new);
+    private static final ThreadLocal<ActionSearch> ACTION_SEARCH = ThreadLocal.withInitial(ActionSearch::new);
+
+    // Never started, so it always allows every correction and is never written to.
+    private static final TurnBudget NO_BUDGET = new TurnBudget(TurnBudget.DEFAULT_BUDGET_MILLIS);
+
     public static ThrustMove navigateShipToDock(
             final GameMap gameMap,
             final Ship ship,
@@ -23,34 +38,282 @@ public class Navigation {
             final int maxThrust,
             final boolean avoidObstacles,
             final int maxCorrections,
+            final double angularStepRad,
+            final Mode mode)
+    {
+        final NavigationResult result = new NavigationResult();
+        navigateShipTowardsTarget(gameMap, ship, targetPos, maxThrust, avoidObstacles, maxCorrections, angularStepRad, mode, result);
+        return result.toThrustMove(ship);
+    }
+
+    /**
+     * Allocation-free form of navigateShipTowardsTarget(..., mode): the angle and thrust are written to result.
+     *
+     * @return whether a move was found
+     */
+    public static boolean navigateShipTowardsTarget(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final boolean avoidObstacles,
+            final int maxCorrections,
+            final double angularStepRad,
+            final Mode mode,
+            final NavigationResult result)
+    {
+        return navigate(gameMap, ship, targetPos, maxThrust, avoidObstacles, maxCorrections, angularStepRad, mode,
+                gameMap.getTurnBudget(), result);
+    }
+
+    /**
+     * navigateShipTowardsTarget(..., mode, result) for callers that have already limited maxCorrections
+     * with the turn budget: the budget is not read again, so the move depends only on the arguments
+     * and the map, and the call is safe on any thread while the map is not being updated.
+     *
+     * @return whether a move was found
+     */
+    public static boolean navigateShipTowardsTargetUnbudgeted(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final boolean avoidObstacles,
+            final int maxCorrections,
+            final double angularStepRad,
+            final Mode mode,
+            final NavigationResult result)
+    {
+        return navigate(gameMap, ship, targetPos, maxThrust, avoidObstacles, maxCorrections, angularStepRad, mode,
+                NO_BUDGET, result);
+    }
+
+    private static boolean navigate(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final boolean avoidObstacles,
+            final int maxCorrections,
+            final double angularStepRad,
+            final Mode mode,
+            final TurnBudget budget,
+            final NavigationResult result)
+    {
+        if (mode == Mode.Analytic && avoidObstacles) {
+            return navigateAnalytic(gameMap, ship, targetPos, maxThrust, maxCorrections, angularStepRad, budget, result);
+        }
+        if (mode == Mode.Search && avoidObstacles) {
+            return navigateSearch(gameMap, ship, targetPos, maxThrust, maxCorrections, angularStepRad, budget, result);
+        }
+        return navigateLinear(gameMap, ship, targetPos, maxThrust, avoidObstacles, maxCorrections, angularStepRad, budget, result);
+    }
+
+    /**
+     * Like navigateShipTowardsTarget(), but each obstacle found on the way blocks a whole interval of
+     * headings at once, and the free heading closest to the target in either direction is chosen.
+     * Headings are still multiples of angularStepRad away from the direct one and at most
+     * maxCorrections - 1 steps from it.
+     */
+    public static ThrustMove navigateShipTowardsTargetAnalytic(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final int maxCorrections,
             final double angularStepRad)
     {
-        if (maxCorrections <= 0) {
-            return null;
+        final NavigationResult result = new NavigationResult();
+        navigateShipTowardsTargetAnalytic(gameMap, ship, targetPos, maxThrust, maxCorrections, angularStepRad, result);
+        return result.toThrustMove(ship);
+    }
+
+    /**
+     * Allocation-free form of navigateShipTowardsTargetAnalytic(): the angle and thrust are written to result.
+     *
+     * @return whether a move was found
+     */
+    public static boolean navigateShipTowardsTargetAnalytic(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final int maxCorrections,
+            final double angularStepRad,
+            final NavigationResult result)
+    {
+        return navigateAnalytic(gameMap, ship, targetPos, maxThrust, maxCorrections, angularStepRad,
+                gameMap.getTurnBudget(), result);
+    }
+
+    private static boolean navigateAnalytic(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final int maxCorrections,
+            final double angularStepRad,
+            final TurnBudget budget,
+            final NavigationResult result)
+    {
+        result.clear();
+        gameMap.getMetrics().count(TurnMetrics.Counter.NavigationCalls);
+        final int correctionsLeft = budget.limitCorrections(maxCorrections);
+        if (correctionsLeft <= 0) {
+            return false;
         }
 
         final double distance = ship.getDistanceTo(targetPos);
         final double angleRad = ship.orientTowardsInRad(targetPos);
 
-        if (avoidObstacles && !gameMap.objectsBetween(ship, targetPos).isEmpty()) {
-            final double newTargetDx = Math.cos(angleRad + angularStepRad) * distance;
-            final double newTargetDy = Math.sin(angleRad + angularStepRad) * distance;
-            final Position newTarget = new Position(ship.getXPos() + newTargetDx, ship.getYPos() + newTargetDy);
-
-            return navigateShipTowardsTarget(gameMap, ship, newTarget, maxThrust, true, (maxCorrections-1), angularStepRad);
+        final int step = BLOCKED_HEADINGS.get().closestFreeStep(
+                gameMap, ship, targetPos, angleRad, distance, angularStepRad, correctionsLeft);
+        if (step == BlockedHeadings.NO_FREE_STEP) {
+            return false;
         }
 
-        final int thrust;
-        if (distance < maxThrust) {
-            // Do not round up, since overshooting might cause collision.
-            thrust = (int) distance;
+        result.set(Util.angleRadToDegClipped(angleRad + step * angularStepRad), thrustFor(distance, maxThrust));
+        return true;
+    }
+
+    /**
+     * Picks the best whole-degree heading and thrust up to maxThrust instead of the first clear one,
+     * trading progress towards the target against enemy ships that could fire at the destination
+     * or run into the ship. Headings turn up to (maxCorrections - 1) * angularStepRad away from the
+     * direct one, rounded out to whole degrees, and are tried at every degree in between; with a
+     * single correction the two whole degrees around the direct heading are still tried.
+     *
+     * @return whether a move was found; the angle and thrust are written to result
+     */
+    public static boolean navigateShipTowardsTargetSearch(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final int maxCorrections,
+            final double angularStepRad,
+            final NavigationResult result)
+    {
+        return navigateSearch(gameMap, ship, targetPos, maxThrust, maxCorrections, angularStepRad,
+                gameMap.getTurnBudget(), result);
+    }
+
+    private static boolean navigateSearch(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final int maxCorrections,
+            final double angularStepRad,
+            final TurnBudget budget,
+            final NavigationResult result)
+    {
+        result.clear();
+        gameMap.getMetrics().count(TurnMetrics.Counter.NavigationCalls);
+        final int correctionsLeft = budget.limitCorrections(maxCorrections);
+        if (correctionsLeft <= 0) {
+            return false;
         }
-        else {
-            thrust = maxThrust;
+
+        final int maxOffsetDeg = (int) Math.floor(Math.toDegrees((correctionsLeft - 1) * angularStepRad));
+        final ActionSearch search = ACTION_SEARCH.get();
+        final boolean found = search.search(gameMap, ship, targetPos, maxThrust, maxOffsetDeg,
+                ActionSearch.MAX_EVALUATIONS, result);
+        gameMap.getMetrics().count(TurnMetrics.Counter.NavigationCorrections, Math.max(0, search.getEvaluations() - 1));
+        return found;
+    }
+
+    public static ThrustMove navigateShipTowardsTarget(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final boolean avoidObstacles,
+            final int maxCorrections,
+            final double angularStepRad)
+    {
+        final NavigationResult result = new NavigationResult();
+        navigateShipTowardsTarget(gameMap, ship, targetPos, maxThrust, avoidObstacles, maxCorrections, angularStepRad, result);
+        return result.toThrustMove(ship);
+    }
+
+    /**
+     * Allocation-free form of navigateShipTowardsTarget(): the angle and thrust are written to result.
+     *
+     * While the path is blocked the target is rotated by angularStepRad around the ship, keeping its
+     * distance, for at most maxCorrections tries.
+     *
+     * @return whether a move was found
+     */
+    public static boolean navigateShipTowardsTarget(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final boolean avoidObstacles,
+            final int maxCorrections,
+            final double angularStepRad,
+            final NavigationResult result)
+    {
+        return navigateLinear(gameMap, ship, targetPos, maxThrust, avoidObstacles, maxCorrections, angularStepRad,
+                gameMap.getTurnBudget(), result);
+    }
+
+    private static boolean navigateLinear(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final boolean avoidObstacles,
+            final int maxCorrections,
+            final double angularStepRad,
+            final TurnBudget budget,
+            final NavigationResult result)
+    {
+        result.clear();
+        gameMap.getMetrics().count(TurnMetrics.Counter.NavigationCalls);
+
+        // Fewer corrections are affordable when the turn is running out of time.
+        int correctionsLeft = budget.limitCorrections(maxCorrections);
+        if (correctionsLeft <= 0) {
+            return false;
         }
 
-        final int angleDeg = Util.angleRadToDegClipped(angleRad);
+        final double shipX = ship.getXPos();
+        final double shipY = ship.getYPos();
+        double targetX = targetPos.getXPos();
+        double targetY = targetPos.getYPos();
+        boolean rotated = false;
+        for (;;) {
+            // Same arithmetic as Position.getDistanceTo() and Position.orientTowardsInRad().
+            final double distance = Math.sqrt(Math.pow(shipX - targetX, 2) + Math.pow(shipY - targetY, 2));
+            final double angleRad = Math.atan2(targetY - shipY, targetX - shipX) + 2 * Math.PI;
+
+            final boolean blocked = avoidObstacles && (rotated
+                    ? gameMap.anyObjectBetween(ship, targetX, targetY)
+                    : gameMap.anyObjectBetween(ship, targetPos));
+            if (!blocked) {
+                result.set(Util.angleRadToDegClipped(angleRad), thrustFor(distance, maxThrust));
+                return true;
+            }
 
-        return new ThrustMove(ship, angleDeg, thrust);
+            targetX = shipX + Math.cos(angleRad + angularStepRad) * distance;
+            targetY = shipY + Math.sin(angleRad + angularStepRad) * distance;
+            rotated = true;
+            gameMap.getMetrics().count(TurnMetrics.Counter.NavigationCorrections);
+
+            correctionsLeft = budget.limitCorrections(correctionsLeft - 1);
+            if (correctionsLeft <= 0) {
+                return false;
+            }
+        }
+    }
+
+    private static int thrustFor(final double distance, final int maxThrust) {
+        if (distance < maxThrust) {
+            // Do not round up, since overshooting might cause collision.
+            return (int) distance;
+        }
+        return maxThrust;
     }
 }
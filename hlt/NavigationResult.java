@@ -0,0 +1,42 @@
+package hlt;
+
+/**
+ * Reusable output of the allocation-free Navigation methods: the chosen angle and thrust, or
+ * nothing when no clear heading was found.
+ */
+public class NavigationResult {
+    private boolean found;
+    private int angleDeg;
+    private int thrust;
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public int getAngle() {
+        return angleDeg;
+    }
+
+    public int getThrust() {
+        return thrust;
+    }
+
+    /**
+     * @return a new ThrustMove for the ship, or null if nothing was found
+     */
+    public ThrustMove toThrustMove(final Ship ship) {
+        return found ? new ThrustMove(ship, angleDeg, thrust) : null;
+    }
+
+    void set(final int angleDeg, final int thrust) {
+        this.found = true;
+        this.angleDeg = angleDeg;
+        this.thrust = thrust;
+    }
+
+    void clear() {
+        found = false;
+        angleDeg = 0;
+        thrust = 0;
+    }
+}
@@ -0,0 +1,248 @@
+package hlt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * k-nearest entity queries over a GameMap, answered from its SpatialGrid and memoised per entity
+ * and filter until the next GameMap.updateMap().
+ *
+ * Distances are center to center, as Position.getDistanceTo() measures them. Entities at the same
+ * distance are all kept, ordered planets first, then ships, each in map order. The entity a query
+ * starts from is never part of its result. Instances are not thread-safe.
+ */
+public class NearestQueries {
+
+    public enum Type { Any, Ship, Planet }
+
+    /** Owner relative to the map's player; planets without docked ships are unowned. */
+    public enum Owner { Any, Mine, Enemy, Unowned }
+
+    /** Docking status of ships; Docked also covers docking and undocking ships. */
+    public enum Docking { Any, Undocked, Docked }
+
+    /**
+     * Immutable description of which entities a query returns. Results are memoised per Filter
+     * instance, so keep the filters you use in constants.
+     */
+    public static final class Filter {
+        private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+        public static final Filter ANY = new Filter(Type.Any, Owner.Any, Docking.Any, false);
+        public static final Filter SHIPS = new Filter(Type.Ship, Owner.Any, Docking.Any, false);
+        public static final Filter PLANETS = new Filter(Type.Planet, Owner.Any, Docking.Any, false);
+
+        private final int id;
+        private final Type type;
+        private final Owner owner;
+        private final Docking docking;
+        private final boolean notFull;
+
+        private Filter(final Type type, final Owner owner, final Docking docking, final boolean notFull) {
+            this.id = NEXT_ID.getAndIncrement();
+            this.type = type;
+            this.owner = owner;
+            this.docking = docking;
+            this.notFull = notFull;
+        }
+
+        public Filter owner(final Owner owner) {
+            return new Filter(type, owner, docking, notFull);
+        }
+
+        /** Only ships with this docking status; implies ships only. */
+        public Filter docking(final Docking docking) {
+            return new Filter(Type.Ship, owner, docking, notFull);
+        }
+
+        /** Only planets with a free docking spot; implies planets only. */
+        public Filter notFull() {
+            return new Filter(Type.Planet, owner, docking, true);
+        }
+
+        boolean matches(final Entity entity, final int myPlayerId) {
+            final boolean isShip = entity instanceof Ship;
+            if ((type == Type.Ship && !isShip) || (type == Type.Planet && isShip)) {
+                return false;
+            }
+            final int entityOwner = entity.getOwner();
+            switch (owner) {
+                case Mine:
+                    if (entityOwner != myPlayerId) {
+                        return false;
+                    }
+                    break;
+                case Enemy:
+                    if (entityOwner == myPlayerId || entityOwner == -1) {
+                        return false;
+                    }
+                    break;
+                case Unowned:
+                    if (entityOwner != -1) {
+                        return false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (docking != Docking.Any) {
+                final boolean undocked = ((Ship) entity).getDockingStatus() == Ship.DockingStatus.Undocked;
+                if (undocked != (docking == Docking.Undocked)) {
+                    return false;
+                }
+            }
+            return !notFull || !((Planet) entity).isFull();
+        }
+    }
+
+    /** Radius of the first grid query; it doubles until enough entities are known to be closest. */
+    private static final double INITIAL_RADIUS = 16.0;
+
+    private static final class Result {
+        final List<Entity> entities;
+        /** True when fewer entities than requested matched, so any larger k has the same answer. */
+        final boolean complete;
+        final int k;
+
+        Result(final List<Entity> entities, final int k) {
+            this.entities = entities;
+            this.complete = entities.size() < k;
+            this.k = k;
+        }
+    }
+
+    private final GameMap gameMap;
+    private final List<IntObjectMap<Result>> resultsByFilter = new ArrayList<>();
+    private final List<IntObjectMap<Result>> usedMaps = new ArrayList<>();
+
+    // k best matches so far, sorted by distance then entity index
+    private double[] bestDistance = new double[8];
+    private int[] bestIndex = new int[8];
+    private int bestCount;
+
+    private int queryCount;
+    private int cacheHits;
+
+    NearestQueries(final GameMap gameMap) {
+        this.gameMap = gameMap;
+    }
+
+    /**
+     * @return the closest entity matching the filter, or null if there is none
+     */
+    public Entity nearest(final Entity from, final Filter filter) {
+        final List<Entity> result = nearest(from, filter, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * @return up to k entities matching the filter, closest first; the list is shared and unmodifiable
+     */
+    public List<Entity> nearest(final Entity from, final Filter filter, final int k) {
+        ++queryCount;
+        while (resultsByFilter.size() <= filter.id) {
+            resultsByFilter.add(null);
+        }
+        IntObjectMap<Result> results = resultsByFilter.get(filter.id);
+        if (results == null) {
+            results = new IntObjectMap<>();
+            resultsByFilter.set(filter.id, results);
+        }
+
+        // Planets and ships may share ids, so they are memoised under different keys.
+        final int key = from instanceof Ship ? from.getId() : ~from.getId();
+        final Result cached = results.get(key);
+        if (cached != null && (cached.k >= k || cached.complete)) {
+            ++cacheHits;
+            return cached.entities.size() <= k ? cached.entities : cached.entities.subList(0, k);
+        }
+
+        final Result result = new Result(search(from, filter, k), k);
+        if (results.isEmpty()) {
+            usedMaps.add(results);
+        }
+        results.put(key, result);
+        return result.entities;
+    }
+
+    /** Queries answered since the last updateMap(), including memoised ones. */
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    /** Queries answered from the memo since the last updateMap(). */
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    /** Forget every memoised result; GameMap.updateMap() does this every turn. */
+    public void invalidate() {
+        for (int i = 0; i < usedMaps.size(); ++i) {
+            usedMaps.get(i).clear();
+        }
+        usedMaps.clear();
+        queryCount = 0;
+        cacheHits = 0;
+    }
+
+    private List<Entity> search(final Entity from, final Filter filter, final int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        if (bestDistance.length < k) {
+            bestDistance = new double[k];
+            bestIndex = new int[k];
+        }
+
+        final SpatialGrid grid = gameMap.getSpatialGrid();
+        final SpatialGrid.Query query = grid.query();
+        final int myPlayerId = gameMap.getMyPlayerId();
+        double radius = INITIAL_RADIUS;
+        for (;;) {
+            bestCount = 0;
+            final int candidateCount = query.collectRadiusCandidates(from.getXPos(), from.getYPos(), radius);
+            for (int i = 0; i < candidateCount; ++i) {
+                final int index = query.getCandidate(i);
+                final Entity entity = grid.getEntity(index);
+                if (entity.equals(from) || !filter.matches(entity, myPlayerId)) {
+                    continue;
+                }
+                offer(from.getDistanceTo(entity), index, k);
+            }
+            // Every entity within the radius was a candidate, so once k of them are that close
+            // nothing outside can beat them; once the whole map was searched nothing is missing.
+            if ((bestCount == k && bestDistance[k - 1] <= radius) || candidateCount == grid.getEntityCount()) {
+                break;
+            }
+            radius *= 2;
+        }
+
+        final Entity[] entities = new Entity[bestCount];
+        for (int i = 0; i < bestCount; ++i) {
+            entities[i] = grid.getEntity(bestIndex[i]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(entities));
+    }
+
+    /** Insert into the k best, keeping them sorted by distance and then entity index. */
+    private void offer(final double distance, final int index, final int k) {
+        if (bestCount == k && !closer(distance, index, bestDistance[k - 1], bestIndex[k - 1])) {
+            return;
+        }
+        int position = bestCount < k ? bestCount++ : k - 1;
+        while (position > 0 && closer(distance, index, bestDistance[position - 1], bestIndex[position - 1])) {
+            bestDistance[position] = bestDistance[position - 1];
+            bestIndex[position] = bestIndex[position - 1];
+            --position;
+        }
+        bestDistance[position] = distance;
+        bestIndex[position] = index;
+    }
+
+    private static boolean closer(final double distance, final int index, final double otherDistance, final int otherIndex) {
+        return distance < otherDistance || (distance == otherDistance && index < otherIndex);
+    }
+}
@@ -2,6 +2,7 @@ package hlt;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 
 public class Networking {
 
@@ -9,8 +10,22 @@ public class Networking {
     private static final char DOCK_KEY = 'd';
     private static final char THRUST_KEY = 't';
 
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = allocationBean();
+
+    // raw bytes from stdin and the reusable line tokenizer handed to the parsers
+    private static final byte[] inputBuffer = new byte[1 << 16];
+    private static int inputPosition = 0;
+    private static int inputLimit = 0;
+    private static final Metadata lineMetadata = new Metadata();
+    // copy of the input for offline replays, enabled with -Dhlt.record=<file>
+    private static ReplayRecorder recorder;
+    // metrics of the map being updated, summarised when the engine closes the stream
+    private static TurnMetrics metrics;
+
     private String botName;
     private int turn = 0;
+    private long lastParseNanos;
+    private long lastParseAllocatedBytes;
 
     public static void sendMoves(final Iterable<Move> moves) {
         final StringBuilder moveString = new StringBuilder();
@@ -48,36 +63,95 @@ public class Networking {
         System.out.println(moveString);
     }
 
-    private static String readLine() {
+    private static Metadata readLineIntoMetadata() {
         try {
-            StringBuilder builder = new StringBuilder();
-            int buffer;
+            lineMetadata.clear();
+
+            for (;;) {
+                if (inputPosition == inputLimit) {
+                    inputLimit = System.in.read(inputBuffer, 0, inputBuffer.length);
+                    inputPosition = 0;
+                    if (inputLimit < 0) {
+                        inputLimit = 0;
+                        if (lineMetadata.length() == 0) {
+                            // The engine closed the stream: the game is over.
+                            if (metrics != null && metrics.getTurns() > 0) {
+                                Log.log(metrics.summary());
+                                Log.flush();
+                            }
+                            System.exit(0);
+                        }
+                        return lineMetadata;
+                    }
+                }
 
-            for (; (buffer = System.in.read()) >= 0;) {
-                if (buffer == '\n') {
-                    break;
+                int end = inputPosition;
+                while (end < inputLimit && inputBuffer[end] != '\n') {
+                    ++end;
                 }
-                if (buffer == '\r') {
-                    // Ignore carriage return if on windows for manual testing.
-                    continue;
+                lineMetadata.append(inputBuffer, inputPosition, end - inputPosition);
+                if (recorder != null) {
+                    recorder.write(inputBuffer, inputPosition, end - inputPosition);
                 }
-                builder = builder.append((char)buffer);
+                if (end < inputLimit) {
+                    inputPosition = end + 1;
+                    if (recorder != null) {
+                        recorder.endLine();
+                    }
+                    return lineMetadata;
+                }
+                inputPosition = end;
             }
-            return builder.toString();
         } catch(final Exception e) {
             System.exit(1);
             throw new RuntimeException(e);
         }
     }
 
-    private static Metadata readLineIntoMetadata() {
-        return new Metadata(readLine().trim().split(" "));
+    private static long currentThreadAllocatedBytes() {
+        if (ALLOCATION_BEAN == null) {
+            return -1;
+        }
+        return ALLOCATION_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        if (!allocationBean.isThreadAllocatedMemorySupported() || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+        return allocationBean;
+    }
+
+    public long getLastParseNanos() {
+        return lastParseNanos;
+    }
+
+    /**
+     * @return bytes allocated by the last turn's parse, or -1 if the JVM cannot measure it
+     */
+    public long getLastParseAllocatedBytes() {
+        return lastParseAllocatedBytes;
     }
 
     public GameMap initialize(final String botName) {
         this.botName = botName;
 
-        final int myId = Integer.parseInt(readLine());
+        final String recordPath = System.getProperty("hlt.record");
+        if (recordPath != null) {
+            try {
+                recorder = ReplayRecorder.open(recordPath);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        final int myId = readLineIntoMetadata().popInt();
         try {
             Log.initialize(new FileWriter(String.format("%d_%s.log", myId, botName)));
         }
@@ -86,8 +160,8 @@ public class Networking {
         }
 
         final Metadata inputStringMapSize = readLineIntoMetadata();
-        final int width = Integer.parseInt(inputStringMapSize.pop());
-        final int height = Integer.parseInt(inputStringMapSize.pop());
+        final int width = inputStringMapSize.popInt();
+        final int height = inputStringMapSize.popInt();
 
         final GameMap gameMap = new GameMap(width, height, myId);
         updateMap(gameMap);
@@ -100,7 +174,10 @@ public class Networking {
             System.out.println(botName);
         }
 
+        metrics = map.getMetrics();
+        final long readStart = TurnMetrics.start();
         final Metadata inputStringMetadata = readLineIntoMetadata();
+        metrics.stop(TurnMetrics.Phase.Read, readStart);
 
         if (turn == 0) {
             Log.log("--- PRE-GAME ---");
@@ -109,6 +186,17 @@ public class Networking {
         }
         ++turn;
 
+        final long allocatedBefore = currentThreadAllocatedBytes();
+        final long parseStart = System.nanoTime();
         map.updateMap(inputStringMetadata);
+        lastParseNanos = System.nanoTime() - parseStart;
+        metrics.add(TurnMetrics.Phase.Parse, lastParseNanos);
+        lastParseAllocatedBytes = allocatedBefore < 0 ? -1 : currentThreadAllocatedBytes() - allocatedBefore;
+
+        if (Log.isEnabled(Log.Level.Info)) {
+            Log.log("parse: " + (lastParseNanos / 1000) + " us, " + lastParseAllocatedBytes + " bytes allocated");
+        }
+
+        map.getTurnBudget().startTurn();
     }
 }
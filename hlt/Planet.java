@@ -1,45 +1,56 @@
 package hlt;
 
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
 
 public class Planet extends Entity {
 
-    private final int remainingProduction;
-    private final int currentProduction;
-    private final int dockingSpots;
-    private final List<Integer> dockedShips;
+    private final List<Integer> dockedShips = new AbstractList<Integer>() {
+        @Override
+        public Integer get(final int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return store.dockedShips[slot][index];
+        }
 
-    public Planet(final int owner, final int id, final double xPos, final double yPos, final int health,
-                  final double radius, final int dockingSpots, final int currentProduction,
-                  final int remainingProduction, final List<Integer> dockedShips) {
+        @Override
+        public int size() {
+            return store.dockedShipCount[slot];
+        }
+    };
 
-        super(owner, id, xPos, yPos, health, radius);
-
-        this.dockingSpots = dockingSpots;
-        this.currentProduction = currentProduction;
-        this.remainingProduction = remainingProduction;
-        this.dockedShips = Collections.unmodifiableList(dockedShips);
+    /** Create the view for a new planet in the given store; its fields are set by the caller. */
+    Planet(final EntityStore store, final int id) {
+        super(store, id);
     }
 
     public int getRemainingProduction() {
-        return remainingProduction;
+        return store.remainingProduction[slot];
     }
 
     public int getCurrentProduction() {
-        return currentProduction;
+        return store.currentProduction[slot];
     }
 
     public int getDockingSpots() {
-        return dockingSpots;
+        return store.dockingSpots[slot];
     }
 
     public List<Integer> getDockedShips() {
         return dockedShips;
     }
 
+    public int getDockedShipCount() {
+        return store.dockedShipCount[slot];
+    }
+
+    public int getDockedShipId(final int index) {
+        return store.dockedShips[slot][index];
+    }
+
     public boolean isFull() {
-        return dockedShips.size() == dockingSpots;
+        return getDockedShipCount() == getDockingSpots();
     }
 
     public boolean isOwned() {
@@ -50,9 +61,9 @@ public class Planet extends Entity {
     public String toString() {
         return "Planet[" +
                 super.toString() +
-                ", remainingProduction=" + remainingProduction +
-                ", currentProduction=" + currentProduction +
-                ", dockingSpots=" + dockingSpots +
+                ", remainingProduction=" + getRemainingProduction() +
+                ", currentProduction=" + getCurrentProduction() +
+                ", dockingSpots=" + getDockingSpots() +
                 ", dockedShips=" + dockedShips +
                 "]";
     }
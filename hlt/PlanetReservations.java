@@ -0,0 +1,79 @@
+package hlt;
+
+/**
+ * Ledger of the docking spots our ships have claimed, one planet per ship at most.
+ *
+ * Claims are counted per planet as they are made and dropped, so the number of ships on their
+ * way to a planet is an O(1) lookup instead of a scan over every ship's plans. A ship keeps its
+ * claim until it claims another planet, releases it, or dies; a ship that has docked still holds
+ * the claim of the planet it docked at.
+ */
+public class PlanetReservations {
+    private static final int NO_PLANET = -1;
+
+    private final IntIntMap planetByShip = new IntIntMap(NO_PLANET);
+    private final IntIntMap reservedByPlanet = new IntIntMap(0);
+
+    /**
+     * Claim a spot on the planet for the ship, dropping the ship's previous claim if any.
+     * A negative planet id only drops the previous claim.
+     */
+    public void reserve(final int shipId, final int planetId) {
+        final int previous = planetByShip.get(shipId);
+        if (previous == planetId) {
+            return;
+        }
+        if (previous != NO_PLANET) {
+            decrement(previous);
+        }
+        if (planetId < 0) {
+            planetByShip.remove(shipId);
+            return;
+        }
+        planetByShip.put(shipId, planetId);
+        reservedByPlanet.put(planetId, reservedByPlanet.get(planetId) + 1);
+    }
+
+    /**
+     * Drop the ship's claim, if it has one.
+     */
+    public void release(final int shipId) {
+        reserve(shipId, NO_PLANET);
+    }
+
+    /**
+     * @return the planet the ship has claimed, or -1
+     */
+    public int getReservedPlanet(final int shipId) {
+        return planetByShip.get(shipId);
+    }
+
+    /**
+     * @return the number of ships holding a claim on the planet
+     */
+    public int getReserved(final int planetId) {
+        return reservedByPlanet.get(planetId);
+    }
+
+    /**
+     * @return the planet's docking spots minus its docked ships and our claims on it; claims of
+     *         ships already docked there are counted twice, so this errs on the side of full
+     */
+    public int getFreeSpots(final Planet planet) {
+        return planet.getDockingSpots() - planet.getDockedShipCount() - getReserved(planet.getId());
+    }
+
+    public void clear() {
+        planetByShip.clear();
+        reservedByPlanet.clear();
+    }
+
+    private void decrement(final int planetId) {
+        final int count = reservedByPlanet.get(planetId) - 1;
+        if (count == 0) {
+            reservedByPlanet.remove(planetId);
+        } else {
+            reservedByPlanet.put(planetId, count);
+        }
+    }
+}
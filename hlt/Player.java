@@ -2,16 +2,25 @@ package hlt;
 
 import java.util.Collections;
 import java.util.Map;
-import java.util.TreeMap;
 
 public class Player {
 
     private final Map<Integer, Ship> ships;
+    private final IntObjectMap<Ship> shipsById;
     private final int id;
 
     public Player(final int id, Map<Integer, Ship> ships) {
+        this(id, ships, new IntObjectMap<>(ships.size()));
+        for (final Ship ship : ships.values()) {
+            shipsById.put(ship.getId(), ship);
+        }
+    }
+
+    /** Both ship collections are kept up to date by the caller. */
+    Player(final int id, final Map<Integer, Ship> ships, final IntObjectMap<Ship> shipsById) {
         this.id = id;
         this.ships = Collections.unmodifiableMap(ships);
+        this.shipsById = shipsById;
     }
 
     public Map<Integer, Ship> getShips() {
@@ -19,7 +28,11 @@ public class Player {
     }
 
     public Ship getShip(final int entityId) {
-        return ships.get(entityId);
+        return shipsById.get(entityId);
+    }
+
+    public boolean hasShip(final int entityId) {
+        return shipsById.containsKey(entityId);
     }
 
     public int getId() {
@@ -19,18 +19,25 @@ public class Position {
     }
 
     public double getDistanceTo(final Position target) {
-        final double dx = xPos - target.getXPos();
-        final double dy = yPos - target.getYPos();
+        final double dx = getXPos() - target.getXPos();
+        final double dy = getYPos() - target.getYPos();
         return Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
     }
 
+    /**
+     * @return the squared distance, for comparisons that need no square root; see Geometry
+     */
+    public double getDistanceSquaredTo(final Position target) {
+        return Geometry.distanceSquared(this, target);
+    }
+
     public int orientTowardsInDeg(final Position target) {
         return Util.angleRadToDegClipped(orientTowardsInRad(target));
     }
 
     public double orientTowardsInRad(final Position target) {
-        final double dx = target.getXPos() - xPos;
-        final double dy = target.getYPos() - yPos;
+        final double dx = target.getXPos() - getXPos();
+        final double dy = target.getYPos() - getYPos();
 
         return Math.atan2(dy, dx) + 2 * Math.PI;
     }
@@ -55,16 +62,16 @@ public class Position {
         }
         final Position position = (Position) o;
 
-        return (Double.compare(position.xPos, xPos) == 0) && (Double.compare(position.yPos, yPos) == 0);
+        return (Double.compare(position.getXPos(), getXPos()) == 0) && (Double.compare(position.getYPos(), getYPos()) == 0);
     }
 
     @Override
     public int hashCode() {
         int result;
         long temp;
-        temp = Double.doubleToLongBits(xPos);
+        temp = Double.doubleToLongBits(getXPos());
         result = (int)(temp ^ (temp >>> 32));
-        temp = Double.doubleToLongBits(yPos);
+        temp = Double.doubleToLongBits(getYPos());
         result = 31 * result + (int)(temp ^ (temp >>> 32));
 
         return result;
@@ -72,6 +79,6 @@ public class Position {
 
     @Override
     public String toString() {
-        return "Position(" + xPos + ", " + yPos + ")";
+        return "Position(" + getXPos() + ", " + getYPos() + ")";
     }
 }
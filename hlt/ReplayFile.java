@@ -0,0 +1,72 @@
+package hlt;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A game's engine input as written by ReplayRecorder, or any saved copy of the bot's stdin:
+ * the player id line, the "width height" line, then one line per turn starting with the
+ * pre-game map. Files ending in ".gz" are read gzipped.
+ */
+public class ReplayFile {
+    private final int myId;
+    private final int width;
+    private final int height;
+    private final List<String> turns;
+
+    private ReplayFile(final int myId, final int width, final int height, final List<String> turns) {
+        this.myId = myId;
+        this.width = width;
+        this.height = height;
+        this.turns = Collections.unmodifiableList(turns);
+    }
+
+    public static ReplayFile load(final String path) throws IOException {
+        InputStream in = new FileInputStream(path);
+        if (path.endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        final List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1), 1 << 16)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.trim().isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        }
+        if (lines.size() < 3) {
+            throw new IOException(path + " does not contain any turn");
+        }
+        final int myId = Integer.parseInt(lines.get(0).trim());
+        final String[] size = lines.get(1).trim().split(" ");
+        return new ReplayFile(myId, Integer.parseInt(size[0]), Integer.parseInt(size[1]),
+                new ArrayList<>(lines.subList(2, lines.size())));
+    }
+
+    public int getMyId() {
+        return myId;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the turn lines; the first one is the pre-game map
+     */
+    public List<String> getTurns() {
+        return turns;
+    }
+}
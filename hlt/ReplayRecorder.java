@@ -0,0 +1,81 @@
+package hlt;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copies the engine's input stream to a file as it is read, so a real game can be replayed
+ * offline with ReplayFile.
+ *
+ * The file holds the raw lines: the player id, "width height", then one line per turn. A path
+ * ending in ".gz" is gzipped, which makes a whole game a few hundred KB. Writes are buffered and
+ * the file is closed by a shutdown hook, so it is complete when the bot exits at the end of the
+ * game. A failed write disables the recorder rather than the bot.
+ */
+public class ReplayRecorder {
+    private OutputStream out;
+
+    private ReplayRecorder(final OutputStream out) {
+        this.out = out;
+    }
+
+    public static ReplayRecorder open(final String path) throws IOException {
+        OutputStream out = new FileOutputStream(path);
+        if (path.endsWith(".gz")) {
+            out = new GZIPOutputStream(out, 1 << 16);
+        }
+        final ReplayRecorder recorder = new ReplayRecorder(new BufferedOutputStream(out, 1 << 16));
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::close, "hlt-replay-close"));
+        return recorder;
+    }
+
+    /**
+     * Record part of the current line.
+     */
+    public synchronized void write(final byte[] bytes, final int offset, final int length) {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.write(bytes, offset, length);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void endLine() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.write('\n');
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            Log.log(Log.Level.Warning, "replay: closing failed: " + e);
+        }
+        out = null;
+    }
+
+    private void fail(final IOException e) {
+        Log.log(Log.Level.Warning, "replay: recording stopped: " + e);
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // already failing
+        }
+        out = null;
+    }
+}
@@ -4,37 +4,36 @@ public class Ship extends Entity {
 
     public enum DockingStatus { Undocked, Docking, Docked, Undocking }
 
-    private final DockingStatus dockingStatus;
-    private final int dockedPlanet;
-    private final int dockingProgress;
-    private final int weaponCooldown;
+    private static final DockingStatus[] DOCKING_STATUSES = DockingStatus.values();
 
-    public Ship(final int owner, final int id, final double xPos, final double yPos,
-                final int health, final DockingStatus dockingStatus, final int dockedPlanet,
-                final int dockingProgress, final int weaponCooldown) {
-
-        super(owner, id, xPos, yPos, health, Constants.SHIP_RADIUS);
-
-        this.dockingStatus = dockingStatus;
-        this.dockedPlanet = dockedPlanet;
-        this.dockingProgress = dockingProgress;
-        this.weaponCooldown = weaponCooldown;
+    /** Create the view for a new ship in the given store; its fields are set by the caller. */
+    Ship(final EntityStore store, final int id) {
+        super(store, id);
     }
 
     public int getWeaponCooldown() {
-        return weaponCooldown;
+        return store.weaponCooldown[slot];
     }
 
     public DockingStatus getDockingStatus() {
-        return dockingStatus;
+        return DOCKING_STATUSES[store.dockingStatus[slot]];
     }
 
     public int getDockingProgress() {
-        return dockingProgress;
+        return store.dockingProgress[slot];
     }
 
     public int getDockedPlanet() {
-        return dockedPlanet;
+        return store.dockedPlanet[slot];
+    }
+
+    /** Velocity as reported by the engine, which currently always sends (0,0); see MotionHistory. */
+    public double getVelocityX() {
+        return store.velocityX[slot];
+    }
+
+    public double getVelocityY() {
+        return store.velocityY[slot];
     }
 
     public boolean canDock(final Planet planet) {
@@ -45,10 +44,10 @@ public class Ship extends Entity {
     public String toString() {
         return "Ship[" +
                 super.toString() +
-                ", dockingStatus=" + dockingStatus +
-                ", dockedPlanet=" + dockedPlanet +
-                ", dockingProgress=" + dockingProgress +
-                ", weaponCooldown=" + weaponCooldown +
+                ", dockingStatus=" + getDockingStatus() +
+                ", dockedPlanet=" + getDockedPlanet() +
+                ", dockingProgress=" + getDockingProgress() +
+                ", weaponCooldown=" + getWeaponCooldown() +
                 "]";
     }
 }
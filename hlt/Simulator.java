@@ -0,0 +1,951 @@
+package hlt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Headless, in-process implementation of the Halite II rules for self-play.
+ *
+ * A seeded map is generated with planets mirrored between the players. Each turn every bot gets
+ * its own GameMap updated from the same engine-format line the real engine would send. The moves
+ * are then applied: docking requests first, then movement over the turn with ship and planet
+ * collisions, leaving the map, weapon fire and planet explosions processed in time order, then
+ * docking progress and ship production.
+ * Where the engine's exact numbers are not part of the published rules (map layout, planet health,
+ * explosion falloff, spawn search) the simulator uses simple choices of the same shape, so results
+ * are good for comparing bots, not for predicting exact engine outcomes.
+ *
+ * One Simulator plays one game; it is not thread-safe, but separate instances share nothing.
+ */
+public class Simulator {
+
+    /** Production a planet needs to spawn one ship. */
+    public static final int PRODUCTION_PER_SHIP = 72;
+
+    private static final int INITIAL_SHIPS = 3;
+    private static final double MIN_PLANET_RADIUS = 3.0;
+    private static final double MAX_PLANET_RADIUS = 8.0;
+    private static final int PLANETS_PER_PLAYER = 4;
+    private static final double PLANET_SPACING = 6.0;
+
+    /** Ships further apart than this at the start of a turn cannot interact during it. */
+    private static final double INTERACTION_CELL = 2 * Constants.MAX_SPEED + Constants.WEAPON_RADIUS + 2 * Constants.SHIP_RADIUS;
+
+    private static final int COLLISION = 0;
+    private static final int PLANET_COLLISION = 1;
+    private static final int OUT_OF_MAP = 2;
+    private static final int ATTACK = 3;
+
+    private static final int EVENT_INDEX_BITS = 20;
+    private static final double EVENT_TIME_SCALE = 1L << 40;
+
+    private final long seed;
+    private final int numberOfPlayers;
+    private final int width;
+    private final int height;
+    private int maxTurns;
+    private boolean incrementalUpdates = true;
+
+    // ships, indexed by id
+    private int shipCount;
+    private int[] shipOwner = new int[256];
+    private double[] shipX = new double[256];
+    private double[] shipY = new double[256];
+    private double[] velocityX = new double[256];
+    private double[] velocityY = new double[256];
+    private int[] shipHealth = new int[256];
+    private int[] dockingStatus = new int[256];
+    private int[] dockedPlanet = new int[256];
+    private int[] dockingProgress = new int[256];
+    private int[] weaponCooldown = new int[256];
+    private boolean[] shipAlive = new boolean[256];
+    private int[] commandTurn = new int[256];
+    private int[] pendingDamage = new int[256];
+
+    // planets, indexed by id
+    private int planetCount;
+    private double[] planetX;
+    private double[] planetY;
+    private double[] planetRadius;
+    private int[] planetHealth;
+    private int[] dockingSpots;
+    private int[] production;
+    private int[] remainingProduction;
+    private int[] planetOwner;
+    private boolean[] planetAlive;
+    private int[][] planetDocked;
+    private int[] planetDockedCount;
+
+    // per-turn scratch
+    private final List<Move> moves = new ArrayList<>();
+    private int[] dockRequests = new int[64];
+    private int[] dockRequestPlanet = new int[64];
+    private int dockRequestCount;
+    private long[] eventKeys = new long[256];
+    private int[] eventType = new int[256];
+    private int[] eventA = new int[256];
+    private int[] eventB = new int[256];
+    private double[] eventTime = new double[256];
+    private int eventCount;
+    private int gridColumns;
+    private int gridRows;
+    private int[] gridHead = new int[0];
+    private int[] gridNext = new int[256];
+    private byte[] frame = new byte[1 << 16];
+    private int frameLength;
+
+    public Simulator(final long seed, final int numberOfPlayers, final int width, final int height) {
+        if (numberOfPlayers != 2 && numberOfPlayers != 4) {
+            throw new IllegalArgumentException("Only 2 and 4 player games are supported: " + numberOfPlayers);
+        }
+        this.seed = seed;
+        this.numberOfPlayers = numberOfPlayers;
+        this.width = width;
+        this.height = height;
+        this.maxTurns = 100 + (int) Math.sqrt(width * height);
+        generateMap(new Random(seed));
+    }
+
+    public int getMaxTurns() {
+        return maxTurns;
+    }
+
+    public void setMaxTurns(final int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * Whether the bots' GameMaps update in place, as MyBot sets up after its pre-game turn.
+     */
+    public void setIncrementalUpdates(final boolean incrementalUpdates) {
+        this.incrementalUpdates = incrementalUpdates;
+    }
+
+    /**
+     * Play the game to the end, with bots.get(i) controlling player i.
+     */
+    public GameResult play(final List<? extends Bot> bots) {
+        if (bots.size() != numberOfPlayers) {
+            throw new IllegalArgumentException("Expected " + numberOfPlayers + " bots, got " + bots.size());
+        }
+
+        final GameMap[] maps = new GameMap[numberOfPlayers];
+        final Metadata metadata = new Metadata();
+        final int[] eliminatedTurn = new int[numberOfPlayers];
+        final int[] errors = new int[numberOfPlayers];
+        final long[][] turnNanos = new long[numberOfPlayers][maxTurns];
+        final int[] turnsPlayed = new int[numberOfPlayers];
+
+        // The pre-game frame, which MyBot reads in Networking.initialize().
+        writeFrame();
+        for (int player = 0; player < numberOfPlayers; ++player) {
+            maps[player] = new GameMap(width, height, player);
+            loadFrame(metadata);
+            maps[player].updateMap(metadata);
+            maps[player].setIncrementalUpdates(incrementalUpdates);
+        }
+
+        int turn = 0;
+        while (turn < maxTurns && playersAlive(eliminatedTurn) > 1) {
+            ++turn;
+            writeFrame();
+            beginTurn();
+            for (int player = 0; player < numberOfPlayers; ++player) {
+                if (eliminatedTurn[player] != 0) {
+                    continue;
+                }
+                loadFrame(metadata);
+                maps[player].updateMap(metadata);
+
+                moves.clear();
+                final long start = System.nanoTime();
+                try {
+                    bots.get(player).update(maps[player], moves);
+                } catch (RuntimeException e) {
+                    ++errors[player];
+                    moves.clear();
+                }
+                turnNanos[player][turnsPlayed[player]++] = System.nanoTime() - start;
+
+                applyMoves(player, turn);
+            }
+
+            resolveDocking();
+            simulateMovement();
+            updateDocking();
+            produceShips();
+
+            for (int player = 0; player < numberOfPlayers; ++player) {
+                if (eliminatedTurn[player] == 0 && countShips(player) == 0) {
+                    eliminatedTurn[player] = turn;
+                }
+            }
+        }
+
+        final int[] ships = new int[numberOfPlayers];
+        final long[] health = new long[numberOfPlayers];
+        for (int id = 0; id < shipCount; ++id) {
+            if (shipAlive[id]) {
+                ++ships[shipOwner[id]];
+                health[shipOwner[id]] += shipHealth[id];
+            }
+        }
+        final int[] ranks = new int[numberOfPlayers];
+        for (int player = 0; player < numberOfPlayers; ++player) {
+            ranks[player] = 1;
+            for (int other = 0; other < numberOfPlayers; ++other) {
+                if (ranksAbove(other, player, eliminatedTurn, ships, health)) {
+                    ++ranks[player];
+                }
+            }
+            turnNanos[player] = Arrays.copyOf(turnNanos[player], turnsPlayed[player]);
+        }
+        return new GameResult(seed, turn, ranks, ships, errors, turnNanos);
+    }
+
+    /**
+     * Survivors rank above eliminated players, later eliminations above earlier ones; survivors
+     * are ordered by ship count, then total health, then player id.
+     */
+    private static boolean ranksAbove(final int other, final int player, final int[] eliminatedTurn,
+                                      final int[] ships, final long[] health) {
+        if (other == player) {
+            return false;
+        }
+        final int otherOut = eliminatedTurn[other] == 0 ? Integer.MAX_VALUE : eliminatedTurn[other];
+        final int playerOut = eliminatedTurn[player] == 0 ? Integer.MAX_VALUE : eliminatedTurn[player];
+        if (otherOut != playerOut) {
+            return otherOut > playerOut;
+        }
+        if (ships[other] != ships[player]) {
+            return ships[other] > ships[player];
+        }
+        if (health[other] != health[player]) {
+            return health[other] > health[player];
+        }
+        return other < player;
+    }
+
+    private static int playersAlive(final int[] eliminatedTurn) {
+        int alive = 0;
+        for (final int turn : eliminatedTurn) {
+            if (turn == 0) {
+                ++alive;
+            }
+        }
+        return alive;
+    }
+
+    private int countShips(final int player) {
+        int count = 0;
+        for (int id = 0; id < shipCount; ++id) {
+            if (shipAlive[id] && shipOwner[id] == player) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    // ---------------------------------------------------------------- map generation
+
+    private void generateMap(final Random random) {
+        final double[] spawnX = new double[numberOfPlayers];
+        final double[] spawnY = new double[numberOfPlayers];
+        for (int player = 0; player < numberOfPlayers; ++player) {
+            final boolean right = numberOfPlayers == 2 ? player == 1 : (player & 1) == 1;
+            final boolean bottom = numberOfPlayers == 4 && (player & 2) == 2;
+            spawnX[player] = right ? width * 0.75 : width * 0.25;
+            spawnY[player] = numberOfPlayers == 2 ? height * 0.5 : (bottom ? height * 0.75 : height * 0.25);
+            for (int i = 0; i < INITIAL_SHIPS; ++i) {
+                addShip(player, spawnX[player], spawnY[player] + (i - INITIAL_SHIPS / 2) * 2.0);
+            }
+        }
+
+        // Planets are placed in player 0's half or quadrant and mirrored into the others.
+        final int copies = numberOfPlayers;
+        final int capacity = PLANETS_PER_PLAYER * copies;
+        planetX = new double[capacity];
+        planetY = new double[capacity];
+        planetRadius = new double[capacity];
+        planetHealth = new int[capacity];
+        dockingSpots = new int[capacity];
+        production = new int[capacity];
+        remainingProduction = new int[capacity];
+        planetOwner = new int[capacity];
+        planetAlive = new boolean[capacity];
+        planetDocked = new int[capacity][];
+        planetDockedCount = new int[capacity];
+
+        final double regionWidth = width / 2.0;
+        final double regionHeight = numberOfPlayers == 2 ? height : height / 2.0;
+        for (int attempt = 0; attempt < 1000 && planetCount < capacity; ++attempt) {
+            final double radius = MIN_PLANET_RADIUS + random.nextDouble() * (MAX_PLANET_RADIUS - MIN_PLANET_RADIUS);
+            final double x = radius + PLANET_SPACING + random.nextDouble() * (regionWidth - 2 * (radius + PLANET_SPACING));
+            final double y = radius + PLANET_SPACING + random.nextDouble() * (regionHeight - 2 * (radius + PLANET_SPACING));
+            if (Math.hypot(x - spawnX[0], y - spawnY[0]) < radius + 3 * PLANET_SPACING || !planetFits(x, y, radius)) {
+                continue;
+            }
+            for (int copy = 0; copy < copies; ++copy) {
+                final boolean mirrorX = (copy & 1) == 1;
+                final boolean mirrorY = numberOfPlayers == 2 ? mirrorX : (copy & 2) == 2;
+                addPlanet(mirrorX ? width - x : x, mirrorY ? height - y : y, radius);
+            }
+        }
+    }
+
+    private boolean planetFits(final double x, final double y, final double radius) {
+        for (int planet = 0; planet < planetCount; ++planet) {
+            if (Math.hypot(x - planetX[planet], y - planetY[planet]) < radius + planetRadius[planet] + PLANET_SPACING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addPlanet(final double x, final double y, final double radius) {
+        final int planet = planetCount++;
+        planetX[planet] = x;
+        planetY[planet] = y;
+        planetRadius[planet] = radius;
+        planetHealth[planet] = (int) (radius * Constants.MAX_SHIP_HEALTH);
+        dockingSpots[planet] = Math.max(2, Math.min(6, (int) (radius / 1.5)));
+        remainingProduction[planet] = (int) (radius * radius * 100);
+        planetOwner[planet] = -1;
+        planetAlive[planet] = true;
+        planetDocked[planet] = new int[dockingSpots[planet]];
+    }
+
+    private int addShip(final int owner, final double x, final double y) {
+        if (shipCount == shipOwner.length) {
+            final int capacity = shipCount * 2;
+            shipOwner = Arrays.copyOf(shipOwner, capacity);
+            shipX = Arrays.copyOf(shipX, capacity);
+            shipY = Arrays.copyOf(shipY, capacity);
+            velocityX = Arrays.copyOf(velocityX, capacity);
+            velocityY = Arrays.copyOf(velocityY, capacity);
+            shipHealth = Arrays.copyOf(shipHealth, capacity);
+            dockingStatus = Arrays.copyOf(dockingStatus, capacity);
+            dockedPlanet = Arrays.copyOf(dockedPlanet, capacity);
+            dockingProgress = Arrays.copyOf(dockingProgress, capacity);
+            weaponCooldown = Arrays.copyOf(weaponCooldown, capacity);
+            shipAlive = Arrays.copyOf(shipAlive, capacity);
+            commandTurn = Arrays.copyOf(commandTurn, capacity);
+            pendingDamage = Arrays.copyOf(pendingDamage, capacity);
+            gridNext = Arrays.copyOf(gridNext, capacity);
+        }
+        final int id = shipCount++;
+        shipOwner[id] = owner;
+        shipX[id] = x;
+        shipY[id] = y;
+        shipHealth[id] = Constants.BASE_SHIP_HEALTH;
+        dockingStatus[id] = Ship.DockingStatus.Undocked.ordinal();
+        shipAlive[id] = true;
+        return id;
+    }
+
+    // ---------------------------------------------------------------- commands
+
+    private void beginTurn() {
+        dockRequestCount = 0;
+        for (int id = 0; id < shipCount; ++id) {
+            velocityX[id] = 0.0;
+            velocityY[id] = 0.0;
+            if (weaponCooldown[id] > 0) {
+                --weaponCooldown[id];
+            }
+        }
+    }
+
+    /** Apply one player's moves; invalid ones and repeated commands for the same ship are ignored. */
+    private void applyMoves(final int player, final int turn) {
+        for (int i = 0; i < moves.size(); ++i) {
+            final Move move = moves.get(i);
+            if (move == null || move.getShip() == null) {
+                continue;
+            }
+            final int id = move.getShip().getId();
+            if (id < 0 || id >= shipCount || !shipAlive[id] || shipOwner[id] != player || commandTurn[id] == turn) {
+                continue;
+            }
+            commandTurn[id] = turn;
+
+            switch (move.getType()) {
+                case Thrust:
+                    if (dockingStatus[id] == Ship.DockingStatus.Undocked.ordinal()) {
+                        final ThrustMove thrustMove = (ThrustMove) move;
+                        final int thrust = Math.max(0, Math.min(Constants.MAX_SPEED, thrustMove.getThrust()));
+                        final double angle = Math.toRadians(thrustMove.getAngle());
+                        velocityX[id] = Math.cos(angle) * thrust;
+                        velocityY[id] = Math.sin(angle) * thrust;
+                    }
+                    break;
+                case Dock:
+                    final long planet = ((DockMove) move).getDestinationId();
+                    if (dockingStatus[id] == Ship.DockingStatus.Undocked.ordinal()
+                            && planet >= 0 && planet < planetCount && planetAlive[(int) planet]
+                            && Math.hypot(shipX[id] - planetX[(int) planet], shipY[id] - planetY[(int) planet])
+                                <= Constants.SHIP_RADIUS + Constants.DOCK_RADIUS + planetRadius[(int) planet]) {
+                        if (dockRequestCount == dockRequests.length) {
+                            dockRequests = Arrays.copyOf(dockRequests, dockRequestCount * 2);
+                            dockRequestPlanet = Arrays.copyOf(dockRequestPlanet, dockRequestCount * 2);
+                        }
+                        dockRequests[dockRequestCount] = id;
+                        dockRequestPlanet[dockRequestCount++] = (int) planet;
+                    }
+                    break;
+                case Undock:
+                    if (dockingStatus[id] == Ship.DockingStatus.Docked.ordinal()) {
+                        dockingStatus[id] = Ship.DockingStatus.Undocking.ordinal();
+                        dockingProgress[id] = Constants.DOCK_TURNS;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Dock the requesting ships, in request order, while spots are left. Ships of different players
+     * racing for the same free planet in the same turn all fail.
+     */
+    private void resolveDocking() {
+        for (int i = 0; i < dockRequestCount; ++i) {
+            final int id = dockRequests[i];
+            final int planet = dockRequestPlanet[i];
+            if (!planetAlive[planet] || (planetOwner[planet] >= 0 && planetOwner[planet] != shipOwner[id])) {
+                continue;
+            }
+            if (planetOwner[planet] < 0 && contested(planet, shipOwner[id])) {
+                continue;
+            }
+            if (planetDockedCount[planet] == dockingSpots[planet]) {
+                continue;
+            }
+            planetOwner[planet] = shipOwner[id];
+            planetDocked[planet][planetDockedCount[planet]++] = id;
+            dockingStatus[id] = Ship.DockingStatus.Docking.ordinal();
+            dockedPlanet[id] = planet;
+            dockingProgress[id] = Constants.DOCK_TURNS;
+        }
+    }
+
+    private boolean contested(final int planet, final int owner) {
+        for (int i = 0; i < dockRequestCount; ++i) {
+            if (dockRequestPlanet[i] == planet && shipOwner[dockRequests[i]] != owner) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------- movement and combat
+
+    private void simulateMovement() {
+        buildGrid();
+        eventCount = 0;
+
+        final double collisionRange = 2 * Constants.SHIP_RADIUS;
+        final double attackRange = Constants.WEAPON_RADIUS + 2 * Constants.SHIP_RADIUS;
+        for (int a = 0; a < shipCount; ++a) {
+            if (!shipAlive[a]) {
+                continue;
+            }
+            final int column = column(shipX[a]);
+            final int row = row(shipY[a]);
+            for (int r = Math.max(0, row - 1); r <= Math.min(gridRows - 1, row + 1); ++r) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(gridColumns - 1, column + 1); ++c) {
+                    for (int b = gridHead[r * gridColumns + c]; b >= 0; b = gridNext[b]) {
+                        if (b <= a) {
+                            continue;
+                        }
+                        final double px = shipX[b] - shipX[a];
+                        final double py = shipY[b] - shipY[a];
+                        final double vx = velocityX[b] - velocityX[a];
+                        final double vy = velocityY[b] - velocityY[a];
+                        final double collision = Collision.firstContact(px, py, vx, vy, collisionRange);
+                        if (collision >= 0) {
+                            addEvent(COLLISION, a, b, collision);
+                        }
+                        if (shipOwner[a] != shipOwner[b]) {
+                            final double attack = Collision.firstContact(px, py, vx, vy, attackRange);
+                            if (attack >= 0) {
+                                if (canAttack(a)) {
+                                    addEvent(ATTACK, a, b, attack);
+                                }
+                                if (canAttack(b)) {
+                                    addEvent(ATTACK, b, a, attack);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (int planet = 0; planet < planetCount; ++planet) {
+                if (!planetAlive[planet]) {
+                    continue;
+                }
+                final double contact = Collision.firstContact(planetX[planet] - shipX[a], planetY[planet] - shipY[a],
+                        -velocityX[a], -velocityY[a], Constants.SHIP_RADIUS + planetRadius[planet]);
+                if (contact >= 0) {
+                    addEvent(PLANET_COLLISION, a, planet, contact);
+                }
+            }
+
+            final double exit = exitTime(a);
+            if (exit >= 0) {
+                addEvent(OUT_OF_MAP, a, -1, exit);
+            }
+        }
+
+        for (int i = 0; i < eventCount; ++i) {
+            eventKeys[i] = (long) (eventTime[i] * EVENT_TIME_SCALE) << EVENT_INDEX_BITS | i;
+        }
+        Arrays.sort(eventKeys, 0, eventCount);
+
+        int groupStart = 0;
+        while (groupStart < eventCount) {
+            int groupEnd = groupStart + 1;
+            while (groupEnd < eventCount && eventKeys[groupEnd] >>> EVENT_INDEX_BITS == eventKeys[groupStart] >>> EVENT_INDEX_BITS) {
+                ++groupEnd;
+            }
+            processEvents(groupStart, groupEnd);
+            groupStart = groupEnd;
+        }
+
+        for (int id = 0; id < shipCount; ++id) {
+            if (shipAlive[id]) {
+                shipX[id] += velocityX[id];
+                shipY[id] += velocityY[id];
+            }
+        }
+    }
+
+    /** Process the events that happen at the same moment as if simultaneously. */
+    private void processEvents(final int groupStart, final int groupEnd) {
+        for (int k = groupStart; k < groupEnd; ++k) {
+            final int event = (int) (eventKeys[k] & ((1 << EVENT_INDEX_BITS) - 1));
+            final int a = eventA[event];
+            final int b = eventB[event];
+            switch (eventType[event]) {
+                case COLLISION:
+                    if (shipHealth[a] > 0 && shipHealth[b] > 0) {
+                        final int healthA = shipHealth[a];
+                        shipHealth[a] -= shipHealth[b];
+                        shipHealth[b] -= healthA;
+                    }
+                    break;
+                case PLANET_COLLISION:
+                    if (shipHealth[a] > 0 && planetAlive[b]) {
+                        planetHealth[b] -= shipHealth[a];
+                        shipHealth[a] = 0;
+                    }
+                    break;
+                case OUT_OF_MAP:
+                    shipHealth[a] = 0;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Weapons fire at every enemy in range at that moment, splitting the damage between them.
+        final double time = eventTime[(int) (eventKeys[groupStart] & ((1 << EVENT_INDEX_BITS) - 1))];
+        final double attackRange = Constants.WEAPON_RADIUS + 2 * Constants.SHIP_RADIUS;
+        for (int k = groupStart; k < groupEnd; ++k) {
+            final int event = (int) (eventKeys[k] & ((1 << EVENT_INDEX_BITS) - 1));
+            final int attacker = eventA[event];
+            if (eventType[event] != ATTACK || shipHealth[attacker] <= 0 || !canAttack(attacker)) {
+                continue;
+            }
+            weaponCooldown[attacker] = Constants.WEAPON_COOLDOWN;
+
+            final double x = shipX[attacker] + velocityX[attacker] * time;
+            final double y = shipY[attacker] + velocityY[attacker] * time;
+            int targets = 0;
+            for (int pass = 0; pass < 2; ++pass) {
+                final int damage = pass == 0 ? 0 : Constants.WEAPON_DAMAGE / targets;
+                final int column = column(shipX[attacker]);
+                final int row = row(shipY[attacker]);
+                for (int r = Math.max(0, row - 1); r <= Math.min(gridRows - 1, row + 1); ++r) {
+                    for (int c = Math.max(0, column - 1); c <= Math.min(gridColumns - 1, column + 1); ++c) {
+                        for (int target = gridHead[r * gridColumns + c]; target >= 0; target = gridNext[target]) {
+                            if (shipOwner[target] == shipOwner[attacker] || shipHealth[target] <= 0) {
+                                continue;
+                            }
+                            final double dx = shipX[target] + velocityX[target] * time - x;
+                            final double dy = shipY[target] + velocityY[target] * time - y;
+                            if (dx * dx + dy * dy <= attackRange * attackRange + 1e-9) {
+                                if (pass == 0) {
+                                    ++targets;
+                                } else {
+                                    pendingDamage[target] += damage;
+                                }
+                            }
+                        }
+                    }
+                }
+                if (targets == 0) {
+                    break;
+                }
+            }
+        }
+        for (int k = groupStart; k < groupEnd; ++k) {
+            final int event = (int) (eventKeys[k] & ((1 << EVENT_INDEX_BITS) - 1));
+            if (eventType[event] == ATTACK) {
+                final int target = eventB[event];
+                shipHealth[target] -= pendingDamage[target];
+                pendingDamage[target] = 0;
+            }
+        }
+
+        resolveDeaths(time);
+    }
+
+    /** Remove dead ships, then blow up dead planets until nothing else dies. */
+    private void resolveDeaths(final double time) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int id = 0; id < shipCount; ++id) {
+                if (shipAlive[id] && shipHealth[id] <= 0) {
+                    killShip(id);
+                }
+            }
+            for (int planet = 0; planet < planetCount; ++planet) {
+                if (planetAlive[planet] && planetHealth[planet] <= 0) {
+                    explode(planet, time);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Destroy a planet with every ship docked to it; damage falls off linearly from the planet's
+     * surface to EXPLOSION_RADIUS beyond it.
+     */
+    private void explode(final int planet, final double time) {
+        planetAlive[planet] = false;
+        for (int i = 0; i < planetDockedCount[planet]; ++i) {
+            shipHealth[planetDocked[planet][i]] = 0;
+        }
+
+        for (int id = 0; id < shipCount; ++id) {
+            if (!shipAlive[id] || shipHealth[id] <= 0) {
+                continue;
+            }
+            final double distance = Math.hypot(shipX[id] + velocityX[id] * time - planetX[planet],
+                    shipY[id] + velocityY[id] * time - planetY[planet]) - planetRadius[planet];
+            shipHealth[id] -= explosionDamage(distance);
+        }
+        for (int other = 0; other < planetCount; ++other) {
+            if (planetAlive[other]) {
+                final double distance = Math.hypot(planetX[other] - planetX[planet], planetY[other] - planetY[planet])
+                        - planetRadius[planet] - planetRadius[other];
+                planetHealth[other] -= explosionDamage(distance);
+            }
+        }
+        for (int id = 0; id < shipCount; ++id) {
+            if (shipAlive[id] && shipHealth[id] <= 0) {
+                killShip(id);
+            }
+        }
+    }
+
+    private static int explosionDamage(final double distanceFromSurface) {
+        if (distanceFromSurface >= Constants.EXPLOSION_RADIUS) {
+            return 0;
+        }
+        final double falloff = 1.0 - Math.max(0.0, distanceFromSurface) / Constants.EXPLOSION_RADIUS;
+        return (int) Math.ceil(Constants.MAX_SHIP_HEALTH * falloff);
+    }
+
+    private void killShip(final int id) {
+        shipAlive[id] = false;
+        shipHealth[id] = 0;
+        if (dockingStatus[id] != Ship.DockingStatus.Undocked.ordinal()) {
+            detach(id);
+        }
+    }
+
+    private void detach(final int id) {
+        final int planet = dockedPlanet[id];
+        final int[] docked = planetDocked[planet];
+        for (int i = 0; i < planetDockedCount[planet]; ++i) {
+            if (docked[i] == id) {
+                docked[i] = docked[--planetDockedCount[planet]];
+                break;
+            }
+        }
+        if (planetDockedCount[planet] == 0) {
+            planetOwner[planet] = -1;
+        }
+    }
+
+    private boolean canAttack(final int id) {
+        return weaponCooldown[id] == 0 && dockingStatus[id] == Ship.DockingStatus.Undocked.ordinal();
+    }
+
+    /**
+     * @return when the ship leaves the map during the turn, or -1
+     */
+    private double exitTime(final int id) {
+        final double endX = shipX[id] + velocityX[id];
+        final double endY = shipY[id] + velocityY[id];
+        if (endX >= 0 && endX < width && endY >= 0 && endY < height) {
+            return -1.0;
+        }
+        double t = 1.0;
+        if (endX < 0) {
+            t = Math.min(t, shipX[id] / -velocityX[id]);
+        } else if (endX >= width) {
+            t = Math.min(t, (width - shipX[id]) / velocityX[id]);
+        }
+        if (endY < 0) {
+            t = Math.min(t, shipY[id] / -velocityY[id]);
+        } else if (endY >= height) {
+            t = Math.min(t, (height - shipY[id]) / velocityY[id]);
+        }
+        return Math.max(0.0, t);
+    }
+
+    private void addEvent(final int type, final int a, final int b, final double time) {
+        if (eventCount == eventType.length) {
+            final int capacity = eventCount * 2;
+            if (capacity > 1 << EVENT_INDEX_BITS) {
+                throw new IllegalStateException("Too many events in one turn: " + eventCount);
+            }
+            eventKeys = Arrays.copyOf(eventKeys, capacity);
+            eventType = Arrays.copyOf(eventType, capacity);
+            eventA = Arrays.copyOf(eventA, capacity);
+            eventB = Arrays.copyOf(eventB, capacity);
+            eventTime = Arrays.copyOf(eventTime, capacity);
+        }
+        eventType[eventCount] = type;
+        eventA[eventCount] = a;
+        eventB[eventCount] = b;
+        eventTime[eventCount] = time;
+        ++eventCount;
+    }
+
+    /** Chain the living ships into grid cells by their position at the start of the turn. */
+    private void buildGrid() {
+        gridColumns = Math.max(1, (int) Math.ceil(width / INTERACTION_CELL));
+        gridRows = Math.max(1, (int) Math.ceil(height / INTERACTION_CELL));
+        if (gridHead.length < gridColumns * gridRows) {
+            gridHead = new int[gridColumns * gridRows];
+        }
+        Arrays.fill(gridHead, 0, gridColumns * gridRows, -1);
+        for (int id = shipCount - 1; id >= 0; --id) {
+            if (shipAlive[id]) {
+                final int cell = row(shipY[id]) * gridColumns + column(shipX[id]);
+                gridNext[id] = gridHead[cell];
+                gridHead[cell] = id;
+            }
+        }
+    }
+
+    private int column(final double x) {
+        return Math.max(0, Math.min(gridColumns - 1, (int) (x / INTERACTION_CELL)));
+    }
+
+    private int row(final double y) {
+        return Math.max(0, Math.min(gridRows - 1, (int) (y / INTERACTION_CELL)));
+    }
+
+    // ---------------------------------------------------------------- docking and production
+
+    private void updateDocking() {
+        for (int id = 0; id < shipCount; ++id) {
+            if (!shipAlive[id]) {
+                continue;
+            }
+            if (dockingStatus[id] == Ship.DockingStatus.Docking.ordinal()) {
+                if (--dockingProgress[id] <= 0) {
+                    dockingStatus[id] = Ship.DockingStatus.Docked.ordinal();
+                    dockingProgress[id] = 0;
+                }
+            } else if (dockingStatus[id] == Ship.DockingStatus.Undocking.ordinal()) {
+                if (--dockingProgress[id] <= 0) {
+                    detach(id);
+                    dockingStatus[id] = Ship.DockingStatus.Undocked.ordinal();
+                    dockingProgress[id] = 0;
+                }
+            }
+        }
+    }
+
+    private void produceShips() {
+        for (int planet = 0; planet < planetCount; ++planet) {
+            if (!planetAlive[planet] || planetOwner[planet] < 0) {
+                continue;
+            }
+            int docked = 0;
+            for (int i = 0; i < planetDockedCount[planet]; ++i) {
+                if (dockingStatus[planetDocked[planet][i]] == Ship.DockingStatus.Docked.ordinal()) {
+                    ++docked;
+                }
+            }
+            final int produced = Math.min(remainingProduction[planet], docked * Constants.BASE_PRODUCTIVITY);
+            production[planet] += produced;
+            remainingProduction[planet] -= produced;
+            if (production[planet] >= PRODUCTION_PER_SHIP && spawnShip(planet)) {
+                production[planet] -= PRODUCTION_PER_SHIP;
+            }
+        }
+    }
+
+    /**
+     * Spawn a ship SPAWN_RADIUS off the planet's surface, facing the map center if that spot is
+     * free, otherwise at the closest free spot around the planet.
+     */
+    private boolean spawnShip(final int planet) {
+        final double towardsCenter = Math.atan2(height / 2.0 - planetY[planet], width / 2.0 - planetX[planet]);
+        final double distance = planetRadius[planet] + Constants.SPAWN_RADIUS;
+        for (int step = 0; step < 24; ++step) {
+            final int offset = (step + 1) / 2 * (step % 2 == 0 ? 1 : -1);
+            final double angle = towardsCenter + Math.toRadians(offset * 15);
+            final double x = planetX[planet] + Math.cos(angle) * distance;
+            final double y = planetY[planet] + Math.sin(angle) * distance;
+            if (spawnSpotFree(x, y)) {
+                addShip(planetOwner[planet], x, y);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean spawnSpotFree(final double x, final double y) {
+        if (x < Constants.SHIP_RADIUS || y < Constants.SHIP_RADIUS
+                || x > width - Constants.SHIP_RADIUS || y > height - Constants.SHIP_RADIUS) {
+            return false;
+        }
+        for (int id = 0; id < shipCount; ++id) {
+            if (shipAlive[id] && Math.hypot(shipX[id] - x, shipY[id] - y) <= 2 * Constants.SHIP_RADIUS) {
+                return false;
+            }
+        }
+        for (int planet = 0; planet < planetCount; ++planet) {
+            if (planetAlive[planet]
+                    && Math.hypot(planetX[planet] - x, planetY[planet] - y) <= planetRadius[planet] + Constants.SHIP_RADIUS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------- engine protocol
+
+    private void loadFrame(final Metadata metadata) {
+        metadata.clear();
+        metadata.append(frame, 0, frameLength);
+    }
+
+    /** Write the current state as the engine's turn line. */
+    private void writeFrame() {
+        frameLength = 0;
+        writeInt(numberOfPlayers);
+        for (int player = 0; player < numberOfPlayers; ++player) {
+            writeInt(player);
+            writeInt(countShips(player));
+            for (int id = 0; id < shipCount; ++id) {
+                if (!shipAlive[id] || shipOwner[id] != player) {
+                    continue;
+                }
+                writeInt(id);
+                writeDouble(shipX[id]);
+                writeDouble(shipY[id]);
+                writeInt(shipHealth[id]);
+                writeDouble(0.0);
+                writeDouble(0.0);
+                writeInt(dockingStatus[id]);
+                writeInt(dockingStatus[id] == Ship.DockingStatus.Undocked.ordinal() ? 0 : dockedPlanet[id]);
+                writeInt(dockingProgress[id]);
+                writeInt(weaponCooldown[id]);
+            }
+        }
+
+        int planets = 0;
+        for (int planet = 0; planet < planetCount; ++planet) {
+            if (planetAlive[planet]) {
+                ++planets;
+            }
+        }
+        writeInt(planets);
+        for (int planet = 0; planet < planetCount; ++planet) {
+            if (!planetAlive[planet]) {
+                continue;
+            }
+            writeInt(planet);
+            writeDouble(planetX[planet]);
+            writeDouble(planetY[planet]);
+            writeInt(planetHealth[planet]);
+            writeDouble(planetRadius[planet]);
+            writeInt(dockingSpots[planet]);
+            writeInt(production[planet]);
+            writeInt(remainingProduction[planet]);
+            writeInt(planetOwner[planet] >= 0 ? 1 : 0);
+            writeInt(Math.max(0, planetOwner[planet]));
+            writeInt(planetDockedCount[planet]);
+            for (int i = 0; i < planetDockedCount[planet]; ++i) {
+                writeInt(planetDocked[planet][i]);
+            }
+        }
+    }
+
+    private void writeInt(final long value) {
+        ensureFrameCapacity(21);
+        if (frameLength > 0) {
+            frame[frameLength++] = ' ';
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            frame[frameLength++] = '-';
+            remaining = -remaining;
+        }
+        final int start = frameLength;
+        do {
+            frame[frameLength++] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        for (int i = start, j = frameLength - 1; i < j; ++i, --j) {
+            final byte swap = frame[i];
+            frame[i] = frame[j];
+            frame[j] = swap;
+        }
+    }
+
+    /** Four decimals, like the engine's output. */
+    private void writeDouble(final double value) {
+        final long scaled = Math.round(Math.abs(value) * 10_000);
+        if (value < 0 && scaled != 0) {
+            ensureFrameCapacity(2);
+            frame[frameLength++] = ' ';
+            frame[frameLength++] = '-';
+            // writeInt() adds its own separator, which must not follow the sign.
+            final int signEnd = frameLength;
+            writeInt(scaled / 10_000);
+            System.arraycopy(frame, signEnd + 1, frame, signEnd, frameLength - signEnd - 1);
+            --frameLength;
+        } else {
+            writeInt(scaled / 10_000);
+        }
+        ensureFrameCapacity(5);
+        frame[frameLength++] = '.';
+        final long fraction = scaled % 10_000;
+        frame[frameLength++] = (byte) ('0' + fraction / 1000);
+        frame[frameLength++] = (byte) ('0' + fraction / 100 % 10);
+        frame[frameLength++] = (byte) ('0' + fraction / 10 % 10);
+        frame[frameLength++] = (byte) ('0' + fraction % 10);
+    }
+
+    private void ensureFrameCapacity(final int extra) {
+        if (frameLength + extra > frame.length) {
+            frame = Arrays.copyOf(frame, Math.max(frame.length * 2, frameLength + extra));
+        }
+    }
+}
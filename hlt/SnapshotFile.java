@@ -0,0 +1,464 @@
+package hlt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary, column-oriented copy of a recorded game with random access to any turn.
+ *
+ * The file is memory-mapped and read with absolute gets, so loading a turn parses no text and
+ * copies nothing but the values GameMap stores. Layout, little-endian, blocks 8-byte aligned:
+ * <pre>
+ * header  int magic, version, myId, width, height, turnCount; long indexOffset
+ * turn    int players, planets, dockedShips, ships; int playerId[players], shipCount[players]
+ *         ship columns    double x, y, velX, velY; int id, health, dockingStatus, dockedPlanet,
+ *                         dockingProgress, weaponCooldown          (ships of player 0 first)
+ *         planet columns  double x, y, radius; int id, health, dockingSpots, currentProduction,
+ *                         remainingProduction, hasOwner, owner, dockedCount
+ *         int dockedShipIds[dockedShips]                           (planet by planet)
+ * index   long turnOffset[turnCount]
+ * </pre>
+ * Doubles are stored as parsed from the text, so a turn loads into exactly the same GameMap
+ * state as its text line. Turn 0 is the pre-game map, as in ReplayFile.
+ */
+public class SnapshotFile {
+    private static final int MAGIC = 0x484c5453; // "HLTS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private static final int SHIP_DOUBLES = 4;
+    private static final int SHIP_INTS = 6;
+    private static final int PLANET_DOUBLES = 3;
+    private static final int PLANET_INTS = 8;
+    private static final boolean[] SHIP_FIELD_IS_DOUBLE = { false, true, true, false, true, true, false, false, false, false };
+    private static final boolean[] PLANET_FIELD_IS_DOUBLE = { false, true, true, false, true, false, false, false, false, false, false };
+
+    private final MappedByteBuffer buffer;
+    private final int myId;
+    private final int width;
+    private final int height;
+    private final int turnCount;
+    private final long indexOffset;
+
+    private SnapshotFile(final MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4));
+        }
+        myId = buffer.getInt(8);
+        width = buffer.getInt(12);
+        height = buffer.getInt(16);
+        turnCount = buffer.getInt(20);
+        indexOffset = buffer.getLong(24);
+    }
+
+    public static SnapshotFile open(final String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to map");
+            }
+            return new SnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getMyId() {
+        return myId;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTurnCount() {
+        return turnCount;
+    }
+
+    /**
+     * @return a cursor positioned at the start of the turn, to pass to GameMap.updateMap()
+     */
+    public Cursor openTurn(final int turn) {
+        final Cursor cursor = new Cursor();
+        cursor.seek(turn);
+        return cursor;
+    }
+
+    /**
+     * Load one turn into a new GameMap.
+     */
+    public GameMap load(final int turn) {
+        return new GameMap(width, height, myId).updateMap(openTurn(turn));
+    }
+
+    /**
+     * Reads the fields of one turn from the columns in the engine's text order. Cursors are
+     * cheap, reusable through seek() and independent of each other.
+     */
+    public class Cursor implements TokenSource {
+        private static final int PLAYER_COUNT = 0;
+        private static final int PLAYER_ID = 1;
+        private static final int SHIP_COUNT = 2;
+        private static final int SHIP = 3;
+        private static final int PLANET_COUNT = 4;
+        private static final int PLANET = 5;
+        private static final int DOCKED_SHIP = 6;
+        private static final int END = 7;
+
+        // start of the column holding each field, in the engine's field order
+        private final int[] shipColumns = new int[SHIP_DOUBLES + SHIP_INTS];
+        private final int[] planetColumns = new int[PLANET_DOUBLES + PLANET_INTS];
+
+        private int players;
+        private int planets;
+        private int playerIds;
+        private int shipCounts;
+        private int dockedShipIds;
+
+        private int phase = END;
+        private int player;
+        private int ship;
+        private int shipsLeft;
+        private int planet;
+        private int field;
+        private int docked;
+        private int dockedLeft;
+
+        private Cursor() {
+        }
+
+        public void seek(final int turn) {
+            if (turn < 0 || turn >= turnCount) {
+                throw new IndexOutOfBoundsException("Turn " + turn + " of " + turnCount);
+            }
+            final int base = (int) buffer.getLong((int) indexOffset + 8 * turn);
+            players = buffer.getInt(base);
+            planets = buffer.getInt(base + 4);
+            final int dockedCount = buffer.getInt(base + 8);
+            final int ships = buffer.getInt(base + 12);
+            playerIds = base + 16;
+            shipCounts = playerIds + 4 * players;
+
+            // id, x, y, health, velX, velY, dockingStatus, dockedPlanet, dockingProgress, weaponCooldown
+            final int shipDoubleBase = align(shipCounts + 4 * players);
+            final int shipIntBase = shipDoubleBase + 8 * SHIP_DOUBLES * ships;
+            shipColumns[0] = shipIntBase;
+            shipColumns[1] = shipDoubleBase;
+            shipColumns[2] = shipDoubleBase + 8 * ships;
+            shipColumns[3] = shipIntBase + 4 * ships;
+            shipColumns[4] = shipDoubleBase + 16 * ships;
+            shipColumns[5] = shipDoubleBase + 24 * ships;
+            for (int column = 2; column < SHIP_INTS; ++column) {
+                shipColumns[4 + column] = shipIntBase + 4 * column * ships;
+            }
+
+            // id, x, y, health, radius, dockingSpots, currentProduction, remainingProduction,
+            // hasOwner, owner, dockedCount
+            final int planetDoubleBase = align(shipIntBase + 4 * SHIP_INTS * ships);
+            final int planetIntBase = planetDoubleBase + 8 * PLANET_DOUBLES * planets;
+            planetColumns[0] = planetIntBase;
+            planetColumns[1] = planetDoubleBase;
+            planetColumns[2] = planetDoubleBase + 8 * planets;
+            planetColumns[3] = planetIntBase + 4 * planets;
+            planetColumns[4] = planetDoubleBase + 16 * planets;
+            for (int column = 2; column < PLANET_INTS; ++column) {
+                planetColumns[3 + column] = planetIntBase + 4 * column * planets;
+            }
+            dockedShipIds = planetIntBase + 4 * PLANET_INTS * planets;
+            if (dockedShipIds + 4 * dockedCount > indexOffset) {
+                throw new IllegalStateException("Corrupt snapshot: turn " + turn + " overruns the index");
+            }
+
+            phase = PLAYER_COUNT;
+            player = 0;
+            ship = 0;
+            planet = 0;
+            field = 0;
+            docked = 0;
+        }
+
+        @Override
+        public int popInt() {
+            return (int) next();
+        }
+
+        @Override
+        public double popDouble() {
+            return next();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return phase == END;
+        }
+
+        /** The next field; ints are returned as doubles, which holds them exactly. */
+        private double next() {
+            switch (phase) {
+                case PLAYER_COUNT:
+                    phase = players > 0 ? PLAYER_ID : PLANET_COUNT;
+                    return players;
+                case PLAYER_ID:
+                    phase = SHIP_COUNT;
+                    return buffer.getInt(playerIds + 4 * player);
+                case SHIP_COUNT:
+                    shipsLeft = buffer.getInt(shipCounts + 4 * player);
+                    field = 0;
+                    phase = shipsLeft > 0 ? SHIP : nextPlayer();
+                    return shipsLeft;
+                case SHIP: {
+                    final double value = read(shipColumns[field], SHIP_FIELD_IS_DOUBLE[field], ship);
+                    if (++field == shipColumns.length) {
+                        field = 0;
+                        ++ship;
+                        if (--shipsLeft == 0) {
+                            phase = nextPlayer();
+                        }
+                    }
+                    return value;
+                }
+                case PLANET_COUNT:
+                    field = 0;
+                    phase = planets > 0 ? PLANET : END;
+                    return planets;
+                case PLANET: {
+                    final double value = read(planetColumns[field], PLANET_FIELD_IS_DOUBLE[field], planet);
+                    if (++field == planetColumns.length) {
+                        field = 0;
+                        ++planet;
+                        dockedLeft = (int) value;
+                        phase = dockedLeft > 0 ? DOCKED_SHIP : nextPlanet();
+                    }
+                    return value;
+                }
+                case DOCKED_SHIP: {
+                    final int value = buffer.getInt(dockedShipIds + 4 * docked++);
+                    if (--dockedLeft == 0) {
+                        phase = nextPlanet();
+                    }
+                    return value;
+                }
+                default:
+                    throw new IllegalStateException("Failed to parse data from Halite game engine. Please contact maintainers.");
+            }
+        }
+
+        private double read(final int column, final boolean isDouble, final int index) {
+            return isDouble ? buffer.getDouble(column + 8 * index) : buffer.getInt(column + 4 * index);
+        }
+
+        private int nextPlayer() {
+            return ++player < players ? PLAYER_ID : PLANET_COUNT;
+        }
+
+        private int nextPlanet() {
+            return planet < planets ? PLANET : END;
+        }
+    }
+
+    /**
+     * Convert a recorded game to a snapshot file.
+     */
+    public static void write(final ReplayFile replay, final String path) throws IOException {
+        write(path, replay.getMyId(), replay.getWidth(), replay.getHeight(), replay.getTurns());
+    }
+
+    /**
+     * Write turn lines in the engine's text format as a snapshot file.
+     */
+    public static void write(final String path, final int myId, final int width, final int height,
+                             final List<String> turns) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long[] offsets = new long[turns.size()];
+            final TurnColumns columns = new TurnColumns();
+            ByteBuffer block = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            long position = HEADER_BYTES;
+            for (int turn = 0; turn < turns.size(); ++turn) {
+                columns.parse(new Metadata(turns.get(turn)));
+                if (block.capacity() < columns.byteSize()) {
+                    block = ByteBuffer.allocate(columns.byteSize() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                block.clear();
+                columns.writeTo(block);
+                block.flip();
+                offsets[turn] = position;
+                position += writeFully(channel, block, position);
+            }
+
+            final ByteBuffer index = ByteBuffer.allocate(8 * offsets.length).order(ByteOrder.LITTLE_ENDIAN);
+            for (final long offset : offsets) {
+                index.putLong(offset);
+            }
+            index.flip();
+            final long indexOffset = position;
+            position += writeFully(channel, index, position);
+            if (position > Integer.MAX_VALUE) {
+                throw new IOException(path + " would be too large to map");
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(myId).putInt(width).putInt(height)
+                    .putInt(turns.size()).putLong(indexOffset);
+            header.flip();
+            writeFully(channel, header, 0);
+        }
+    }
+
+    private static int writeFully(final FileChannel channel, final ByteBuffer bytes, final long position) throws IOException {
+        final int length = bytes.remaining();
+        long at = position;
+        while (bytes.hasRemaining()) {
+            at += channel.write(bytes, at);
+        }
+        return length;
+    }
+
+    private static int align(final int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    /** One turn parsed into columns by the writer. */
+    private static final class TurnColumns {
+        int players;
+        int[] playerIds = new int[Constants.MAX_PLAYERS];
+        int[] shipCounts = new int[Constants.MAX_PLAYERS];
+        int ships;
+        double[][] shipDoubles = new double[SHIP_DOUBLES][64];
+        int[][] shipInts = new int[SHIP_INTS][64];
+        int planets;
+        double[][] planetDoubles = new double[PLANET_DOUBLES][32];
+        int[][] planetInts = new int[PLANET_INTS][32];
+        int docked;
+        int[] dockedShipIds = new int[64];
+
+        void parse(final Metadata metadata) {
+            players = metadata.popInt();
+            if (players > playerIds.length) {
+                playerIds = Arrays.copyOf(playerIds, players);
+                shipCounts = Arrays.copyOf(shipCounts, players);
+            }
+            ships = 0;
+            for (int p = 0; p < players; ++p) {
+                playerIds[p] = metadata.popInt();
+                shipCounts[p] = metadata.popInt();
+                for (int i = 0; i < shipCounts[p]; ++i) {
+                    if (ships == shipInts[0].length) {
+                        growShips();
+                    }
+                    shipInts[0][ships] = metadata.popInt();         // id
+                    shipDoubles[0][ships] = metadata.popDouble();   // x
+                    shipDoubles[1][ships] = metadata.popDouble();   // y
+                    shipInts[1][ships] = metadata.popInt();         // health
+                    shipDoubles[2][ships] = metadata.popDouble();   // velX
+                    shipDoubles[3][ships] = metadata.popDouble();   // velY
+                    for (int column = 2; column < SHIP_INTS; ++column) {
+                        shipInts[column][ships] = metadata.popInt();
+                    }
+                    ++ships;
+                }
+            }
+
+            planets = metadata.popInt();
+            if (planets > planetInts[0].length) {
+                for (int column = 0; column < PLANET_DOUBLES; ++column) {
+                    planetDoubles[column] = Arrays.copyOf(planetDoubles[column], planets);
+                }
+                for (int column = 0; column < PLANET_INTS; ++column) {
+                    planetInts[column] = Arrays.copyOf(planetInts[column], planets);
+                }
+            }
+            docked = 0;
+            for (int i = 0; i < planets; ++i) {
+                planetInts[0][i] = metadata.popInt();               // id
+                planetDoubles[0][i] = metadata.popDouble();         // x
+                planetDoubles[1][i] = metadata.popDouble();         // y
+                planetInts[1][i] = metadata.popInt();               // health
+                planetDoubles[2][i] = metadata.popDouble();         // radius
+                for (int column = 2; column < PLANET_INTS; ++column) {
+                    planetInts[column][i] = metadata.popInt();
+                }
+                final int dockedCount = planetInts[PLANET_INTS - 1][i];
+                if (docked + dockedCount > dockedShipIds.length) {
+                    dockedShipIds = Arrays.copyOf(dockedShipIds, Math.max(dockedShipIds.length * 2, docked + dockedCount));
+                }
+                for (int j = 0; j < dockedCount; ++j) {
+                    dockedShipIds[docked++] = metadata.popInt();
+                }
+            }
+            if (!metadata.isEmpty()) {
+                throw new IllegalStateException("Unexpected data after the last planet");
+            }
+        }
+
+        int byteSize() {
+            return align(16 + 8 * players) + align((8 * SHIP_DOUBLES + 4 * SHIP_INTS) * ships)
+                    + align((8 * PLANET_DOUBLES + 4 * PLANET_INTS) * planets + 4 * docked);
+        }
+
+        void writeTo(final ByteBuffer block) {
+            block.putInt(players).putInt(planets).putInt(docked).putInt(ships);
+            for (int p = 0; p < players; ++p) {
+                block.putInt(playerIds[p]);
+            }
+            for (int p = 0; p < players; ++p) {
+                block.putInt(shipCounts[p]);
+            }
+            pad(block);
+            for (final double[] column : shipDoubles) {
+                for (int i = 0; i < ships; ++i) {
+                    block.putDouble(column[i]);
+                }
+            }
+            for (final int[] column : shipInts) {
+                for (int i = 0; i < ships; ++i) {
+                    block.putInt(column[i]);
+                }
+            }
+            pad(block);
+            for (final double[] column : planetDoubles) {
+                for (int i = 0; i < planets; ++i) {
+                    block.putDouble(column[i]);
+                }
+            }
+            for (final int[] column : planetInts) {
+                for (int i = 0; i < planets; ++i) {
+                    block.putInt(column[i]);
+                }
+            }
+            for (int i = 0; i < docked; ++i) {
+                block.putInt(dockedShipIds[i]);
+            }
+            pad(block);
+        }
+
+        private void growShips() {
+            final int capacity = ships * 2;
+            for (int column = 0; column < SHIP_DOUBLES; ++column) {
+                shipDoubles[column] = Arrays.copyOf(shipDoubles[column], capacity);
+            }
+            for (int column = 0; column < SHIP_INTS; ++column) {
+                shipInts[column] = Arrays.copyOf(shipInts[column], capacity);
+            }
+        }
+
+        private static void pad(final ByteBuffer block) {
+            while ((block.position() & 7) != 0) {
+                block.put((byte) 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package hlt;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Uniform grid over every planet and ship on the map, rebuilt by GameMap.updateMap() each turn.
+ *
+ * Each entity is registered in every cell overlapped by its bounding box inflated by
+ * Constants.FORECAST_FUDGE_FACTOR, so a segment query only needs the cells the segment crosses
+ * and a radius query only needs the cells around its center. Candidates are returned as entity
+ * indices in ascending order (planets first, then ships), which is the order a brute-force scan
+ * over the map would visit them in.
+ *
+ * Queries go through query(), which hands each thread its own scratch buffers, so any number of
+ * threads may query the grid at once between two rebuilds. The circles of the entities are also
+ * kept in packed arrays, so that testSegment() can check all candidates of a segment in one batch.
+ */
+public class SpatialGrid {
+
+    public static final double DEFAULT_CELL_SIZE = 8.0;
+
+    /** Extra padding so that floating-point error in the cell walk can never miss a registered cell. */
+    private static final double CELL_PADDING = 0.01;
+
+    private final double cellSize;
+
+    private double originX, originY;
+    private double maxX, maxY;
+    private int columns, rows;
+
+    private Entity[] entities = new Entity[0];
+    private double[] entityX = new double[0];
+    private double[] entityY = new double[0];
+    private double[] entityRadius = new double[0];
+    private int entityCount;
+
+    private int[] cellStart = new int[1];
+    private int[] cellEntries = new int[0];
+    private int[] cellFill = new int[0];
+
+    private final ThreadLocal<Query> queries = ThreadLocal.withInitial(Query::new);
+
+    public SpatialGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialGrid(final double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void rebuild(final Collection<? extends Entity> planets, final List<? extends Entity> ships) {
+        entityCount = 0;
+        ensureEntityCapacity(planets.size() + ships.size());
+        for (final Entity planet : planets) {
+            entities[entityCount++] = planet;
+        }
+        for (final Entity ship : ships) {
+            entities[entityCount++] = ship;
+        }
+        Arrays.fill(entities, entityCount, entities.length, null);
+        for (int i = 0; i < entityCount; ++i) {
+            entityX[i] = entities[i].getXPos();
+            entityY[i] = entities[i].getYPos();
+            entityRadius[i] = entities[i].getRadius();
+        }
+
+        computeBounds();
+
+        final int numberOfCells = columns * rows;
+        if (cellStart.length < numberOfCells + 1) {
+            cellStart = new int[numberOfCells + 1];
+            cellFill = new int[numberOfCells];
+        }
+        Arrays.fill(cellStart, 0, numberOfCells + 1, 0);
+
+        // First pass counts entries per cell, second pass fills them in entity order.
+        for (int i = 0; i < entityCount; ++i) {
+            final Entity entity = entities[i];
+            final double margin = margin(entity);
+            final int minColumn = column(entity.getXPos() - margin);
+            final int maxColumn = column(entity.getXPos() + margin);
+            final int minRow = row(entity.getYPos() - margin);
+            final int maxRow = row(entity.getYPos() + margin);
+            for (int r = minRow; r <= maxRow; ++r) {
+                for (int c = minColumn; c <= maxColumn; ++c) {
+                    ++cellStart[r * columns + c + 1];
+                }
+            }
+        }
+        for (int cell = 0; cell < numberOfCells; ++cell) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        if (cellEntries.length < cellStart[numberOfCells]) {
+            cellEntries = new int[cellStart[numberOfCells]];
+        }
+        System.arraycopy(cellStart, 0, cellFill, 0, numberOfCells);
+
+        for (int i = 0; i < entityCount; ++i) {
+            final Entity entity = entities[i];
+            final double margin = margin(entity);
+            final int minColumn = column(entity.getXPos() - margin);
+            final int maxColumn = column(entity.getXPos() + margin);
+            final int minRow = row(entity.getYPos() - margin);
+            final int maxRow = row(entity.getYPos() + margin);
+            for (int r = minRow; r <= maxRow; ++r) {
+                for (int c = minColumn; c <= maxColumn; ++c) {
+                    cellEntries[cellFill[r * columns + c]++] = i;
+                }
+            }
+        }
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public Entity getEntity(final int index) {
+        return entities[index];
+    }
+
+    /**
+     * @return the calling thread's query buffers for this grid; look it up once per query, not per candidate
+     */
+    public Query query() {
+        return queries.get();
+    }
+
+    /**
+     * Candidate buffers of one thread. The candidates stay readable until its next query.
+     */
+    public final class Query {
+        private int[] visitedStamp = new int[0];
+        private int stamp;
+
+        private int[] candidates = new int[64];
+        private int candidateCount;
+
+        // packed circles of the candidates and the results of testSegment()
+        private double[] candidateX = new double[64];
+        private double[] candidateY = new double[64];
+        private double[] candidateRadius = new double[64];
+        private double[] closestSquared = new double[64];
+        private boolean[] hits = new boolean[64];
+
+        // used only during segment clipping to avoid allocating a result pair
+        private double clipEnter, clipExit;
+
+        private Query() {
+        }
+
+        public int getCandidateCount() {
+            return candidateCount;
+        }
+
+        public int getCandidate(final int i) {
+            return candidates[i];
+        }
+
+        /**
+         * collectSegmentCandidates(), then Collision.segmentCirclesIntersect() with the given fudge
+         * against every candidate at once.
+         *
+         * @return the number of candidates; isHit(i) tells whether the segment hits candidate i
+         */
+        public int testSegment(final double startX, final double startY,
+                               final double endX, final double endY, final double fudge) {
+            collectSegmentCandidates(startX, startY, endX, endY);
+            if (hits.length < candidateCount) {
+                final int length = Math.max(candidateCount, hits.length * 2);
+                candidateX = new double[length];
+                candidateY = new double[length];
+                candidateRadius = new double[length];
+                closestSquared = new double[length];
+                hits = new boolean[length];
+            }
+            for (int i = 0; i < candidateCount; ++i) {
+                final int index = candidates[i];
+                candidateX[i] = entityX[index];
+                candidateY[i] = entityY[index];
+                candidateRadius[i] = entityRadius[index];
+            }
+            Collision.segmentCirclesIntersect(startX, startY, endX, endY, candidateX, candidateY, candidateRadius,
+                    candidateCount, fudge, closestSquared, hits);
+            return candidateCount;
+        }
+
+        /**
+         * @return whether the segment of the last testSegment() hits candidate i
+         */
+        public boolean isHit(final int i) {
+            return hits[i];
+        }
+
+        /**
+         * Collect every entity whose inflated bounding box may touch the segment from start to end.
+         * The result is a superset of the entities for which Collision.segmentCircleIntersect() with
+         * Constants.FORECAST_FUDGE_FACTOR holds.
+         *
+         * @return the number of candidates, readable through getCandidate()
+         */
+        public int collectSegmentCandidates(final double startX, final double startY,
+                                            final double endX, final double endY) {
+            beginQuery();
+            if (entityCount == 0) {
+                return 0;
+            }
+
+            // Clip the segment to the grid bounds (Liang-Barsky). Every inflated entity lies
+            // strictly inside the bounds, so the clipped-away part cannot touch anything.
+            final double dx = endX - startX;
+            final double dy = endY - startY;
+            clipEnter = 0.0;
+            clipExit = 1.0;
+            if (!clip(-dx, startX - originX) || !clip(dx, maxX - startX)
+                    || !clip(-dy, startY - originY) || !clip(dy, maxY - startY)) {
+                return 0;
+            }
+            final double tEnter = clipEnter;
+            final double tExit = clipExit;
+
+            final double u0 = (startX + dx * tEnter - originX) / cellSize;
+            final double v0 = (startY + dy * tEnter - originY) / cellSize;
+            final double u1 = (startX + dx * tExit - originX) / cellSize;
+            final double v1 = (startY + dy * tExit - originY) / cellSize;
+
+            walkCells(u0, v0, u1, v1);
+            finishQuery();
+            return candidateCount;
+        }
+
+        /**
+         * Collect every entity whose center may lie within the given distance of (x, y).
+         *
+         * @return the number of candidates, readable through getCandidate()
+         */
+        public int collectRadiusCandidates(final double x, final double y, final double radius) {
+            beginQuery();
+            if (entityCount == 0) {
+                return 0;
+            }
+
+            final int minColumn = column(x - radius);
+            final int maxColumn = column(x + radius);
+            final int minRow = row(y - radius);
+            final int maxRow = row(y + radius);
+            for (int r = minRow; r <= maxRow; ++r) {
+                for (int c = minColumn; c <= maxColumn; ++c) {
+                    visitCell(r * columns + c);
+                }
+            }
+            finishQuery();
+            return candidateCount;
+        }
+
+        private boolean clip(final double p, final double q) {
+            if (p == 0.0) {
+                return q >= 0.0;
+            }
+            final double t = q / p;
+            if (p < 0.0) {
+                clipEnter = Math.max(clipEnter, t);
+            } else {
+                clipExit = Math.min(clipExit, t);
+            }
+            return clipEnter <= clipExit;
+        }
+
+        private void walkCells(final double u0, final double v0, final double u1, final double v1) {
+            int c = clamp((int) Math.floor(u0), columns);
+            int r = clamp((int) Math.floor(v0), rows);
+            final int endColumn = clamp((int) Math.floor(u1), columns);
+            final int endRow = clamp((int) Math.floor(v1), rows);
+
+            final double du = u1 - u0;
+            final double dv = v1 - v0;
+            final int stepColumn = Integer.signum(endColumn - c);
+            final int stepRow = Integer.signum(endRow - r);
+
+            final double tDeltaColumn = du != 0.0 ? Math.abs(1.0 / du) : Double.POSITIVE_INFINITY;
+            final double tDeltaRow = dv != 0.0 ? Math.abs(1.0 / dv) : Double.POSITIVE_INFINITY;
+            double tMaxColumn = stepColumn > 0 ? (c + 1 - u0) * tDeltaColumn
+                    : stepColumn < 0 ? (u0 - c) * tDeltaColumn : Double.POSITIVE_INFINITY;
+            double tMaxRow = stepRow > 0 ? (r + 1 - v0) * tDeltaRow
+                    : stepRow < 0 ? (v0 - r) * tDeltaRow : Double.POSITIVE_INFINITY;
+
+            visitCell(r * columns + c);
+            // Exactly one step per crossed cell boundary, so the walk always terminates on the end cell.
+            int steps = Math.abs(endColumn - c) + Math.abs(endRow - r);
+            for (; steps > 0; --steps) {
+                if (r == endRow || (c != endColumn && tMaxColumn < tMaxRow)) {
+                    c += stepColumn;
+                    tMaxColumn += tDeltaColumn;
+                } else {
+                    r += stepRow;
+                    tMaxRow += tDeltaRow;
+                }
+                visitCell(r * columns + c);
+            }
+        }
+
+        private void beginQuery() {
+            candidateCount = 0;
+            if (visitedStamp.length < entities.length) {
+                visitedStamp = new int[entities.length];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(visitedStamp, 0);
+                stamp = 1;
+            }
+        }
+
+        private void finishQuery() {
+            Arrays.sort(candidates, 0, candidateCount);
+        }
+
+        private void visitCell(final int cell) {
+            for (int i = cellStart[cell]; i < cellStart[cell + 1]; ++i) {
+                final int index = cellEntries[i];
+                if (visitedStamp[index] == stamp) {
+                    continue;
+                }
+                visitedStamp[index] = stamp;
+                if (candidateCount == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                }
+                candidates[candidateCount++] = index;
+            }
+        }
+    }
+
+    private void computeBounds() {
+        if (entityCount == 0) {
+            originX = originY = 0.0;
+            maxX = maxY = cellSize;
+            columns = rows = 1;
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < entityCount; ++i) {
+            final Entity entity = entities[i];
+            final double margin = margin(entity) + CELL_PADDING;
+            minX = Math.min(minX, entity.getXPos() - margin);
+            minY = Math.min(minY, entity.getYPos() - margin);
+            maxX = Math.max(maxX, entity.getXPos() + margin);
+            maxY = Math.max(maxY, entity.getYPos() + margin);
+        }
+
+        originX = minX;
+        originY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        columns = Math.max(1, (int) Math.ceil((maxX - minX) / cellSize));
+        rows = Math.max(1, (int) Math.ceil((maxY - minY) / cellSize));
+    }
+
+    private void ensureEntityCapacity(final int capacity) {
+        if (entities.length < capacity) {
+            entities = new Entity[capacity];
+            entityX = new double[capacity];
+            entityY = new double[capacity];
+            entityRadius = new double[capacity];
+        }
+    }
+
+    private static double margin(final Entity entity) {
+        return entity.getRadius() + Constants.FORECAST_FUDGE_FACTOR + CELL_PADDING;
+    }
+
+    private int column(final double x) {
+        return clamp((int) Math.floor((x - originX) / cellSize), columns);
+    }
+
+    private int row(final double y) {
+        return clamp((int) Math.floor((y - originY) / cellSize), rows);
+    }
+
+    private static int clamp(final int value, final int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
@@ -0,0 +1,101 @@
+package hlt;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Seeded generator of engine turn lines, in the format Networking hands to GameMap.updateMap(),
+ * for the benchmarks and accuracy checks.
+ */
+public final class SyntheticStates {
+
+    private SyntheticStates() {
+    }
+
+    /**
+     * @param shipsPerPlayer ships per player; ship ids are dense and start at 0
+     * @param dockedEvery    every n-th ship is docked to a planet owned by its player, 0 for none
+     */
+    public static String turnLine(final long seed, final int width, final int height, final int numberOfPlayers,
+                                  final int shipsPerPlayer, final int numberOfPlanets, final int dockedEvery) {
+        final Random random = new Random(seed);
+
+        final double[] planetX = new double[numberOfPlanets];
+        final double[] planetY = new double[numberOfPlanets];
+        final double[] planetRadius = new double[numberOfPlanets];
+        for (int i = 0; i < numberOfPlanets; ++i) {
+            planetRadius[i] = 3.0 + random.nextDouble() * 8.0;
+            planetX[i] = planetRadius[i] + 5.0 + random.nextDouble() * (width - 2 * planetRadius[i] - 10.0);
+            planetY[i] = planetRadius[i] + 5.0 + random.nextDouble() * (height - 2 * planetRadius[i] - 10.0);
+        }
+
+        // Planet i belongs to player i % numberOfPlayers when anything docks to it.
+        final int[][] docked = new int[numberOfPlanets][3];
+        final int[] dockedCount = new int[numberOfPlanets];
+
+        final StringBuilder line = new StringBuilder();
+        line.append(numberOfPlayers);
+        for (int player = 0; player < numberOfPlayers; ++player) {
+            line.append(' ').append(player).append(' ').append(shipsPerPlayer);
+            for (int i = 0; i < shipsPerPlayer; ++i) {
+                final int id = player * shipsPerPlayer + i;
+                int planet = -1;
+                if (dockedEvery > 0 && i % dockedEvery == 0) {
+                    for (int candidate = player; candidate < numberOfPlanets; candidate += numberOfPlayers) {
+                        if (dockedCount[candidate] < docked[candidate].length) {
+                            planet = candidate;
+                            break;
+                        }
+                    }
+                }
+
+                final double x;
+                final double y;
+                if (planet >= 0) {
+                    final double angle = random.nextDouble() * 2 * Math.PI;
+                    final double distance = planetRadius[planet] + Constants.SHIP_RADIUS + 1.0;
+                    x = planetX[planet] + Math.cos(angle) * distance;
+                    y = planetY[planet] + Math.sin(angle) * distance;
+                    docked[planet][dockedCount[planet]++] = id;
+                } else {
+                    x = 1.0 + random.nextDouble() * (width - 2.0);
+                    y = 1.0 + random.nextDouble() * (height - 2.0);
+                }
+
+                line.append(' ').append(id)
+                        .append(' ').append(format(x))
+                        .append(' ').append(format(y))
+                        .append(' ').append(Constants.MAX_SHIP_HEALTH)
+                        .append(" 0.0 0.0")
+                        .append(' ').append(planet >= 0 ? 2 : 0)
+                        .append(' ').append(planet >= 0 ? planet : 0)
+                        .append(" 0 0");
+            }
+        }
+
+        line.append(' ').append(numberOfPlanets);
+        for (int i = 0; i < numberOfPlanets; ++i) {
+            line.append(' ').append(i)
+                    .append(' ').append(format(planetX[i]))
+                    .append(' ').append(format(planetY[i]))
+                    .append(" 2000 ").append(format(planetRadius[i]))
+                    .append(' ').append(docked[i].length)
+                    .append(" 0 1000");
+            if (dockedCount[i] > 0) {
+                line.append(" 1 ").append(i % numberOfPlayers);
+            } else {
+                line.append(" 0 0");
+            }
+            line.append(' ').append(dockedCount[i]);
+            for (int j = 0; j < dockedCount[i]; ++j) {
+                line.append(' ').append(docked[i][j]);
+            }
+        }
+
+        return line.toString();
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+}
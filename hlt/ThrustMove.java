@@ -2,6 +2,23 @@ package hlt;
 
 public class ThrustMove extends Move {
 
+    /** The engine takes whole degrees in [0, 360) and thrusts in [0, MAX_SPEED]. */
+    public static final int ANGLE_COUNT = 360;
+    public static final int THRUST_COUNT = Constants.MAX_SPEED + 1;
+
+    // displacement of every move the engine accepts, at [angleDeg * THRUST_COUNT + thrust]
+    private static final double[] DELTA_X = new double[ANGLE_COUNT * THRUST_COUNT];
+    private static final double[] DELTA_Y = new double[ANGLE_COUNT * THRUST_COUNT];
+
+    static {
+        for (int angleDeg = 0; angleDeg < ANGLE_COUNT; ++angleDeg) {
+            for (int thrust = 0; thrust < THRUST_COUNT; ++thrust) {
+                DELTA_X[angleDeg * THRUST_COUNT + thrust] = Geometry.cosDeg(angleDeg) * thrust;
+                DELTA_Y[angleDeg * THRUST_COUNT + thrust] = Geometry.sinDeg(angleDeg) * thrust;
+            }
+        }
+    }
+
     private final int angleDeg;
     private final int thrust;
 
@@ -11,6 +28,24 @@ public class ThrustMove extends Move {
         this.angleDeg = angleDeg;
     }
 
+    /**
+     * @return the x displacement of a move, bit-identical to Math.cos(Math.toRadians(angleDeg)) * thrust
+     *         for angles in [0, 360); from the table when the thrust is one the engine accepts
+     */
+    public static double getDeltaX(final int angleDeg, final int thrust) {
+        if (thrust >= 0 && thrust < THRUST_COUNT) {
+            return DELTA_X[Geometry.normalizeDeg(angleDeg) * THRUST_COUNT + thrust];
+        }
+        return Geometry.cosDeg(angleDeg) * thrust;
+    }
+
+    public static double getDeltaY(final int angleDeg, final int thrust) {
+        if (thrust >= 0 && thrust < THRUST_COUNT) {
+            return DELTA_Y[Geometry.normalizeDeg(angleDeg) * THRUST_COUNT + thrust];
+        }
+        return Geometry.sinDeg(angleDeg) * thrust;
+    }
+
     public int getAngle() {
         return angleDeg;
     }
@@ -18,4 +53,45 @@ public class ThrustMove extends Move {
     public int getThrust() {
         return thrust;
     }
+
+    public double getDeltaX() {
+        return getDeltaX(angleDeg, thrust);
+    }
+
+    public double getDeltaY() {
+        return getDeltaY(angleDeg, thrust);
+    }
+
+    /**
+     * @return where the ship ends the turn if nothing stops it
+     */
+    public Position getDestination() {
+        return new Position(getShip().getXPos() + getDeltaX(), getShip().getYPos() + getDeltaY());
+    }
+
+    /**
+     * getDestination() into out.
+     *
+     * @return out
+     */
+    public Vec getDestination(final Vec out) {
+        return out.set(getShip().getXPos() + getDeltaX(), getShip().getYPos() + getDeltaY());
+    }
+
+    /**
+     * @return whether the segment the ship sweeps over the turn comes within fudge of the circle
+     */
+    public boolean sweptSegmentIntersects(final Entity circle, final double fudge) {
+        final double x = getShip().getXPos();
+        final double y = getShip().getYPos();
+        return Collision.segmentCircleIntersect(x, y, x + getDeltaX(), y + getDeltaY(), circle, fudge);
+    }
+
+    /**
+     * @return whether any planet or other ship lies on the swept segment, as GameMap.anyObjectBetween() sees it
+     */
+    public boolean isSweptSegmentBlocked(final GameMap gameMap) {
+        final Ship ship = getShip();
+        return gameMap.anyObjectBetween(ship, ship.getXPos() + getDeltaX(), ship.getYPos() + getDeltaY());
+    }
 }
@@ -0,0 +1,19 @@
+package hlt;
+
+/**
+ * The fields of one engine turn, in the order of the engine's text protocol.
+ *
+ * Metadata reads them from a text line; SnapshotFile reads them straight from a binary snapshot.
+ * GameMap.updateMap() and MetadataParser only see this interface, so both take the same path.
+ */
+public interface TokenSource {
+
+    int popInt();
+
+    double popDouble();
+
+    /**
+     * @return true once every field of the turn has been read
+     */
+    boolean isEmpty();
+}
@@ -0,0 +1,115 @@
+package hlt;
+
+/**
+ * Tracks how much of the engine's per-turn time limit has been used and tells the planner how
+ * much work it can still afford.
+ *
+ * Networking.updateMap() starts the clock once the turn has been parsed; the bot ends it after
+ * sending its moves. Outside of a started turn (benchmarks, offline tools) the level is always Normal.
+ */
+public class TurnBudget {
+
+    /** Engine time limit for one turn. */
+    public static final long ENGINE_TURN_LIMIT_MILLIS = 2000;
+
+    /** Share of the engine limit the planner may use, leaving room for parsing, GC pauses and I/O. */
+    public static final long DEFAULT_BUDGET_MILLIS = 1400;
+
+    public enum Level {
+        /** Plenty of time left: plan normally. */
+        Normal,
+        /** Past half the budget: cut navigation corrections. */
+        Reduced,
+        /** Past 75% of the budget: only a few corrections per ship. */
+        Minimal,
+        /** Past 90% of the budget: stop planning and reuse last turn's moves, still resolved against each other. */
+        Exhausted
+    }
+
+    private static final int REDUCED_MAX_CORRECTIONS = 24;
+    private static final int MINIMAL_MAX_CORRECTIONS = 6;
+
+    private final long budgetNanos;
+    private boolean started = false;
+    private long turnStart;
+    private Level worstLevel = Level.Normal;
+
+    public TurnBudget(final long budgetMillis) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+    }
+
+    public void startTurn() {
+        started = true;
+        turnStart = System.nanoTime();
+        worstLevel = Level.Normal;
+    }
+
+    /**
+     * Stop the clock and log the time used this turn and the worst level reached.
+     *
+     * @return the nanoseconds used since startTurn()
+     */
+    public long endTurn() {
+        final long used = elapsedNanos();
+        final Level level = getLevel();
+        started = false;
+        if (Log.isEnabled(Log.Level.Info)) {
+            Log.log("budget: " + (used / 1_000_000L) + " ms of " + (budgetNanos / 1_000_000L) + " ms, level " + level);
+        }
+        return used;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public long elapsedNanos() {
+        return started ? System.nanoTime() - turnStart : 0;
+    }
+
+    public long remainingNanos() {
+        return started ? budgetNanos - elapsedNanos() : budgetNanos;
+    }
+
+    /**
+     * @return the current degradation level; it never goes back down within a turn
+     */
+    public Level getLevel() {
+        if (!started) {
+            return Level.Normal;
+        }
+
+        final long elapsed = elapsedNanos();
+        final Level level;
+        if (elapsed >= budgetNanos / 10 * 9) {
+            level = Level.Exhausted;
+        } else if (elapsed >= budgetNanos / 4 * 3) {
+            level = Level.Minimal;
+        } else if (elapsed >= budgetNanos / 2) {
+            level = Level.Reduced;
+        } else {
+            level = Level.Normal;
+        }
+
+        if (level.compareTo(worstLevel) > 0) {
+            worstLevel = level;
+        }
+        return worstLevel;
+    }
+
+    /**
+     * @return the number of navigation corrections affordable at the current level
+     */
+    public int limitCorrections(final int maxCorrections) {
+        switch (getLevel()) {
+            case Reduced:
+                return Math.min(maxCorrections, REDUCED_MAX_CORRECTIONS);
+            case Minimal:
+                return Math.min(maxCorrections, MINIMAL_MAX_CORRECTIONS);
+            case Exhausted:
+                return 0;
+            default:
+                return maxCorrections;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package hlt;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-turn timers and counters for the bot pipeline, one instance per GameMap.
+ *
+ * Phases are timed with System.nanoTime() on the main thread and are exclusive, so they add up
+ * to the bot's share of the turn; Read also includes waiting for the engine. Counters may be
+ * bumped from any thread. endTurn() logs one compact line at Info level and keeps the turn's
+ * values, from which summary() gives p50/p95/p99/max over the game.
+ */
+public class TurnMetrics {
+
+    public enum Phase {
+        /** Reading the turn line from the engine, including the wait for it. */
+        Read,
+        /** GameMap.updateMap(). */
+        Parse,
+        /** Creating and removing pilots. */
+        Pilots,
+        /** Handing out goals. */
+        Assign,
+        /** Goal and task updates, without their navigation. */
+        Plan,
+        /** Path finding, inline or on the planning threads. */
+        Navigate,
+        /** MoveResolver. */
+        Resolve,
+        /** Writing the moves to the engine. */
+        Send
+    }
+
+    public enum Counter {
+        /** Navigation calls. */
+        NavigationCalls,
+        /** Headings tried by navigation beyond the direct one. */
+        NavigationCorrections,
+        /** Segment obstacle queries: GameMap.objectsBetween(), anyObjectBetween() and the analytic navigation's. */
+        ObjectsBetween,
+        /** Moves MoveResolver changed to avoid one of our own ships. */
+        MovesRepaired,
+        /** Moves MoveResolver had to stop. */
+        MovesStopped
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final long[] phaseNanos = new long[PHASES.length];
+    private final LongAdder[] counters = new LongAdder[COUNTERS.length];
+
+    // one row per finished turn
+    private long[][] phaseHistory = new long[PHASES.length][64];
+    private long[][] counterHistory = new long[COUNTERS.length][64];
+    private int turns;
+
+    public TurnMetrics() {
+        for (int i = 0; i < counters.length; ++i) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return a start time for stop(phase, start)
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Add the time since start to the phase.
+     *
+     * @return the time added
+     */
+    public long stop(final Phase phase, final long start) {
+        final long elapsed = System.nanoTime() - start;
+        phaseNanos[phase.ordinal()] += elapsed;
+        return elapsed;
+    }
+
+    public void add(final Phase phase, final long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    public long getNanos(final Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public void count(final Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+
+    public void count(final Counter counter, final long amount) {
+        if (amount != 0) {
+            counters[counter.ordinal()].add(amount);
+        }
+    }
+
+    public long getCount(final Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /** Turns finished with endTurn(). */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Keep this turn's values, log them at Info level, and start the next turn from zero.
+     */
+    public void endTurn() {
+        if (turns == phaseHistory[0].length) {
+            for (int i = 0; i < PHASES.length; ++i) {
+                phaseHistory[i] = Arrays.copyOf(phaseHistory[i], turns * 2);
+            }
+            for (int i = 0; i < COUNTERS.length; ++i) {
+                counterHistory[i] = Arrays.copyOf(counterHistory[i], turns * 2);
+            }
+        }
+        for (int i = 0; i < PHASES.length; ++i) {
+            phaseHistory[i][turns] = phaseNanos[i];
+        }
+        for (int i = 0; i < COUNTERS.length; ++i) {
+            counterHistory[i][turns] = counters[i].sumThenReset();
+        }
+
+        if (Log.isEnabled(Log.Level.Info)) {
+            final StringBuilder line = new StringBuilder("metrics:");
+            for (int i = 0; i < PHASES.length; ++i) {
+                line.append(' ').append(PHASES[i].name().toLowerCase(Locale.ROOT)).append(' ')
+                        .append(phaseNanos[i] / 1000).append("us");
+            }
+            line.append(" |");
+            for (int i = 0; i < COUNTERS.length; ++i) {
+                line.append(' ').append(COUNTERS[i].name()).append(' ').append(counterHistory[i][turns]);
+            }
+            Log.log(line.toString());
+        }
+
+        Arrays.fill(phaseNanos, 0);
+        ++turns;
+    }
+
+    /**
+     * @return one line per phase and counter with p50/p95/p99/max over the finished turns
+     */
+    public String summary() {
+        final StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "metrics over %d turns%n", turns));
+        for (int i = 0; i < PHASES.length; ++i) {
+            final long[] sorted = sorted(phaseHistory[i]);
+            out.append(String.format(Locale.ROOT, "  %-22s p50 %9.1f us  p95 %9.1f us  p99 %9.1f us  max %9.1f us%n",
+                    PHASES[i].name(), percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.95) / 1e3,
+                    percentile(sorted, 0.99) / 1e3, percentile(sorted, 1.0) / 1e3));
+        }
+        for (int i = 0; i < COUNTERS.length; ++i) {
+            final long[] sorted = sorted(counterHistory[i]);
+            out.append(String.format(Locale.ROOT, "  %-22s p50 %9d     p95 %9d     p99 %9d     max %9d%n",
+                    COUNTERS[i].name(), percentile(sorted, 0.50), percentile(sorted, 0.95),
+                    percentile(sorted, 0.99), percentile(sorted, 1.0)));
+        }
+        return out.toString();
+    }
+
+    private long[] sorted(final long[] history) {
+        final long[] sorted = Arrays.copyOf(history, turns);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static long percentile(final long[] sorted, final double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(sorted.length * fraction) - 1)];
+    }
+}
@@ -0,0 +1,93 @@
+package hlt;
+
+/**
+ * Mutable 2D vector to reuse as scratch space in inner loops instead of creating a Position for
+ * every intermediate point. Every method changes this vector and returns it, so calls chain.
+ * Not for keeping: convert with toPosition() once a point has to outlive the loop.
+ */
+public final class Vec {
+    public double x;
+    public double y;
+
+    public Vec() {
+    }
+
+    public Vec(final double x, final double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public Vec set(final double x, final double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public Vec set(final Position position) {
+        return set(position.getXPos(), position.getYPos());
+    }
+
+    public Vec add(final double dx, final double dy) {
+        x += dx;
+        y += dy;
+        return this;
+    }
+
+    public Vec subtract(final Position position) {
+        x -= position.getXPos();
+        y -= position.getYPos();
+        return this;
+    }
+
+    public Vec scale(final double factor) {
+        x *= factor;
+        y *= factor;
+        return this;
+    }
+
+    /**
+     * Add length units along the whole-degree heading, the displacement of a thrust of that length.
+     */
+    public Vec addPolar(final int angleDeg, final double length) {
+        x += Geometry.cosDeg(angleDeg) * length;
+        y += Geometry.sinDeg(angleDeg) * length;
+        return this;
+    }
+
+    /**
+     * Rotate counter-clockwise about the origin by a whole number of degrees.
+     */
+    public Vec rotateDeg(final int angleDeg) {
+        final double cos = Geometry.cosDeg(angleDeg);
+        final double sin = Geometry.sinDeg(angleDeg);
+        return set(x * cos - y * sin, x * sin + y * cos);
+    }
+
+    public double lengthSquared() {
+        return x * x + y * y;
+    }
+
+    public double length() {
+        return Math.sqrt(x * x + y * y);
+    }
+
+    public double distanceSquaredTo(final Position position) {
+        return Geometry.distanceSquared(x, y, position.getXPos(), position.getYPos());
+    }
+
+    /** Same arithmetic as Position.getDistanceTo(), so both give bit-identical results. */
+    public double distanceTo(final Position position) {
+        final double dx = x - position.getXPos();
+        final double dy = y - position.getYPos();
+        return Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
+    }
+
+    public Position toPosition() {
+        return new Position(x, y);
+    }
+
+    @Override
+    public String toString() {
+        return "Vec(" + x + ", " + y + ")";
+    }
+}
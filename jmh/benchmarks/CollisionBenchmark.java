@@ -0,0 +1,40 @@
+package benchmarks;
+
+import hlt.Collision;
+import hlt.Constants;
+import hlt.Position;
+import hlt.Ship;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * One op tests a full-speed move of one of my ships against every entity on the map, once
+ * entity by entity with Collision.segmentCircleIntersect and once with the batch kernel
+ * Collision.segmentCirclesIntersect on packed arrays.
+ */
+public class CollisionBenchmark {
+
+    @Benchmark
+    public int segmentCircleIntersect(final TurnState state) {
+        final int i = state.nextShip();
+        final Ship ship = state.myShips.get(i);
+        final Position end = state.segmentEnds[i];
+        int hits = 0;
+        for (int j = 0; j < state.entities.size(); ++j) {
+            if (Collision.segmentCircleIntersect(ship, end, state.entities.get(j), Constants.FORECAST_FUDGE_FACTOR)) {
+                ++hits;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int segmentCirclesIntersect(final TurnState state) {
+        final int i = state.nextShip();
+        final Ship ship = state.myShips.get(i);
+        final Position end = state.segmentEnds[i];
+        return Collision.segmentCirclesIntersect(ship.getXPos(), ship.getYPos(), end.getXPos(), end.getYPos(),
+                state.centerX, state.centerY, state.radius, state.entities.size(),
+                Constants.FORECAST_FUDGE_FACTOR, state.closestSquared, state.hits);
+    }
+}
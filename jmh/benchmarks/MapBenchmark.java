@@ -0,0 +1,14 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * GameMap.updateMap: one op parses a whole turn line into the map, incrementally.
+ */
+public class MapBenchmark {
+
+    @Benchmark
+    public int updateMap(final TurnState state) {
+        return state.parse().getAllShips().size();
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import hlt.Constants;
+import hlt.Move;
+import hlt.MoveResolver;
+import hlt.Ship;
+import hlt.ThrustMove;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * MoveResolver.resolve: one op resolves a random full-speed move for every one of my ships.
+ */
+@State(Scope.Thread)
+public class MoveResolverBenchmark {
+
+    private final List<Move> template = new ArrayList<>();
+    private final List<Move> moves = new ArrayList<>();
+    private final MoveResolver resolver = new MoveResolver();
+
+    @Setup
+    public void setUp(final TurnState state) {
+        final Random random = new Random(11);
+        for (final Ship ship : state.myShips) {
+            template.add(new ThrustMove(ship, random.nextInt(360), Constants.MAX_SPEED));
+        }
+    }
+
+    @Benchmark
+    public int resolve(final TurnState state) {
+        moves.clear();
+        moves.addAll(template);
+        resolver.resolve(state.gameMap, moves);
+        return moves.size();
+    }
+}
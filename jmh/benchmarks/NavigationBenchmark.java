@@ -0,0 +1,52 @@
+package benchmarks;
+
+import hlt.Constants;
+import hlt.Navigation;
+import hlt.NavigationResult;
+import hlt.ThrustMove;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One op navigates one of my ships towards its random target, cycling through my ships:
+ * returning a ThrustMove, into a reused NavigationResult (run with -prof gc to see it allocate
+ * nothing), and into a reused result with the Analytic and Search modes.
+ */
+@State(Scope.Thread)
+public class NavigationBenchmark {
+
+    private static final double ANGULAR_STEP_RAD = Math.PI / 180.0;
+
+    private final NavigationResult result = new NavigationResult();
+
+    @Benchmark
+    public ThrustMove thrustMove(final TurnState state) {
+        final int i = state.nextShip();
+        return Navigation.navigateShipTowardsTarget(state.gameMap, state.myShips.get(i), state.targets[i],
+                Constants.MAX_SPEED, true, Constants.MAX_NAVIGATION_CORRECTIONS, ANGULAR_STEP_RAD);
+    }
+
+    @Benchmark
+    public int linearResult(final TurnState state) {
+        return navigate(state, Navigation.Mode.Linear);
+    }
+
+    @Benchmark
+    public int analyticResult(final TurnState state) {
+        return navigate(state, Navigation.Mode.Analytic);
+    }
+
+    @Benchmark
+    public int searchResult(final TurnState state) {
+        return navigate(state, Navigation.Mode.Search);
+    }
+
+    private int navigate(final TurnState state, final Navigation.Mode mode) {
+        final int i = state.nextShip();
+        Navigation.navigateShipTowardsTarget(state.gameMap, state.myShips.get(i), state.targets[i],
+                Constants.MAX_SPEED, true, Constants.MAX_NAVIGATION_CORRECTIONS, ANGULAR_STEP_RAD, mode, result);
+        return result.isFound() ? result.getAngle() : -1;
+    }
+}
@@ -0,0 +1,134 @@
+package benchmarks;
+
+import hlt.Constants;
+import hlt.Entity;
+import hlt.GameMap;
+import hlt.Metadata;
+import hlt.Position;
+import hlt.ReplayFile;
+import hlt.Ship;
+import hlt.SyntheticStates;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One parsed turn for the hot-path benchmarks: a seeded synthetic state with the given number
+ * of players and ships in total, or, when recording names a game recorded with -Dhlt.record,
+ * the busiest turn of that game. Besides the map it holds, for each of my ships, the end of a
+ * random full-speed move and a random navigation target, and every entity packed into arrays
+ * for the batch collision kernel.
+ */
+@State(Scope.Benchmark)
+public class TurnState {
+
+    @Param({ "2", "4" })
+    public int players;
+
+    @Param({ "50", "200", "500", "1000" })
+    public int ships;
+
+    /** Path of a recorded game; when set, players and ships are ignored. */
+    @Param({ "" })
+    public String recording;
+
+    public int width = 384;
+    public int height = 256;
+    public int myId = 0;
+    public byte[] line;
+    public Metadata metadata;
+    public GameMap gameMap;
+
+    public List<Ship> myShips;
+    public List<Entity> entities;
+    public Position[] segmentEnds;
+    public Position[] targets;
+
+    public double[] centerX;
+    public double[] centerY;
+    public double[] radius;
+    public double[] closestSquared;
+    public boolean[] hits;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final String turn;
+        if (recording.isEmpty()) {
+            turn = SyntheticStates.turnLine(7, width, height, players, ships / players, 24, 5);
+        } else {
+            final ReplayFile replay = ReplayFile.load(recording);
+            width = replay.getWidth();
+            height = replay.getHeight();
+            myId = replay.getMyId();
+            turn = busiestTurn(replay.getTurns());
+        }
+        line = turn.getBytes(StandardCharsets.ISO_8859_1);
+        metadata = new Metadata();
+        gameMap = new GameMap(width, height, myId);
+        gameMap.setIncrementalUpdates(true);
+        parse();
+
+        final Random random = new Random(11);
+        entities = new ArrayList<>(gameMap.getAllPlanets().values());
+        entities.addAll(gameMap.getAllShips());
+        myShips = new ArrayList<>(gameMap.getMyPlayer().getShips().values());
+        segmentEnds = new Position[myShips.size()];
+        targets = new Position[myShips.size()];
+        for (int i = 0; i < myShips.size(); ++i) {
+            final Ship ship = myShips.get(i);
+            final double angle = random.nextDouble() * 2 * Math.PI;
+            segmentEnds[i] = new Position(ship.getXPos() + Math.cos(angle) * Constants.MAX_SPEED,
+                                          ship.getYPos() + Math.sin(angle) * Constants.MAX_SPEED);
+            targets[i] = new Position(random.nextDouble() * width, random.nextDouble() * height);
+        }
+
+        centerX = new double[entities.size()];
+        centerY = new double[entities.size()];
+        radius = new double[entities.size()];
+        closestSquared = new double[entities.size()];
+        hits = new boolean[entities.size()];
+        for (int j = 0; j < entities.size(); ++j) {
+            centerX[j] = entities.get(j).getXPos();
+            centerY[j] = entities.get(j).getYPos();
+            radius[j] = entities.get(j).getRadius();
+        }
+    }
+
+    /** Parse the turn line into gameMap again, as Networking does every turn. */
+    public GameMap parse() {
+        metadata.clear();
+        metadata.append(line, 0, line.length);
+        gameMap.updateMap(metadata);
+        return gameMap;
+    }
+
+    /**
+     * @return the index of the next of my ships, cycling through them
+     */
+    public int nextShip() {
+        final int i = next;
+        next = i + 1 == myShips.size() ? 0 : i + 1;
+        return i;
+    }
+
+    private static String busiestTurn(final List<String> turns) {
+        String busiest = turns.get(0);
+        for (final String turn : turns) {
+            if (turn.length() > busiest.length()) {
+                busiest = turn;
+            }
+        }
+        return busiest;
+    }
+}
@@ -0,0 +1,21 @@
+#!/bin/sh
+
+# Builds the bot together with the benchmarks in bench/ and runs them.
+# These need nothing but a JDK; the JMH benchmarks in jmh/ run with `gradle jmh` (see build.gradle).
+# Usage: ./run_bench.sh [BenchmarkClass...]   (default: all of them)
+# Tuning: BENCH_OPTS="-Dbench.iterations=10 -Dbench.recorded=game.txt" ./run_bench.sh
+
+set -e
+
+rm -rf out
+mkdir out
+javac -d out MyBot.java bench/*.java
+
+if [ $# -eq 0 ]; then
+    set -- GeometryAccuracy NavigationAccuracy HotPathBenchmark EntityStoreBenchmark SearchNavigationBenchmark
+fi
+
+for benchmark in "$@"; do
+    echo "== $benchmark"
+    java $BENCH_OPTS -cp out "$benchmark"
+done
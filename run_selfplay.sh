@@ -0,0 +1,12 @@
+#!/bin/sh
+
+# Builds the bot with the tools in tools/ and plays it against itself in the simulator.
+# Usage: ./run_selfplay.sh [games] [firstSeed] [players] [width] [height]
+
+set -e
+
+rm -rf out
+mkdir out
+javac -d out MyBot.java tools/*.java
+
+java -cp out SelfPlay "$@"
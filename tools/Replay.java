@@ -0,0 +1,167 @@
+import hlt.DockMove;
+import hlt.GameMap;
+import hlt.Metadata;
+import hlt.Move;
+import hlt.ReplayFile;
+import hlt.ThrustMove;
+import hlt.TurnMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Feeds a recorded game (see -Dhlt.record) through GameMap.updateMap and GameManager.update as
+ * fast as possible and reports the time spent per turn.
+ *
+ * The turn budget is never started here, so the bot always plans at the Normal level and two
+ * runs on the same recording make the same decisions. The moves checksum tells whether two bot
+ * versions did. Warm-up passes replay the whole game with a fresh bot before the timed one.
+ * -parallel T plans with GameManager.parallelPlanning on T threads, which must give the same
+ * checksum as the default serial planning. -metrics prints the bot's TurnMetrics summary of the
+ * timed pass.
+ *
+ * Usage: java -cp out Replay [-warmup N] [-parallel T] [-metrics] [-quiet] file...
+ */
+final class Replay {
+
+    public static void main(final String[] args) throws Exception {
+        int warmup = 0;
+        boolean quiet = false;
+        boolean metrics = false;
+        int planningThreads = 0;
+        final List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "-warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "-parallel":
+                    planningThreads = Integer.parseInt(args[++i]);
+                    break;
+                case "-metrics":
+                    metrics = true;
+                    break;
+                case "-quiet":
+                    quiet = true;
+                    break;
+                default:
+                    files.add(args[i]);
+                    break;
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: java -cp out Replay [-warmup N] [-parallel T] [-metrics] [-quiet] file...");
+            System.exit(2);
+        }
+
+        for (final String file : files) {
+            final ReplayFile replay = ReplayFile.load(file);
+            for (int pass = 0; pass < warmup; ++pass) {
+                play(replay, planningThreads, null, null, null);
+            }
+
+            final int turns = replay.getTurns().size() - 1;
+            final long[] parseNanos = new long[turns];
+            final long[] planNanos = new long[turns];
+            final StringBuilder metricsSummary = metrics ? new StringBuilder() : null;
+            final long checksum = play(replay, planningThreads, parseNanos, planNanos, metricsSummary);
+
+            System.out.println("== " + file + ": player " + replay.getMyId() + ", "
+                    + replay.getWidth() + "x" + replay.getHeight() + ", " + turns + " turns"
+                    + (planningThreads > 0 ? ", parallel planning on " + planningThreads + " threads" : ""));
+            if (!quiet) {
+                System.out.println("turn   parseUs    planUs");
+                for (int turn = 0; turn < turns; ++turn) {
+                    System.out.println(String.format(Locale.ROOT, "%4d %9d %9d",
+                            turn + 1, parseNanos[turn] / 1000, planNanos[turn] / 1000));
+                }
+            }
+            System.out.println(String.format(Locale.ROOT, "parse: total %.2f ms, %s", total(parseNanos) / 1e6, summary(parseNanos)));
+            System.out.println(String.format(Locale.ROOT, "plan:  total %.2f ms, %s", total(planNanos) / 1e6, summary(planNanos)));
+            System.out.println(String.format(Locale.ROOT, "moves checksum %016x", checksum));
+            if (metricsSummary != null) {
+                System.out.print(metricsSummary);
+            }
+        }
+    }
+
+    /**
+     * Replay the game with a fresh bot, recording the times if the arrays are given and appending
+     * the TurnMetrics summary if metricsSummary is. planningThreads 0 plans serially.
+     *
+     * @return a checksum of all the moves made
+     */
+    private static long play(final ReplayFile replay, final int planningThreads,
+                             final long[] parseNanos, final long[] planNanos,
+                             final StringBuilder metricsSummary) {
+        final List<String> turns = replay.getTurns();
+        final GameMap gameMap = new GameMap(replay.getWidth(), replay.getHeight(), replay.getMyId());
+        gameMap.updateMap(new Metadata(turns.get(0)));
+        gameMap.setIncrementalUpdates(true);
+
+        final GameManager gameManager = new GameManager();
+        if (planningThreads > 0) {
+            gameManager.parallelPlanning = true;
+            gameManager.planningThreads = planningThreads;
+        }
+        final List<Move> moves = new ArrayList<>();
+        long checksum = 1;
+        for (int turn = 1; turn < turns.size(); ++turn) {
+            final Metadata metadata = new Metadata(turns.get(turn));
+            final long parseStart = System.nanoTime();
+            gameMap.updateMap(metadata);
+            final long planStart = System.nanoTime();
+            gameMap.getMetrics().add(TurnMetrics.Phase.Parse, planStart - parseStart);
+            gameManager.update(gameMap, moves);
+            final long planEnd = System.nanoTime();
+            gameMap.getMetrics().endTurn();
+            if (parseNanos != null) {
+                parseNanos[turn - 1] = planStart - parseStart;
+                planNanos[turn - 1] = planEnd - planStart;
+            }
+            for (final Move move : moves) {
+                checksum = checksum * 31 + hash(move);
+            }
+        }
+        if (metricsSummary != null) {
+            metricsSummary.append(gameMap.getMetrics().summary());
+        }
+        return checksum;
+    }
+
+    private static long hash(final Move move) {
+        long hash = move.getType().ordinal() * 1_000_003L + move.getShip().getId();
+        if (move instanceof ThrustMove) {
+            hash = hash * 31 + ((ThrustMove) move).getThrust();
+            hash = hash * 31 + ((ThrustMove) move).getAngle();
+        } else if (move instanceof DockMove) {
+            hash = hash * 31 + ((DockMove) move).getDestinationId();
+        }
+        return hash;
+    }
+
+    private static long total(final long[] nanos) {
+        long total = 0;
+        for (final long value : nanos) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static String summary(final long[] nanos) {
+        if (nanos.length == 0) {
+            return "no turns";
+        }
+        final long[] sorted = Arrays.copyOf(nanos, nanos.length);
+        Arrays.sort(sorted);
+        return String.format(Locale.ROOT, "avg %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                total(sorted) / 1e6 / sorted.length, percentile(sorted, 0.50) / 1e6,
+                percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static long percentile(final long[] sorted, final double fraction) {
+        return sorted[Math.max(0, (int) Math.ceil(sorted.length * fraction) - 1)];
+    }
+}
@@ -0,0 +1,59 @@
+import hlt.GameResult;
+import hlt.Simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Plays the bot against copies of itself in the in-process Simulator.
+ *
+ * Every game is seeded, so a seed that shows a problem can be replayed exactly. Prints one line
+ * per game, then the wins per seat and the throughput.
+ *
+ * Usage: java -cp out SelfPlay [games] [firstSeed] [players] [width] [height]
+ */
+final class SelfPlay {
+
+    public static void main(final String[] args) {
+        final int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final long firstSeed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        final int players = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        final int width = args.length > 3 ? Integer.parseInt(args[3]) : 240;
+        final int height = args.length > 4 ? Integer.parseInt(args[4]) : 160;
+
+        final int[] wins = new int[players];
+        int errors = 0;
+        long turns = 0;
+        final long start = System.nanoTime();
+        for (int game = 0; game < games; ++game) {
+            final long seed = firstSeed + game;
+            final List<GameManager> bots = new ArrayList<>();
+            for (int player = 0; player < players; ++player) {
+                bots.add(new GameManager());
+            }
+
+            final GameResult result = new Simulator(seed, players, width, height).play(bots);
+            ++wins[result.getWinner()];
+            turns += result.getTurns();
+
+            final StringBuilder line = new StringBuilder();
+            line.append(String.format(Locale.ROOT, "seed %d: %d turns, winner %d, ships",
+                    seed, result.getTurns(), result.getWinner()));
+            for (int player = 0; player < players; ++player) {
+                line.append(' ').append(result.getShips(player));
+                errors += result.getErrors(player);
+            }
+            System.out.println(line);
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        final StringBuilder summary = new StringBuilder("wins per seat:");
+        for (final int win : wins) {
+            summary.append(' ').append(win);
+        }
+        System.out.println(summary);
+        System.out.println(String.format(Locale.ROOT, "%d games, %d turns, %d bot errors in %.2f s (%.2f games/s)",
+                games, turns, errors, seconds, games / seconds));
+    }
+}
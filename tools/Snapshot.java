@@ -0,0 +1,97 @@
+import hlt.GameMap;
+import hlt.Metadata;
+import hlt.Planet;
+import hlt.ReplayFile;
+import hlt.Ship;
+import hlt.SnapshotFile;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Converts a recorded game (see -Dhlt.record) to a SnapshotFile and checks the result.
+ *
+ * Every turn of the snapshot is loaded both into a fresh GameMap and into one updated
+ * incrementally from turn to turn, and compared with the GameMap parsed from the text line.
+ * Then the time to reach the last turn is compared: reading and parsing the text recording
+ * against mapping the snapshot and loading that turn only.
+ *
+ * Usage: java -cp out Snapshot recording[.gz] snapshot
+ */
+final class Snapshot {
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: java -cp out Snapshot recording[.gz] snapshot");
+            System.exit(2);
+        }
+        final String recordingPath = args[0];
+        final String snapshotPath = args[1];
+
+        final ReplayFile replay = ReplayFile.load(recordingPath);
+        SnapshotFile.write(replay, snapshotPath);
+        System.out.println(String.format(Locale.ROOT, "%s: %d turns, %d bytes -> %s: %d bytes",
+                recordingPath, replay.getTurns().size(), new File(recordingPath).length(),
+                snapshotPath, new File(snapshotPath).length()));
+
+        final SnapshotFile snapshot = SnapshotFile.open(snapshotPath);
+        final List<String> turns = replay.getTurns();
+        final GameMap incremental = new GameMap(snapshot.getWidth(), snapshot.getHeight(), snapshot.getMyId());
+        incremental.setIncrementalUpdates(true);
+        final SnapshotFile.Cursor cursor = snapshot.openTurn(0);
+        int mismatches = 0;
+        for (int turn = 0; turn < turns.size(); ++turn) {
+            final String expected = describe(new GameMap(replay.getWidth(), replay.getHeight(), replay.getMyId())
+                    .updateMap(new Metadata(turns.get(turn))));
+            cursor.seek(turn);
+            incremental.updateMap(cursor);
+            if (!expected.equals(describe(snapshot.load(turn))) || !expected.equals(describe(incremental))) {
+                System.out.println("turn " + turn + " differs");
+                ++mismatches;
+            }
+        }
+        System.out.println(mismatches == 0 ? "all turns match the text recording" : mismatches + " turns differ");
+
+        final int last = turns.size() - 1;
+        for (int round = 0; round < 5; ++round) {
+            final long textStart = System.nanoTime();
+            final ReplayFile text = ReplayFile.load(recordingPath);
+            final GameMap fromText = new GameMap(text.getWidth(), text.getHeight(), text.getMyId())
+                    .updateMap(new Metadata(text.getTurns().get(last)));
+            final long snapshotStart = System.nanoTime();
+            final GameMap fromSnapshot = SnapshotFile.open(snapshotPath).load(last);
+            final long end = System.nanoTime();
+            if (fromText.getAllShips().size() != fromSnapshot.getAllShips().size()) {
+                ++mismatches;
+            }
+            System.out.println(String.format(Locale.ROOT, "turn %d: text %.3f ms, snapshot %.3f ms (%d ships)",
+                    last, (snapshotStart - textStart) / 1e6, (end - snapshotStart) / 1e6, fromSnapshot.getAllShips().size()));
+        }
+        if (mismatches != 0) {
+            System.exit(1);
+        }
+    }
+
+    private static String describe(final GameMap gameMap) {
+        final StringBuilder out = new StringBuilder();
+        for (final Ship ship : gameMap.getAllShips()) {
+            out.append("s ").append(ship.getId()).append(' ').append(ship.getOwner())
+                    .append(' ').append(Double.doubleToLongBits(ship.getXPos()))
+                    .append(' ').append(Double.doubleToLongBits(ship.getYPos()))
+                    .append(' ').append(ship.getHealth()).append(' ').append(ship.getDockingStatus())
+                    .append(' ').append(ship.getDockedPlanet()).append(' ').append(ship.getDockingProgress())
+                    .append(' ').append(ship.getWeaponCooldown()).append('\n');
+        }
+        for (final Planet planet : gameMap.getAllPlanets().values()) {
+            out.append("p ").append(planet.getId()).append(' ').append(planet.getOwner())
+                    .append(' ').append(Double.doubleToLongBits(planet.getXPos()))
+                    .append(' ').append(Double.doubleToLongBits(planet.getYPos()))
+                    .append(' ').append(Double.doubleToLongBits(planet.getRadius()))
+                    .append(' ').append(planet.getHealth()).append(' ').append(planet.getDockingSpots())
+                    .append(' ').append(planet.getCurrentProduction()).append(' ').append(planet.getRemainingProduction())
+                    .append(' ').append(planet.getDockedShips()).append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,196 @@
+import hlt.GameResult;
+import hlt.Navigation;
+import hlt.Simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Plays many seeded games between GameManager configurations on all cores and compares them.
+ *
+ * A configuration is written name:key=value,key=value with the GameManager fields below; a bare
+ * name is the default bot. Every seed is played once per seat rotation, so each configuration
+ * plays every seat on the same maps. Games are independent and run as fork-join tasks, one
+ * Simulator and fresh GameManagers each, so throughput scales with the number of cores.
+ *
+ * Usage: java -cp out Tournament [-games N] [-seed S] [-players P] [-threads T] [-size WxH] config...
+ * e.g.   java -cp out Tournament -games 500 base eager:attackMinDocked=1,attackEveryGoals=2
+ */
+final class Tournament {
+
+    private static final class Config {
+        final String name;
+        final String[] settings;
+
+        // aggregated results, only touched by the main thread
+        int games;
+        int wins;
+        long rankSum;
+        int errors;
+        long[] turnNanos = new long[1024];
+        int turnCount;
+
+        Config(final String spec) {
+            final int colon = spec.indexOf(':');
+            name = colon < 0 ? spec : spec.substring(0, colon);
+            settings = colon < 0 ? new String[0] : spec.substring(colon + 1).split(",");
+            // Fail on a typo before any game is played.
+            newBot();
+        }
+
+        GameManager newBot() {
+            final GameManager bot = new GameManager();
+            for (final String setting : settings) {
+                final int equals = setting.indexOf('=');
+                if (equals < 0) {
+                    throw new IllegalArgumentException("Expected key=value in " + name + ": " + setting);
+                }
+                final String key = setting.substring(0, equals).trim();
+                final String value = setting.substring(equals + 1).trim();
+                switch (key) {
+                    case "attackMinDocked":
+                        bot.attackMinDocked = Integer.parseInt(value);
+                        break;
+                    case "attackEveryGoals":
+                        bot.attackEveryGoals = Integer.parseInt(value);
+                        break;
+                    case "navigationMode":
+                        bot.navigationMode = Navigation.Mode.valueOf(value);
+                        break;
+                    case "batchAssignment":
+                        bot.batchAssignment = Boolean.parseBoolean(value);
+                        break;
+                    case "attackCost":
+                        bot.attackCost = Double.parseDouble(value);
+                        break;
+                    case "defendCost":
+                        bot.defendCost = Double.parseDouble(value);
+                        break;
+                    case "parallelPlanning":
+                        bot.parallelPlanning = Boolean.parseBoolean(value);
+                        break;
+                    case "planningThreads":
+                        bot.planningThreads = Integer.parseInt(value);
+                        break;
+                    case "approachPoints":
+                        bot.approachPoints = Boolean.parseBoolean(value);
+                        break;
+                    case "avoidPredictedEnemies":
+                        bot.moveResolver.setAvoidPredictedEnemies(Boolean.parseBoolean(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown setting in " + name + ": " + key);
+                }
+            }
+            return bot;
+        }
+
+        void add(final GameResult result, final int player) {
+            ++games;
+            if (result.getRank(player) == 1) {
+                ++wins;
+            }
+            rankSum += result.getRank(player);
+            errors += result.getErrors(player);
+            final long[] nanos = result.getTurnNanos(player);
+            if (turnCount + nanos.length > turnNanos.length) {
+                turnNanos = Arrays.copyOf(turnNanos, Math.max(turnNanos.length * 2, turnCount + nanos.length));
+            }
+            System.arraycopy(nanos, 0, turnNanos, turnCount, nanos.length);
+            turnCount += nanos.length;
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        int games = 100;
+        long firstSeed = 1;
+        int players = 2;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int width = 240;
+        int height = 160;
+        final List<Config> configs = new ArrayList<>();
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "-games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    firstSeed = Long.parseLong(args[++i]);
+                    break;
+                case "-players":
+                    players = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-size":
+                    final String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                default:
+                    configs.add(new Config(args[i]));
+                    break;
+            }
+        }
+        if (configs.isEmpty()) {
+            configs.add(new Config("default"));
+        }
+
+        // Seat s of rotation r is played by configuration (s + r) % configs.
+        final int rotations = configs.size();
+        final int finalPlayers = players;
+        final int finalWidth = width;
+        final int finalHeight = height;
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        final List<ForkJoinTask<GameResult>> tasks = new ArrayList<>();
+        final long start = System.nanoTime();
+        for (int game = 0; game < games; ++game) {
+            final long seed = firstSeed + game;
+            for (int rotation = 0; rotation < rotations; ++rotation) {
+                final int finalRotation = rotation;
+                tasks.add(pool.submit(() -> {
+                    final List<GameManager> bots = new ArrayList<>();
+                    for (int seat = 0; seat < finalPlayers; ++seat) {
+                        bots.add(configs.get((seat + finalRotation) % rotations).newBot());
+                    }
+                    return new Simulator(seed, finalPlayers, finalWidth, finalHeight).play(bots);
+                }));
+            }
+        }
+
+        int played = 0;
+        for (int task = 0; task < tasks.size(); ++task) {
+            final GameResult result = tasks.get(task).join();
+            final int rotation = task % rotations;
+            for (int seat = 0; seat < players; ++seat) {
+                configs.get((seat + rotation) % rotations).add(result, seat);
+            }
+            ++played;
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.println(String.format(Locale.ROOT, "%-20s %7s %7s %8s %10s %10s %7s",
+                "config", "seats", "win%", "avgRank", "avgTurnMs", "p99TurnMs", "errors"));
+        for (final Config config : configs) {
+            Arrays.sort(config.turnNanos, 0, config.turnCount);
+            long total = 0;
+            for (int i = 0; i < config.turnCount; ++i) {
+                total += config.turnNanos[i];
+            }
+            final double average = config.turnCount == 0 ? 0 : total / 1e6 / config.turnCount;
+            final double p99 = config.turnCount == 0 ? 0
+                    : config.turnNanos[Math.min(config.turnCount - 1, (int) Math.ceil(config.turnCount * 0.99) - 1)] / 1e6;
+            System.out.println(String.format(Locale.ROOT, "%-20s %7d %6.1f%% %8.2f %10.3f %10.3f %7d",
+                    config.name, config.games, 100.0 * config.wins / config.games,
+                    (double) config.rankSum / config.games, average, p99, config.errors));
+        }
+        System.out.println(String.format(Locale.ROOT, "%d games on %d threads in %.2f s (%.2f games/s)",
+                played, threads, seconds, played / seconds));
+    }
+}